@@ -0,0 +1,75 @@
+package org.yah.cli.benchmark;
+
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser.ParseContext;
+import org.openjdk.jmh.annotations.*;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CliParser#parse(String, int, ParseContext)} of lines from 10 B to 1 MB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CliParserBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int lineLength;
+
+    private final CliParser parser = new CliParser();
+
+    // two lines differing by their first character, to complete without reusing the previous line
+    private String[] fullLines;
+
+    // two lines differing by their last word, as when typing the last word before completing it
+    private String[] typedLines;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        final String line = Synthetic.line(lineLength);
+        fullLines = new String[]{"a" + line, "b" + line};
+        typedLines = new String[]{line + " x", line + " xy"};
+    }
+
+    @Benchmark
+    public ParsedLine acceptLine() {
+        final String line = fullLines[index++ & 1];
+        return parser.parse(line, line.length(), ParseContext.ACCEPT_LINE);
+    }
+
+    @Benchmark
+    public List<String> acceptLineWords() {
+        final String line = fullLines[index++ & 1];
+        return parser.parse(line, line.length(), ParseContext.ACCEPT_LINE).words();
+    }
+
+    @Benchmark
+    public Object acceptLineMappedWords() {
+        final String line = fullLines[index++ & 1];
+        final MappedParsedLine parsedLine = (MappedParsedLine) parser.parse(line, line.length(),
+                ParseContext.ACCEPT_LINE);
+        return parsedLine.mappedWords();
+    }
+
+    @Benchmark
+    public String completeFull() {
+        final String line = fullLines[index++ & 1];
+        return parser.parse(line, line.length(), ParseContext.COMPLETE).word();
+    }
+
+    @Benchmark
+    public String completeIncremental() {
+        final String line = typedLines[index++ & 1];
+        return parser.parse(line, line.length(), ParseContext.COMPLETE).word();
+    }
+
+}
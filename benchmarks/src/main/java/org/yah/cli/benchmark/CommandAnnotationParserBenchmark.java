@@ -0,0 +1,59 @@
+package org.yah.cli.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.factory.CommandAnnotationParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First {@link CommandAnnotationParser#parse(Object, CommandsRegistry)} of {@link SyntheticCommands} in a fresh JVM
+ * (startup cost), using the populator generated by java-cli-processor, or reflection.<br/>
+ * {@link #parseWarm()} measures the same registration once the JVM is warm, i.e. when creating the commands of
+ * another CLI instance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class CommandAnnotationParserBenchmark {
+
+    @Param({"true", "false"})
+    private boolean generated;
+
+    private CommandAnnotationParser parser;
+
+    private Object commands;
+
+    @Setup
+    public void setup() {
+        parser = new CommandAnnotationParser(null, null, null, null);
+        commands = generated ? new SyntheticCommands() : new ReflectedCommands();
+    }
+
+    @Benchmark
+    public CommandsRegistry parse() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        parser.parse(commands, registry);
+        return registry;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 10, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public CommandsRegistry parseWarm() {
+        return parse();
+    }
+
+    /**
+     * Does not declare commands: no populator is generated for this class.
+     */
+    public static class ReflectedCommands extends SyntheticCommands {
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.yah.cli.benchmark;
+
+import org.jline.builtins.Completers.TreeCompleter;
+import org.jline.reader.Candidate;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser;
+import org.jline.terminal.impl.DumbTerminal;
+import org.openjdk.jmh.annotations.*;
+import org.yah.cli.ParsedCommandLine;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsCompleter;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandsRegistry#resolve(org.yah.cli.CommandLine)} and commands completion in command trees of 10 to 100k
+ * commands.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandsRegistryBenchmark {
+
+    private static final int LINES = 1024;
+
+    @Param({"10", "1000", "100000"})
+    private int commands;
+
+    @Param({"false", "true"})
+    private boolean frozen;
+
+    private CommandsRegistry registry;
+
+    private MappedParsedLine[] lines;
+
+    private String[] prefixes;
+
+    private ParsedLine[] completedLines;
+
+    private LineReader reader;
+
+    private CommandsCompleter completer;
+
+    private TreeCompleter treeCompleter;
+
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        registry = new CommandsRegistry(true);
+        final int fanOut = Synthetic.createCommands(commands, registry);
+        if (frozen)
+            registry.freeze();
+        final Random random = new Random(commands);
+        lines = new MappedParsedLine[LINES];
+        prefixes = new String[LINES];
+        completedLines = new ParsedLine[LINES];
+        final CliParser parser = new CliParser();
+        for (int i = 0; i < LINES; i++) {
+            final String group = Synthetic.groupName(random.nextInt(fanOut));
+            final String command = Synthetic.commandName(random.nextInt(fanOut));
+            lines[i] = Synthetic.parse(group + " " + command + " arg");
+            prefixes[i] = command.substring(0, command.length() - 1);
+            final String completed = group + " " + prefixes[i];
+            completedLines[i] = parser.parse(completed, completed.length(), Parser.ParseContext.COMPLETE);
+        }
+        reader = LineReaderBuilder.builder()
+                .terminal(new DumbTerminal(new ByteArrayInputStream(new byte[0]), OutputStream.nullOutputStream()))
+                .build();
+        completer = new CommandsCompleter(registry);
+        treeCompleter = new TreeCompleter(registry.createTreeNodes());
+    }
+
+    @Benchmark
+    public Optional<Command> resolve() {
+        final MappedParsedLine line = lines[index++ & (LINES - 1)];
+        return registry.resolve(new ParsedCommandLine(line));
+    }
+
+    /**
+     * Resolve through the names trie: synthetic names have no unique prefix shorter than the name itself.
+     */
+    @Benchmark
+    public Optional<Command> resolveAbbreviated() {
+        final MappedParsedLine line = lines[index++ & (LINES - 1)];
+        return registry.resolve(new ParsedCommandLine(line), true);
+    }
+
+    @Benchmark
+    public List<String> prefixNames() {
+        final String prefix = prefixes[index++ & (LINES - 1)];
+        return registry.command(Synthetic.groupName(0)).getSubCommands().names(prefix);
+    }
+
+    @Benchmark
+    public List<Candidate> complete() {
+        final List<Candidate> candidates = new ArrayList<>();
+        completer.complete(reader, completedLines[index++ & (LINES - 1)], candidates);
+        return candidates;
+    }
+
+    /**
+     * The JLine tree completer previously used by the CLI, for reference.
+     */
+    @Benchmark
+    public List<Candidate> completeTree() {
+        final List<Candidate> candidates = new ArrayList<>();
+        treeCompleter.complete(reader, completedLines[index++ & (LINES - 1)], candidates);
+        return candidates;
+    }
+
+}
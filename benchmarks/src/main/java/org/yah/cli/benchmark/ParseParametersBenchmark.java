@@ -0,0 +1,47 @@
+package org.yah.cli.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.yah.cli.ParsedCommandLine;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.factory.CommandAnnotationParser;
+import org.yah.cli.command.parameter.ParsedParameter;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Command#parseParameters(org.yah.cli.CommandLine)} of annotated commands parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseParametersBenchmark {
+
+    @Param({SyntheticCommands.PRIMITIVES_LINE, SyntheticCommands.OBJECTS_LINE})
+    private String line;
+
+    private Command command;
+
+    private MappedParsedLine parsedLine;
+
+    @Setup
+    public void setup() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        new CommandAnnotationParser(null, null, null, null).parse(new SyntheticCommands(), registry);
+        parsedLine = Synthetic.parse(line);
+        command = registry.resolve(new ParsedCommandLine(parsedLine)).orElseThrow();
+    }
+
+    @Benchmark
+    public List<ParsedParameter> parseParameters() {
+        final ParsedCommandLine commandLine = new ParsedCommandLine(parsedLine);
+        commandLine.next();
+        return command.parseParameters(commandLine);
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.yah.cli.benchmark;
+
+import org.jline.reader.Parser;
+import org.yah.cli.ParsedCommandLine;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandBuilder;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.util.Random;
+
+/**
+ * Synthetic command lines and command trees used by benchmarks.
+ */
+public final class Synthetic {
+
+    private static final String[] WORDS = {"cmd", "argument", "'quoted argument'", "\"double quoted\"",
+            "escaped\\ space", "12345", "-3.14", "C:\\\\Windows\\\\System32", "{\"key\":\"value\"}"};
+
+    private Synthetic() {
+    }
+
+    /**
+     * @return a command line of the given length, made of plain, quoted and escaped words
+     */
+    public static String line(int length) {
+        final Random random = new Random(length);
+        StringBuilder sb = new StringBuilder(length + 32);
+        while (sb.length() < length) {
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    /**
+     * Create a 2 levels command tree of at least the given number of leaf commands, named
+     * <code>group-{i} command-{j}</code>.
+     *
+     * @return the number of groups (and commands per group)
+     */
+    public static int createCommands(int count, CommandsRegistry registry) {
+        final int fanOut = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < fanOut; i++) {
+            final CommandBuilder group = Command.cmd(groupName(i));
+            for (int j = 0; j < fanOut; j++) {
+                group.withSubCommand(commandName(j))
+                        .withDescription("Command " + j + " of group " + i)
+                        .withAction(() -> {
+                        })
+                        .build();
+            }
+            group.addTo(registry);
+        }
+        return fanOut;
+    }
+
+    public static String groupName(int index) {
+        return "group-" + index;
+    }
+
+    public static String commandName(int index) {
+        return "command-" + index;
+    }
+
+    public static MappedParsedLine parse(String line) {
+        return (MappedParsedLine) new CliParser().parse(line, line.length(), Parser.ParseContext.ACCEPT_LINE);
+    }
+
+    public static ParsedCommandLine commandLine(String line) {
+        return new ParsedCommandLine(parse(line));
+    }
+
+}
@@ -0,0 +1,35 @@
+package org.yah.cli.benchmark;
+
+import org.yah.cli.command.annotation.CliCommand;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Annotated commands used by benchmarks, consuming their parameters in {@link #sink}.
+ */
+@SuppressWarnings("unused")
+public class SyntheticCommands {
+
+    public static final String PRIMITIVES_LINE = "primitives 42 123456789 3.14 true";
+
+    public static final String OBJECTS_LINE = "objects text /tmp/file SECONDS 12";
+
+    public long sink;
+
+    @CliCommand
+    public void noParam() {
+        sink++;
+    }
+
+    @CliCommand
+    public void primitives(int i, long l, double d, boolean b) {
+        sink += i + l + (long) d + (b ? 1 : 0);
+    }
+
+    @CliCommand
+    public void objects(String s, Path path, TimeUnit unit, Integer boxed) {
+        sink += s.length() + path.getNameCount() + unit.ordinal() + boxed;
+    }
+
+}
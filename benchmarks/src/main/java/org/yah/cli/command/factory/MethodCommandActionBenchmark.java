@@ -0,0 +1,116 @@
+package org.yah.cli.command.factory;
+
+import org.openjdk.jmh.annotations.*;
+import org.yah.cli.ParsedCommandLine;
+import org.yah.cli.benchmark.Synthetic;
+import org.yah.cli.benchmark.SyntheticCommands;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.parameter.ParsedParameter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MethodCommandAction#run(Command, List)} of annotated commands, with parameters already parsed.
+ * In this package to access the package private {@link MethodCommandAction}.<br/>
+ * Compare the method invocation strategies: {@link Method#invoke(Object, Object...)}, the spread
+ * {@link java.lang.invoke.MethodHandle} and the {@link java.lang.invoke.LambdaMetafactory} lambda created by
+ * {@link CommandMethod#methodInvoker(Object, Method)}, and the direct call emitted by generated populators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodCommandActionBenchmark {
+
+    @Param({"no-param", SyntheticCommands.PRIMITIVES_LINE, SyntheticCommands.OBJECTS_LINE})
+    private String line;
+
+    @Param({"reflection", "method-handle", "lambda", "direct"})
+    private String invoker;
+
+    private final SyntheticCommands instance = new SyntheticCommands();
+
+    private Command command;
+
+    private List<ParsedParameter> parameters;
+
+    private MethodCommandAction action;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        new CommandAnnotationParser(null, null, null, null).parse(instance, registry);
+        final ParsedCommandLine commandLine = Synthetic.commandLine(line);
+        command = registry.resolve(commandLine).orElseThrow();
+        parameters = command.parseParameters(commandLine);
+        action = new MethodCommandAction(createInvoker(findMethod(command)), parsedParametersSuppliers(command));
+    }
+
+    @Benchmark
+    public long run() throws Exception {
+        action.run(command, parameters);
+        return instance.sink;
+    }
+
+    private CommandMethod.Invoker createInvoker(Method method) {
+        switch (invoker) {
+            case "reflection":
+                return arguments -> {
+                    try {
+                        method.invoke(instance, arguments.toArray());
+                    } catch (InvocationTargetException e) {
+                        throw (Exception) e.getCause();
+                    }
+                };
+            case "method-handle":
+                return CommandMethod.methodHandleInvoker(instance, method);
+            case "lambda":
+                return LambdaInvokers.create(instance, method);
+            case "direct":
+                return directInvoker(method.getName());
+            default:
+                throw new IllegalArgumentException("Unknown invoker " + invoker);
+        }
+    }
+
+    /**
+     * @return the invoker a generated populator would create for the method
+     */
+    private CommandMethod.Invoker directInvoker(String methodName) {
+        switch (methodName) {
+            case "noParam":
+                return arguments -> instance.noParam();
+            case "primitives":
+                return arguments -> instance.primitives(arguments.getInt(0), arguments.getLong(1),
+                        arguments.getDouble(2), (Boolean) arguments.get(3));
+            case "objects":
+                return arguments -> instance.objects((String) arguments.get(0), (Path) arguments.get(1),
+                        (TimeUnit) arguments.get(2), (Integer) arguments.get(3));
+            default:
+                throw new IllegalArgumentException("No direct invoker for " + methodName);
+        }
+    }
+
+    private static Method findMethod(Command command) {
+        for (Method method : SyntheticCommands.class.getMethods()) {
+            if (method.getParameterCount() == command.getParameters().size()
+                    && command.getName().replace("-", "").equalsIgnoreCase(method.getName()))
+                return method;
+        }
+        throw new IllegalArgumentException("No method for command " + command.getName());
+    }
+
+    private static ParameterSupplier[] parsedParametersSuppliers(Command command) {
+        return command.getParameters().stream()
+                .map(CommandAnnotationParser::parsedParameterSupplier)
+                .toArray(ParameterSupplier[]::new);
+    }
+
+}
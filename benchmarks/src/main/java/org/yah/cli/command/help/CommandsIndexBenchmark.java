@@ -0,0 +1,58 @@
+package org.yah.cli.command.help;
+
+import org.openjdk.jmh.annotations.*;
+import org.yah.cli.benchmark.Synthetic;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandsIndex#search(String)} of the <code>apropos</code> command in command trees of 1000 to 100k commands.
+ * In this package to access the package private {@link CommandsIndex}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandsIndexBenchmark {
+
+    @Param({"1000", "100000"})
+    private int commands;
+
+    @Param({"group-3 command-7", "command 12 of group", "unknown"})
+    private String query;
+
+    private CommandsRegistry registry;
+
+    private CommandTexts texts;
+
+    private CommandsIndex index;
+
+    @Setup
+    public void setup() {
+        registry = new CommandsRegistry(true);
+        Synthetic.createCommands(commands, registry);
+        registry.freeze();
+        texts = new CommandTexts(EmptyResourceBundle.INSTANCE);
+        index = CommandsIndex.build(registry, texts);
+    }
+
+    @Benchmark
+    public List<Command> search() {
+        return index.search(query);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public CommandsIndex build() {
+        return CommandsIndex.build(registry, texts);
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.yah.cli.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generate a <code>org.yah.cli.command.factory.CommandsPopulator</code> for each concrete class declaring
+ * <code>@CliCommand</code> methods or implementing <code>org.yah.cli.AnnotatedCli</code>.<br/>
+ * The populator registers the class commands (including inherited ones) with direct method calls and parameters
+ * parsers resolved at compile time, so that <code>CommandAnnotationParser</code> does not have to scan the class
+ * by reflection. Classes whose commands can not be generated (i.e. referencing inaccessible types) are reported
+ * with a note and keep being parsed by reflection.
+ */
+@SupportedAnnotationTypes("*")
+public class CliCommandsProcessor extends AbstractProcessor {
+
+    static final String CLI_COMMAND = "org.yah.cli.command.annotation.CliCommand";
+    static final String ANNOTATED_CLI = "org.yah.cli.AnnotatedCli";
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (processingEnv.getElementUtils().getTypeElement(CLI_COMMAND) == null)
+            return false; // java-cli is not on the class path
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            process(type);
+        }
+        return false;
+    }
+
+    private void process(TypeElement type) {
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && (isAnnotatedCli(type) || declaresCommands(type))) {
+            generate(type);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            process(nested);
+        }
+    }
+
+    private boolean isAnnotatedCli(TypeElement type) {
+        final TypeElement annotatedCli = processingEnv.getElementUtils().getTypeElement(ANNOTATED_CLI);
+        if (annotatedCli == null)
+            return false;
+        final TypeMirror annotatedCliType = processingEnv.getTypeUtils().erasure(annotatedCli.asType());
+        return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()),
+                annotatedCliType);
+    }
+
+    private static boolean declaresCommands(TypeElement type) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (PopulatorGenerator.findAnnotation(method, CLI_COMMAND) != null)
+                return true;
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type) {
+        final PopulatorGenerator generator = new PopulatorGenerator(processingEnv, type);
+        if (!generated.add(generator.getPopulatorName()))
+            return;
+        final String source;
+        try {
+            source = generator.generate();
+        } catch (PopulatorGenerator.UnsupportedCommandsException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "Commands of " + type.getQualifiedName() + " will be parsed by reflection: " + e.getMessage(),
+                    e.getElement() == null ? type : e.getElement());
+            return;
+        }
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(generator.getPopulatorName(), type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Error writing " + generator.getPopulatorName() + ": " + e.getMessage(), type);
+        }
+    }
+
+}
@@ -0,0 +1,542 @@
+package org.yah.cli.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+/**
+ * Generate the <code>CommandsPopulator</code> source of a class, mirroring what <code>CommandAnnotationParser</code>
+ * does by reflection: <code>@CliCommands</code> groups of the class and its enclosing classes, then
+ * <code>@CliCommand</code> methods of the class, its super classes and their interfaces, populated lazily in the group
+ * of the class if any.<br/>
+ * Framework types are fully qualified in the generated source, so that it does not depend on the annotated class
+ * package content.
+ */
+final class PopulatorGenerator {
+
+    static final String SUFFIX = "_CliCommands";
+
+    private static final String CLI_COMMANDS = "org.yah.cli.command.annotation.CliCommands";
+    private static final String CLI_PARAMETER = "org.yah.cli.command.annotation.CliParameter";
+    private static final String DEFAULT_COMPLETER_FACTORY = CliCommandsProcessor.CLI_COMMAND +
+            ".DefaultCompleterFactory";
+    private static final String DEFAULT_PARAMETER_SUPPLIER = CLI_PARAMETER + ".DefaultParameterSupplier";
+    private static final String DEFAULT_PARAMETER_PARSER = CLI_PARAMETER + ".DefaultParameterParser";
+    private static final String DEFAULT_PARAMETER_COMPLETER = "org.yah.cli.command.annotation.ParameterCompleter" +
+            ".DefaultParameterCompleter";
+
+    private static final String COMMAND_METHOD = "org.yah.cli.command.factory.CommandMethod";
+    private static final String PARAMETER_PARSERS = "org.yah.cli.command.parameter.ParameterParsers";
+    private static final String PIPELINE = "org.yah.cli.Pipeline";
+    private static final Set<String> PIPELINE_OUTPUTS = Set.of("java.util.stream.Stream", "java.util.Iterator",
+            "java.lang.Iterable", "java.util.concurrent.Flow.Publisher");
+    private static final String STRINGS_COMPLETER = "org.jline.reader.impl.completer.StringsCompleter";
+    private static final String GENERATED = "javax.annotation.processing.Generated";
+
+    // static factories of the default parsers registry, by lookup order: method name, parameter type
+    private static final String[][] STRING_FACTORIES = {
+            {"valueOf", "java.lang.String"},
+            {"parse", "java.lang.CharSequence"}
+    };
+
+    private static final String INDENT = "        ";
+
+    private final Elements elements;
+    private final Types types;
+    private final TypeElement type;
+    private final PackageElement packageElement;
+    private final String populatorSimpleName;
+
+    PopulatorGenerator(ProcessingEnvironment processingEnv, TypeElement type) {
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.type = type;
+        this.packageElement = elements.getPackageOf(type);
+        String binaryName = elements.getBinaryName(type).toString();
+        if (!packageElement.isUnnamed())
+            binaryName = binaryName.substring(packageElement.getQualifiedName().length() + 1);
+        this.populatorSimpleName = binaryName.replace('$', '_') + SUFFIX;
+    }
+
+    String getPopulatorName() {
+        if (packageElement.isUnnamed())
+            return populatorSimpleName;
+        return packageElement.getQualifiedName() + "." + populatorSimpleName;
+    }
+
+    String generate() throws UnsupportedCommandsException {
+        final String typeName = typeName(type.asType(), type);
+        final StringBuilder body = new StringBuilder();
+
+        final List<AnnotationMirror> groups = new ArrayList<>();
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            final AnnotationMirror group = findInheritedAnnotation((TypeElement) current);
+            if (group != null)
+                groups.add(group);
+        }
+        Collections.reverse(groups);
+        final StringBuilder groupsBody = new StringBuilder();
+        for (int i = 0; i < groups.size(); i++) {
+            appendGroup(groupsBody, groups.get(i), i == groups.size() - 1);
+        }
+        if (groups.isEmpty())
+            groupsBody.append(INDENT).append("populateCommands(instance, parser, registry);\n");
+
+        for (TypeElement declaringType : classHierarchy()) {
+            for (ExecutableElement method : ElementFilter.methodsIn(declaringType.getEnclosedElements())) {
+                final AnnotationMirror annotation = findAnnotation(method, CliCommandsProcessor.CLI_COMMAND);
+                if (annotation != null)
+                    appendCommand(body, declaringType, method, annotation);
+            }
+        }
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageElement.isUnnamed())
+            source.append("package ").append(packageElement.getQualifiedName()).append(";\n\n");
+        source.append("/**\n * Commands of {@link ").append(typeName).append("}, generated by ")
+                .append(CliCommandsProcessor.class.getName()).append(".\n */\n");
+        if (elements.getTypeElement(GENERATED) != null)
+            source.append('@').append(GENERATED).append("(\"").append(CliCommandsProcessor.class.getName())
+                    .append("\")\n");
+        source.append("public final class ").append(populatorSimpleName)
+                .append(" implements org.yah.cli.command.factory.CommandsPopulator<").append(typeName).append("> {\n\n")
+                .append("    @Override\n")
+                .append("    public void populate(").append(typeName).append(" instance,\n")
+                .append("                         org.yah.cli.command.factory.CommandAnnotationParser parser,\n")
+                .append("                         org.yah.cli.command.CommandsRegistry registry) {\n")
+                .append(groupsBody)
+                .append("    }\n\n")
+                .append("    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("    private static void populateCommands(").append(typeName).append(" instance,\n")
+                .append("                                         ")
+                .append("org.yah.cli.command.factory.CommandAnnotationParser parser,\n")
+                .append("                                         org.yah.cli.command.CommandsRegistry registry) {\n")
+                .append(body)
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * @param last true for the group of the class itself, populated lazily with its commands
+     */
+    private void appendGroup(StringBuilder body, AnnotationMirror group, boolean last) {
+        final Map<String, Object> values = values(group);
+        String name = trimToNull((String) values.get("name"));
+        if (name == null)
+            name = trimToNull((String) values.get("value"));
+        body.append(INDENT).append(last ? "" : "registry = ").append("parser.group(instance, registry, ")
+                .append(nullableLiteral(name))
+                .append(", ").append(nullableLiteral(trimToNull((String) values.get("description"))))
+                .append(", ").append(nullableLiteral(trimToNull((String) values.get("help"))));
+        if (last)
+            body.append(",\n").append(INDENT).append("        commands -> populateCommands(instance, parser, commands)");
+        body.append(");\n");
+    }
+
+    private void appendCommand(StringBuilder body, TypeElement declaringType, ExecutableElement method,
+                               AnnotationMirror annotation) throws UnsupportedCommandsException {
+        final Map<String, Object> values = values(annotation);
+        final String declaringTypeName = typeName(declaringType.asType(), method);
+        body.append(INDENT).append("registry.merge(parser.createCommand(").append(COMMAND_METHOD)
+                .append(".builder(").append(declaringTypeName).append(".class, ")
+                .append(literal(method.getSimpleName().toString())).append(")\n");
+
+        String name = (String) values.get("name");
+        if (name.isBlank())
+            name = (String) values.get("value");
+        appendCall(body, "withName", name.isBlank() ? null : literal(name));
+        final List<String> otherNames = new ArrayList<>();
+        for (Object otherName : (List<?>) values.get("otherNames")) {
+            otherNames.add(literal((String) ((AnnotationValue) otherName).getValue()));
+        }
+        appendCall(body, "withOtherNames", otherNames.isEmpty() ? null : String.join(", ", otherNames));
+        appendCall(body, "withDescription", literal(trimToNull((String) values.get("description"))));
+        appendCall(body, "withHelp", literal(trimToNull((String) values.get("help"))));
+        appendCall(body, "withTimeout", literal(trimToNull((String) values.get("timeout"))));
+        final TypeMirror completerFactory = (TypeMirror) values.get("completerFactory");
+        if (!isType(completerFactory, DEFAULT_COMPLETER_FACTORY))
+            appendCall(body, "withCompleterFactory", newInstance(completerFactory, method));
+
+        final List<String> parameterTypes = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            final String parameterType = typeName(parameter.asType(), parameter);
+            parameterTypes.add(parameterType);
+            body.append(INDENT).append("        .withParameter(").append(COMMAND_METHOD).append(".parameter(")
+                    .append(parameterType).append(".class, ")
+                    .append(literal(parameter.getSimpleName().toString())).append(")");
+            appendParameter(body, parameter);
+            body.append(")\n");
+        }
+
+        appendCall(body, "withInvoker", invoker(declaringType, declaringTypeName, method, parameterTypes));
+        body.append(INDENT).append("        .build()));\n");
+    }
+
+    private void appendParameter(StringBuilder body, VariableElement parameter) throws UnsupportedCommandsException {
+        final AnnotationMirror annotation = findAnnotation(parameter, CLI_PARAMETER);
+        boolean parsed = true;
+        if (annotation != null) {
+            final Map<String, Object> values = values(annotation);
+            appendParameterCall(body, "withDescription", literal(trimToNull((String) values.get("description"))));
+            final String defaultValue = (String) values.get("defaultValue");
+            appendParameterCall(body, "withDefaultValue", defaultValue.isBlank() ? null : literal(defaultValue));
+            final TypeMirror supplier = (TypeMirror) values.get("supplier");
+            final TypeMirror parser = (TypeMirror) values.get("parser");
+            if (!isType(supplier, DEFAULT_PARAMETER_SUPPLIER)) {
+                appendParameterCall(body, "withSupplier", newInstance(supplier, parameter));
+                parsed = false;
+            } else if (!isType(parser, DEFAULT_PARAMETER_PARSER)) {
+                appendParameterCall(body, "withParser", newInstance(parser, parameter));
+                parsed = false;
+            }
+            final Map<String, Object> completer = values((AnnotationMirror) values.get("completer"));
+            final TypeMirror completerFactory = (TypeMirror) completer.get("factory");
+            final List<?> completerValues = (List<?>) completer.get("value");
+            if (!isType(completerFactory, DEFAULT_PARAMETER_COMPLETER)) {
+                appendParameterCall(body, "withCompleter", newInstance(completerFactory, parameter) + ".get()");
+            } else if (!completerValues.isEmpty()) {
+                final List<String> literals = new ArrayList<>();
+                for (Object value : completerValues) {
+                    literals.add(literal((String) ((AnnotationValue) value).getValue()));
+                }
+                appendParameterCall(body, "withCompleter",
+                        "new " + STRINGS_COMPLETER + "(" + String.join(", ", literals) + ")");
+            }
+        }
+        if (parsed)
+            appendParameterCall(body, "withTypeParser", typeParser(parameter.asType()));
+    }
+
+    private String invoker(TypeElement declaringType, String declaringTypeName, ExecutableElement method,
+                           List<String> parameterTypes) {
+        final Set<Modifier> modifiers = method.getModifiers();
+        final boolean direct = !modifiers.contains(Modifier.PRIVATE)
+                && (modifiers.contains(Modifier.PUBLIC) || isSamePackage(declaringType));
+        if (!direct) {
+            final StringBuilder sb = new StringBuilder(COMMAND_METHOD).append(".methodInvoker(instance, ")
+                    .append(declaringTypeName).append(".class, ").append(literal(method.getSimpleName().toString()));
+            for (String parameterType : parameterTypes) {
+                sb.append(", ").append(parameterType).append(".class");
+            }
+            return sb.append(")").toString();
+        }
+
+        final boolean output = isPipelineOutput(method.getReturnType());
+        final StringBuilder sb = new StringBuilder("arguments -> ");
+        if (output)
+            sb.append(PIPELINE).append(".output(");
+        sb.append(modifiers.contains(Modifier.STATIC) ? declaringTypeName : "instance")
+                .append('.').append(method.getSimpleName()).append('(');
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            if (i > 0)
+                sb.append(", ");
+            appendArgument(sb, parameterTypes.get(i), i);
+        }
+        sb.append(')');
+        if (output)
+            sb.append(')');
+        return sb.toString();
+    }
+
+    /**
+     * @return true if the method result is written to the next pipeline stage, as by {@code Pipeline.isOutputType}
+     */
+    private boolean isPipelineOutput(TypeMirror returnType) {
+        final TypeMirror erased = types.erasure(returnType);
+        if (erased.getKind() != TypeKind.DECLARED)
+            return false;
+        final TypeElement element = (TypeElement) ((DeclaredType) erased).asElement();
+        return PIPELINE_OUTPUTS.contains(element.getQualifiedName().toString());
+    }
+
+    /**
+     * Append the argument expression of a parameter, int, long and double arguments are not boxed.
+     */
+    private static void appendArgument(StringBuilder sb, String parameterType, int index) {
+        switch (parameterType) {
+            case "int":
+                sb.append("arguments.getInt(").append(index).append(')');
+                break;
+            case "long":
+                sb.append("arguments.getLong(").append(index).append(')');
+                break;
+            case "double":
+                sb.append("arguments.getDouble(").append(index).append(')');
+                break;
+            default:
+                sb.append('(').append(parameterType).append(") arguments.get(").append(index).append(')');
+        }
+    }
+
+    /**
+     * @return the parser expression of the default parsers registry for this type, resolved in the same order
+     * (primitives, java objects, String constructor, valueOf(String), parse(CharSequence), enums), null if none
+     */
+    private String typeParser(TypeMirror type) {
+        final TypeMirror erased = types.erasure(type);
+        switch (erased.getKind()) {
+            case BYTE:
+                return valueParser("java.lang.Byte::parseByte");
+            case SHORT:
+                return valueParser("java.lang.Short::parseShort");
+            case INT:
+                return PARAMETER_PARSERS + ".intParser()";
+            case LONG:
+                return PARAMETER_PARSERS + ".longParser()";
+            case FLOAT:
+                return valueParser("java.lang.Float::parseFloat");
+            case DOUBLE:
+                return PARAMETER_PARSERS + ".doubleParser()";
+            case BOOLEAN:
+                return valueParser("java.lang.Boolean::parseBoolean");
+            case CHAR:
+                return valueParser("s -> s.charAt(0)");
+            case DECLARED:
+                return declaredTypeParser((TypeElement) ((DeclaredType) erased).asElement());
+            default:
+                return null;
+        }
+    }
+
+    private String declaredTypeParser(TypeElement element) {
+        final String name = element.getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.Byte":
+                return nullableValueParser("java.lang.Byte::parseByte");
+            case "java.lang.Short":
+                return nullableValueParser("java.lang.Short::parseShort");
+            case "java.lang.Integer":
+                return nullableParser(PARAMETER_PARSERS + ".intParser()");
+            case "java.lang.Long":
+                return nullableParser(PARAMETER_PARSERS + ".longParser()");
+            case "java.lang.Float":
+                return nullableValueParser("java.lang.Float::parseFloat");
+            case "java.lang.Double":
+                return nullableParser(PARAMETER_PARSERS + ".doubleParser()");
+            case "java.lang.Boolean":
+                return nullableValueParser("java.lang.Boolean::parseBoolean");
+            case "java.lang.Character":
+                return nullableValueParser("s -> s.charAt(0)");
+            case "java.lang.String":
+                return PARAMETER_PARSERS + ".passthrough()";
+            case "java.lang.CharSequence":
+                return PARAMETER_PARSERS + ".passthroughView()";
+            case "java.io.File":
+                return nullableValueParser("java.io.File::new");
+            case "java.nio.file.Path":
+                return nullableValueParser("java.nio.file.Path::of");
+        }
+        if (!isAccessible(element))
+            return null;
+        if (element.getKind() == ElementKind.CLASS && hasPublicStringConstructor(element))
+            return PARAMETER_PARSERS + ".objectFromStringParser(" + name + ".class, " + name + "::new)";
+        if (element.getKind() != ElementKind.ENUM) {
+            for (String[] factory : STRING_FACTORIES) {
+                if (hasPublicStaticFactory(element, factory[0], factory[1]))
+                    return PARAMETER_PARSERS + ".objectFromStringParser(" + name + ".class, " + name + "::"
+                            + factory[0] + ")";
+            }
+        }
+        if (element.getKind() == ElementKind.ENUM)
+            return PARAMETER_PARSERS + ".enumParser(" + name + ".class)";
+        return null;
+    }
+
+    private boolean hasPublicStaticFactory(TypeElement element, String methodName, String parameterType) {
+        for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+            final Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PUBLIC) && modifiers.contains(Modifier.STATIC)
+                    && method.getSimpleName().contentEquals(methodName)
+                    && method.getParameters().size() == 1
+                    && isType(method.getParameters().get(0).asType(), parameterType)
+                    && types.isAssignable(types.erasure(method.getReturnType()), types.erasure(element.asType())))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean hasPublicStringConstructor(TypeElement element) {
+        if (element.getModifiers().contains(Modifier.ABSTRACT) || isInnerClass(element))
+            return false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)
+                    && constructor.getParameters().size() == 1
+                    && isType(constructor.getParameters().get(0).asType(), "java.lang.String"))
+                return true;
+        }
+        return false;
+    }
+
+    private static String valueParser(String function) {
+        return PARAMETER_PARSERS + ".valueParser(" + function + ")";
+    }
+
+    private static String nullableParser(String parser) {
+        return PARAMETER_PARSERS + ".nullableParser(" + parser + ")";
+    }
+
+    private static String nullableValueParser(String function) {
+        return PARAMETER_PARSERS + ".nullableValueParser(" + function + ")";
+    }
+
+    /**
+     * @return a no arg constructor call of this type
+     */
+    private String newInstance(TypeMirror type, Element element) throws UnsupportedCommandsException {
+        final String typeName = typeName(type, element);
+        final TypeElement typeElement = (TypeElement) ((DeclaredType) types.erasure(type)).asElement();
+        if (typeElement.getModifiers().contains(Modifier.ABSTRACT) || isInnerClass(typeElement))
+            throw new UnsupportedCommandsException(typeName + " can not be instantiated", element);
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && isAccessible(constructor.getModifiers(), typeElement))
+                return "new " + typeName + "()";
+        }
+        throw new UnsupportedCommandsException(typeName + " has no accessible no arg constructor", element);
+    }
+
+    /**
+     * @return the class, its interfaces, its super class, its interfaces ... (excluding Object)
+     */
+    private Set<TypeElement> classHierarchy() {
+        final Set<TypeElement> hierarchy = new LinkedHashSet<>();
+        TypeElement current = type;
+        while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+            hierarchy.add(current);
+            for (TypeMirror anInterface : current.getInterfaces()) {
+                hierarchy.add((TypeElement) ((DeclaredType) anInterface).asElement());
+            }
+            final TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return hierarchy;
+    }
+
+    /**
+     * @return the <code>@CliCommands</code> annotation of this class or of its super classes (it is inherited)
+     */
+    private static AnnotationMirror findInheritedAnnotation(TypeElement element) {
+        TypeElement current = element;
+        while (current != null) {
+            final AnnotationMirror annotation = findAnnotation(current, CLI_COMMANDS);
+            if (annotation != null)
+                return annotation;
+            final TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return null;
+    }
+
+    static AnnotationMirror findAnnotation(Element element, String annotationType) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            final TypeElement annotationElement = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationElement.getQualifiedName().contentEquals(annotationType))
+                return annotation;
+        }
+        return null;
+    }
+
+    private Map<String, Object> values(AnnotationMirror annotation) {
+        final Map<String, Object> values = new HashMap<>();
+        elements.getElementValuesWithDefaults(annotation)
+                .forEach((method, value) -> values.put(method.getSimpleName().toString(), value.getValue()));
+        return values;
+    }
+
+    /**
+     * @return the erased type name usable in a cast or a class literal from the populator package
+     */
+    private String typeName(TypeMirror type, Element element) throws UnsupportedCommandsException {
+        final TypeMirror erased = types.erasure(type);
+        if (erased.getKind().isPrimitive())
+            return erased.toString();
+        if (erased.getKind() == TypeKind.ARRAY)
+            return typeName(((ArrayType) erased).getComponentType(), element) + "[]";
+        if (erased.getKind() == TypeKind.DECLARED) {
+            final TypeElement typeElement = (TypeElement) ((DeclaredType) erased).asElement();
+            if (!isAccessible(typeElement))
+                throw new UnsupportedCommandsException(typeElement.getQualifiedName() + " is not accessible from "
+                        + populatorSimpleName, element);
+            return typeElement.getQualifiedName().toString();
+        }
+        throw new UnsupportedCommandsException("unsupported type " + type, element);
+    }
+
+    private boolean isAccessible(TypeElement element) {
+        Element current = element;
+        while (current instanceof TypeElement) {
+            if (!isAccessible(current.getModifiers(), (TypeElement) current))
+                return false;
+            current = current.getEnclosingElement();
+        }
+        return current instanceof PackageElement;
+    }
+
+    private boolean isAccessible(Set<Modifier> modifiers, TypeElement element) {
+        if (modifiers.contains(Modifier.PRIVATE))
+            return false;
+        return modifiers.contains(Modifier.PUBLIC) || isSamePackage(element);
+    }
+
+    private boolean isSamePackage(TypeElement element) {
+        return elements.getPackageOf(element).equals(packageElement);
+    }
+
+    private static boolean isInnerClass(TypeElement element) {
+        return element.getNestingKind() == NestingKind.MEMBER && !element.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private static boolean isType(TypeMirror type, String qualifiedName) {
+        return type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement())
+                .getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    private String literal(String value) {
+        return value == null ? null : elements.getConstantExpression(value);
+    }
+
+    private String nullableLiteral(String value) {
+        return value == null ? "null" : literal(value);
+    }
+
+    private static void appendCall(StringBuilder body, String method, String arguments) {
+        if (arguments != null)
+            body.append(INDENT).append("        .").append(method).append('(').append(arguments).append(")\n");
+    }
+
+    private static void appendParameterCall(StringBuilder body, String method, String arguments) {
+        if (arguments != null)
+            body.append('\n').append(INDENT).append("                .").append(method).append('(')
+                    .append(arguments).append(')');
+    }
+
+    private static String trimToNull(String s) {
+        if (s == null)
+            return null;
+        s = s.trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    static final class UnsupportedCommandsException extends Exception {
+        private final transient Element element;
+
+        UnsupportedCommandsException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+
+        Element getElement() {
+            return element;
+        }
+    }
+
+}
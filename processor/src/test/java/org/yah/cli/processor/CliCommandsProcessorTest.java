@@ -0,0 +1,255 @@
+package org.yah.cli.processor;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.Parser.ParseContext;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.yah.cli.ParsedCommandLine;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.factory.CommandAnnotationParser;
+import org.yah.cli.command.factory.CommandsPopulator;
+import org.yah.cli.command.parameter.CommandParameter;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compile the fixture classes with and without the processor, and compare the commands registered by the generated
+ * populators with the commands parsed by reflection.
+ */
+public class CliCommandsProcessorTest {
+
+    private static final String FIXTURE = "org.yah.cli.fixture.";
+
+    @ClassRule
+    public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+    private static Terminal terminal;
+    private static LineReader reader;
+    private static List<Diagnostic<? extends JavaFileObject>> diagnostics;
+    private static URLClassLoader generatedLoader;
+    private static URLClassLoader reflectionLoader;
+
+    @BeforeClass
+    public static void compileFixture() throws Exception {
+        final Path generated = FOLDER.newFolder("generated").toPath();
+        final Path reflection = FOLDER.newFolder("reflection").toPath();
+        diagnostics = compile(generated, true);
+        compile(reflection, false);
+        generatedLoader = new URLClassLoader(new URL[]{generated.toUri().toURL()},
+                CliCommandsProcessorTest.class.getClassLoader());
+        reflectionLoader = new URLClassLoader(new URL[]{reflection.toUri().toURL()},
+                CliCommandsProcessorTest.class.getClassLoader());
+
+        terminal = new DumbTerminal("test", Terminal.TYPE_DUMB, InputStream.nullInputStream(),
+                OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        reader = LineReaderBuilder.builder().terminal(terminal).build();
+    }
+
+    @AfterClass
+    public static void close() throws IOException {
+        generatedLoader.close();
+        reflectionLoader.close();
+        terminal.close();
+    }
+
+    @Test
+    public void generatesPopulators() throws Exception {
+        for (String name : new String[]{"Sub", "Timed", "Timed$Nested"}) {
+            final Class<?> type = generatedLoader.loadClass(FIXTURE + name);
+            final Class<?> populator = generatedLoader.loadClass(CommandsPopulator.populatorName(type));
+            assertTrue(CommandsPopulator.class.isAssignableFrom(populator));
+            assertNoPopulator(reflectionLoader.loadClass(FIXTURE + name));
+        }
+        assertTrue(CommandsPopulator.class.isAssignableFrom(
+                generatedLoader.loadClass(FIXTURE + "base.Base_CliCommands")));
+        // an interface is populated by its implementations
+        assertNoPopulator(generatedLoader.loadClass(FIXTURE + "Iface"));
+    }
+
+    @Test
+    public void inaccessibleTypesAreParsedByReflection() throws Exception {
+        assertNoPopulator(generatedLoader.loadClass(FIXTURE + "Hidden"));
+        final List<String> notes = diagnostics.stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.NOTE)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+        assertThat(notes.toString(), containsString("Commands of " + FIXTURE + "Hidden will be parsed by reflection"));
+        assertSameCommands("Hidden", "hidden ON", "hidden OFF");
+    }
+
+    @Test
+    public void populatesInheritedCommands() throws Exception {
+        assertSameCommands("Sub",
+                "grp base-cmd 3", "grp base-cmd 3 4", "grp prot x", "grp pkg y",
+                "grp stat 1 2.5 c d 3 4 5.5 null", "grp stat 1 2.5 c d 3 4 5.5 true",
+                "grp a b c GREEN", "grp generic hello x", "grp arr 1,2,3", "grp wf z", "grp with-factory z",
+                "grp secret 12", "grp boom", "grp iface-cmd /tmp null",
+                "grp factories PT5S 2026-10-18 v p RED", "grp factories null null null null null",
+                "grp factories PTX 2026-10-18 v p RED", "grp prim-defaults \"\" \"\" 9",
+                "grp prim-defaults 3 1e3 -12", "grp prim-defaults x 1 2");
+    }
+
+    @Test
+    public void populatesGroupsAndTimeouts() throws Exception {
+        assertSameCommands("Timed", "timed slow 3", "timed fast");
+        assertSameCommands("Timed$Nested", "timed nested-command a", "timed nested b");
+    }
+
+    private static void assertNoPopulator(Class<?> type) {
+        try {
+            type.getClassLoader().loadClass(CommandsPopulator.populatorName(type));
+            fail("No populator expected for " + type.getName());
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Parse the fixture class with each class loader, check the commands and the output of the lines.
+     */
+    private static void assertSameCommands(String name, String... lines) throws Exception {
+        final String expected = run(reflectionLoader, name, lines);
+        final String actual = run(generatedLoader, name, lines);
+        assertThat(actual, is(expected));
+    }
+
+    private static String run(ClassLoader classLoader, String name, String... lines) throws Exception {
+        final Object instance = classLoader.loadClass(FIXTURE + name).getDeclaredConstructor().newInstance();
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        new CommandAnnotationParser(terminal, null, null, null).parse(instance, registry);
+
+        final StringBuilder sb = new StringBuilder();
+        dump(registry, "", sb);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final PrintStream out = System.out;
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            for (String line : lines) {
+                final ParsedCommandLine commandLine = new ParsedCommandLine((MappedParsedLine) new CliParser()
+                        .parse(line, line.length(), ParseContext.ACCEPT_LINE));
+                final Command command = registry.resolve(commandLine)
+                        .orElseThrow(() -> new AssertionError("Unknown command " + line + " in\n" + sb));
+                try {
+                    command.getAction().run(command, commandLine);
+                } catch (Exception e) {
+                    System.out.println("error " + e);
+                }
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return sb.append(output.toString(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static void dump(CommandsRegistry registry, String indent, StringBuilder sb) {
+        for (Map.Entry<String, Command> entry : new TreeMap<>(registry.commandsMap()).entrySet()) {
+            final Command command = entry.getValue();
+            sb.append(indent).append(entry.getKey())
+                    .append(' ').append(command.getQualifiedName())
+                    .append(' ').append(new TreeSet<>(command.getNames()))
+                    .append(" d=").append(command.getDescription())
+                    .append(" h=").append(command.getHelp())
+                    .append(" t=").append(command.getTimeout())
+                    .append(" action=").append(command.hasAction());
+            if (command.getCompleterFactory() != null) {
+                final List<Object> nodes = new ArrayList<>();
+                command.getCompleterFactory().create(nodes);
+                sb.append(" nodes=").append(nodes.size());
+            }
+            sb.append('\n');
+            for (CommandParameter parameter : command.getParameters()) {
+                final List<Candidate> candidates = new ArrayList<>();
+                parameter.getCompleter().complete(reader, new CliParser().parse("", 0, ParseContext.COMPLETE),
+                        candidates);
+                final List<String> values = candidates.stream().map(Candidate::value).sorted()
+                        .collect(Collectors.toList());
+                sb.append(indent).append("  p").append(parameter.getIndex())
+                        .append(' ').append(parameter.getName())
+                        .append(" d=").append(parameter.getDescription())
+                        .append(' ').append(parameter.getCompleter().getClass().getSimpleName())
+                        .append(' ').append(values.size() > 10 ? values.size() : values)
+                        .append('\n');
+            }
+            dump(command.getSubCommands(), indent + "    ", sb);
+        }
+    }
+
+    private static List<Diagnostic<? extends JavaFileObject>> compile(Path output, boolean processed)
+            throws IOException, URISyntaxException {
+        final Path sources = Path.of(CliCommandsProcessorTest.class.getResource("/fixture").toURI());
+        final List<File> files;
+        try (Stream<Path> paths = Files.walk(sources)) {
+            files = paths.filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(collector, null,
+                StandardCharsets.UTF_8)) {
+            final List<String> options = new ArrayList<>(Arrays.asList("--release", "11", "-parameters",
+                    "-classpath", classPath(), "-d", output.toString(), "-s", output.toString()));
+            if (!processed)
+                options.add("-proc:none");
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, collector, options,
+                    null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(processed ? List.of(new CliCommandsProcessor()) : Collections.emptyList());
+            if (!task.call())
+                fail("Fixture compilation failed: " + collector.getDiagnostics());
+        }
+        return collector.getDiagnostics();
+    }
+
+    /**
+     * @return the class path of java-cli and its dependencies, from the locations of their classes (the test class
+     * path may be a manifest only jar)
+     */
+    private static String classPath() throws URISyntaxException {
+        final List<String> entries = new ArrayList<>();
+        for (Class<?> type : new Class<?>[]{CommandAnnotationParser.class, Terminal.class}) {
+            entries.add(Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+}
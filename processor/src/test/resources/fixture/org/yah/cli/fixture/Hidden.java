@@ -0,0 +1,14 @@
+package org.yah.cli.fixture;
+
+import org.yah.cli.command.annotation.CliCommand;
+
+public class Hidden {
+
+    private enum Mode {ON, OFF}
+
+    @CliCommand
+    public void hidden(Mode mode) {
+        System.out.println("hidden " + mode);
+    }
+
+}
@@ -0,0 +1,15 @@
+package org.yah.cli.fixture;
+
+import org.yah.cli.command.annotation.CliCommand;
+
+import java.io.File;
+import java.nio.file.Path;
+
+public interface Iface {
+
+    @CliCommand
+    default void ifaceCmd(Path path, File file) {
+        System.out.println("iface " + path + " " + file);
+    }
+
+}
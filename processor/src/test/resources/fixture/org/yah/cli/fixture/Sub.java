@@ -0,0 +1,162 @@
+package org.yah.cli.fixture;
+
+import org.jline.builtins.Completers.TreeCompleter;
+import org.jline.reader.Completer;
+import org.jline.reader.impl.completer.StringsCompleter;
+import org.jline.terminal.Terminal;
+import org.yah.cli.AnnotatedCli;
+import org.yah.cli.CommandLine;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.annotation.CliCommand;
+import org.yah.cli.command.annotation.CliParameter;
+import org.yah.cli.command.annotation.ParameterCompleter;
+import org.yah.cli.command.factory.ParameterSupplier;
+import org.yah.cli.command.parameter.CommandParameter;
+import org.yah.cli.command.parameter.ParameterParser;
+import org.yah.cli.command.parameter.ParsedParameter;
+import org.yah.cli.fixture.base.Base;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class Sub extends Base implements Iface, AnnotatedCli {
+
+    public enum Color {RED, GREEN}
+
+    public static class Pt {
+        private final String s;
+
+        public Pt(String s) {
+            this.s = s;
+        }
+
+        @Override
+        public String toString() {
+            return "Pt" + s;
+        }
+    }
+
+    public static class V {
+        private final String s;
+
+        private V(String s) {
+            this.s = s;
+        }
+
+        public static V valueOf(String s) {
+            return new V(s);
+        }
+
+        @Override
+        public String toString() {
+            return "V" + s;
+        }
+    }
+
+    public static class P {
+        private final CharSequence s;
+
+        private P(CharSequence s) {
+            this.s = s;
+        }
+
+        public static P parse(CharSequence s) {
+            return new P(s);
+        }
+
+        @Override
+        public String toString() {
+            return "P" + s;
+        }
+    }
+
+    public static class Supplied implements ParameterSupplier {
+        @Override
+        public Object get(Command command, List<ParsedParameter> parsedParameters) {
+            return "supplied" + parsedParameters.size();
+        }
+    }
+
+    public static class ArrayParser implements ParameterParser {
+        @Override
+        public Object parse(CommandParameter parameter, CommandLine commandLine) {
+            return commandLine.flush().split(",");
+        }
+    }
+
+    public static class Factory implements Command.CompleterFactory {
+        @Override
+        public void create(List<Object> nodes) {
+            nodes.add(TreeCompleter.node("x", "y"));
+        }
+    }
+
+    public static class ParameterCompleterSupplier implements Supplier<Completer> {
+        @Override
+        public Completer get() {
+            return new StringsCompleter("c1");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "sub";
+    }
+
+    @CliCommand
+    public void primDefaults(@CliParameter(defaultValue = "7") int n, @CliParameter(defaultValue = "2.5") double d,
+                             long l) {
+        System.out.println("prim " + n + " " + d + " " + l);
+    }
+
+    @CliCommand
+    public void factories(Duration d, LocalDate ld, V v, P p, Color c) {
+        System.out.println("factories " + d + " " + ld + " " + v + " " + p + " " + c);
+    }
+
+    @CliCommand
+    static void stat(long l, double d, char c, Character cc, byte b, short s, float f, Boolean bo) {
+        System.out.println("stat " + l + " " + d + " " + c + " " + cc + " " + b + " " + s + " " + f + " " + bo);
+    }
+
+    @CliCommand("a.b.c")
+    void qualified(Color e, Terminal t, Command cmd, @CliParameter(supplier = Supplied.class) String sup) {
+        System.out.println("qualified " + e + " " + (t != null) + " " + cmd.getQualifiedName() + " " + sup);
+    }
+
+    @CliCommand
+    public <T extends CharSequence> void generic(T t, Pt pt) {
+        System.out.println("generic " + t + " " + pt);
+    }
+
+    @CliCommand
+    void arr(@CliParameter(parser = ArrayParser.class, description = "an array") String[] a) {
+        System.out.println("arr " + Arrays.toString(a));
+    }
+
+    @CliCommand(completerFactory = Factory.class, otherNames = {"wf"})
+    public void withFactory(@CliParameter(completer = @ParameterCompleter(factory = ParameterCompleterSupplier.class))
+                                    String x) {
+        System.out.println("wf " + x);
+    }
+
+    @CliCommand(name = "tab\t\"quoted\"", help = "h\nelp")
+    public void weird() {
+        System.out.println("weird");
+    }
+
+    @CliCommand
+    private void secret(int n) {
+        System.out.println("secret " + n);
+    }
+
+    @CliCommand
+    public void boom() throws IOException {
+        throw new IOException("boom");
+    }
+
+}
@@ -0,0 +1,29 @@
+package org.yah.cli.fixture;
+
+import org.yah.cli.ExecutionContext;
+import org.yah.cli.command.annotation.CliCommand;
+import org.yah.cli.command.annotation.CliCommands;
+
+import java.util.stream.Stream;
+
+@CliCommands(value = "timed", help = "Timed commands")
+public class Timed {
+
+    @CliCommand(timeout = " 250ms ")
+    public void slow(ExecutionContext context, int n) {
+        System.out.println("slow " + (context != null) + " " + n);
+    }
+
+    @CliCommand
+    public Stream<String> fast() {
+        return Stream.of("a", "b");
+    }
+
+    public static class Nested {
+        @CliCommand(otherNames = "nested")
+        public void nestedCommand(String s) {
+            System.out.println("nested " + s);
+        }
+    }
+
+}
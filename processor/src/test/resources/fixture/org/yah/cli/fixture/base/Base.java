@@ -0,0 +1,25 @@
+package org.yah.cli.fixture.base;
+
+import org.yah.cli.command.annotation.CliCommand;
+import org.yah.cli.command.annotation.CliCommands;
+import org.yah.cli.command.annotation.CliParameter;
+
+@CliCommands(value = "grp", description = " base group ")
+public class Base {
+
+    @CliCommand(description = " base ")
+    public void baseCmd(int n, @CliParameter(defaultValue = "5") Integer m) {
+        System.out.println("baseCmd " + n + " " + m);
+    }
+
+    @CliCommand
+    protected void prot(String s) {
+        System.out.println("prot " + s);
+    }
+
+    @CliCommand
+    void pkg(String s) {
+        System.out.println("pkg " + s);
+    }
+
+}
@@ -6,10 +6,13 @@ import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 import org.yah.cli.command.CommandsRegistry;
 import org.yah.cli.command.help.EmptyResourceBundle;
+import org.yah.cli.history.HistoryExpander;
+import org.yah.cli.history.LogHistory;
 
 import java.nio.file.Path;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
 
 public interface Cli extends AutoCloseable {
 
@@ -21,8 +24,15 @@ public interface Cli extends AutoCloseable {
         builder.system(true).jansi(true);
     }
 
+    /**
+     * Configure the line reader, with a {@link LogHistory} stored in <code>.&lt;name&gt;-history</code>, shared if
+     * {@link #isHistoryShared()}, and its indexed {@link HistoryExpander} by default.
+     */
     default void configure(LineReaderBuilder builder) {
-        builder.variable(LineReader.HISTORY_FILE, Path.of("." + name().toLowerCase() + "-history"));
+        builder.variable(LineReader.HISTORY_FILE, Path.of("." + name().toLowerCase() + "-history"))
+                .variable(LogHistory.HISTORY_SHARED, isHistoryShared())
+                .history(new LogHistory())
+                .expander(new HistoryExpander());
     }
 
     void createCommands(Terminal terminal, CommandsRegistry registry);
@@ -35,6 +45,31 @@ public interface Cli extends AutoCloseable {
         return true;
     }
 
+    /**
+     * @return true to resolve commands from a unique prefix of their name (i.e. <code>sta</code> for
+     * <code>status</code>)
+     */
+    default boolean isAbbreviationAllowed() {
+        return false;
+    }
+
+    /**
+     * @return true to share the history file with the other sessions running this application concurrently: the
+     * lines of each session are appended to the file and read by the others, see {@link LogHistory}
+     */
+    default boolean isHistoryShared() {
+        return false;
+    }
+
+    /**
+     * @return the executor running the background jobs (commands followed by <code>&</code>), shut down when the
+     * application exits. A fixed pool of one thread per available processor by default.
+     * @see JobExecutors
+     */
+    default ExecutorService createJobsExecutor() {
+        return JobExecutors.fixed(Runtime.getRuntime().availableProcessors());
+    }
+
     default ResourceBundle commandsResources() {
         try {
             return ResourceBundle.getBundle(getClass().getName());
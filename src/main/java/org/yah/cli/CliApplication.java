@@ -1,7 +1,7 @@
 package org.yah.cli;
 
-import org.jline.builtins.Completers.TreeCompleter;
 import org.jline.reader.EndOfFileException;
+import org.jline.reader.History;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
 import org.jline.reader.UserInterruptException;
@@ -9,12 +9,15 @@ import org.jline.reader.impl.history.DefaultHistory;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsCompleter;
 import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.help.AproposCommand;
 import org.yah.cli.command.help.HelpCommand;
 import org.yah.cli.parser.CliParser;
 import org.yah.cli.parser.MappedParsedLine;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -37,27 +40,36 @@ public final class CliApplication implements AutoCloseable {
 
     private final Terminal terminal;
     private final LineReader lineReader;
-    private final TreeCompleter completer;
+    private final CommandsCompleter completer;
 
     private boolean exitRequested;
 
+    // the System.out replaced while running
+    private PrintStream systemOut;
+
     public CliApplication(CliFactory factory) throws Exception {
         cli = Objects.requireNonNull(factory.create());
         terminal = createTerminal();
-        executor = new CommandExecutor(terminal);
-        commands = createCommandRegistry();
-        completer = new TreeCompleter(commands.createtNodes());
+        executor = new CommandExecutor(terminal, cli.createJobsExecutor());
+        commands = new CommandsRegistry(cli.isStrict());
+        completer = new CommandsCompleter(commands);
+        createCommands();
         lineReader = createLineReader();
     }
 
     @Override
     public void close() {
         executor.shutdown();
+        if (systemOut != null)
+            System.setOut(systemOut);
+        final History history = lineReader.getHistory();
         try {
-            lineReader.getHistory().save();
+            history.save();
         } catch (IOException e) {
             System.err.println("Error saving history: " + e.getMessage());
         }
+        if (history instanceof AutoCloseable)
+            closeQuietly((AutoCloseable) history);
         closeQuietly(terminal);
         closeQuietly(cli);
     }
@@ -69,12 +81,16 @@ public final class CliApplication implements AutoCloseable {
         return builder.build();
     }
 
-    private CommandsRegistry createCommandRegistry() {
-        final CommandsRegistry commandsRegistry = new CommandsRegistry(cli.isStrict());
-        cli.createCommands(terminal, commandsRegistry);
-        commandsRegistry.merge(exitCommand());
-        commandsRegistry.merge(HelpCommand.create(commandsRegistry, terminal, cli.commandsResources()));
-        return commandsRegistry;
+    private void createCommands() {
+        final Terminal commandsTerminal = executor.getTerminal();
+        cli.createCommands(commandsTerminal, commands);
+        commands.merge(exitCommand());
+        commands.merge(JobCommands.create(executor, commandsTerminal));
+        commands.merge(TimeoutCommand.create(commands, cli.isAbbreviationAllowed(), completer));
+        commands.merge(StatsCommand.create(commandsTerminal));
+        commands.merge(HelpCommand.create(commands, commandsTerminal, cli.commandsResources(), completer));
+        commands.merge(AproposCommand.create(commands, commandsTerminal, cli.commandsResources()));
+        commands.freeze();
     }
 
     private Command exitCommand() {
@@ -98,19 +114,21 @@ public final class CliApplication implements AutoCloseable {
     }
 
     private void run() {
+        systemOut = System.out;
+        System.setOut(executor.jobsOutput(systemOut));
         String prompt = ansi().fgYellow().a(cli.name() + "$ ").reset().toString();
         while (!exitRequested) {
             try {
+                printFinishedJobs();
                 lineReader.readLine(prompt);
                 final MappedParsedLine parsedLine = (MappedParsedLine) lineReader.getParsedLine();
                 ParsedCommandLine commandLine = new ParsedCommandLine(parsedLine);
-                if (commandLine.hasNext()) {
-                    final Optional<Command> resolved = commands.resolve(commandLine);
-                    if (resolved.isPresent()) {
-                        executor.run(resolved.get(), commandLine).join();
-                    } else {
+                if (commandLine.hasNext() || commandLine.isPiped()) {
+                    final Optional<Command> resolved = commands.resolve(commandLine, cli.isAbbreviationAllowed());
+                    if (resolved.isPresent())
+                        execute(resolved.get(), commandLine);
+                    else
                         System.out.println("Unknown command");
-                    }
                 }
             } catch (UserInterruptException e) {
                 // ignore
@@ -120,6 +138,32 @@ public final class CliApplication implements AutoCloseable {
         }
     }
 
+    private void execute(Command command, ParsedCommandLine commandLine) {
+        final Pipeline pipeline;
+        try {
+            pipeline = Pipeline.resolve(command, commandLine, commands, cli.isAbbreviationAllowed());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (commandLine.isBackground()) {
+            final Job job = executor.submit(pipeline);
+            terminal.writer().println(JobCommands.format(job));
+        } else {
+            executor.run(pipeline).join();
+        }
+    }
+
+    private void printFinishedJobs() {
+        for (Job job : executor.pollFinishedJobs()) {
+            terminal.writer().print(JobCommands.format(job));
+            if (job.getBufferedOutput() > 0)
+                terminal.writer().print(" ('fg " + job.getId() + "' to print its output)");
+            terminal.writer().println();
+        }
+        terminal.writer().flush();
+    }
+
     private static void closeQuietly(AutoCloseable closeable) {
         if (closeable != null) {
             try {
@@ -0,0 +1,262 @@
+package org.yah.cli;
+
+import org.jline.reader.Parser;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yah.cli.CliApplication.CliFactory;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsCompleter;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.help.AproposCommand;
+import org.yah.cli.command.help.HelpCommand;
+import org.yah.cli.command.parameter.ParameterParseException;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Run the commands of a {@link Cli} from a script file or stdin, one command per line, without the interactive
+ * {@link org.jline.reader.LineReader} loop: no prompt, history, completion or executor thread.<br/>
+ * Lines are read through a buffered NIO channel reader, parsed by {@link CliParser} and executed in the calling
+ * thread, the same way as interactive lines. Blank lines and lines starting with '#' are ignored, <code>exit</code>
+ * stops the batch. A trailing <code>&</code> is ignored: there is no background job in a batch. Piped commands run
+ * concurrently, as a {@link Pipeline}.<br/>
+ * Commands get a dumb terminal writing to {@link System#out} and not reading stdin, flushed after each command, and
+ * an {@link ExecutionContext} cancelled by their timeout.
+ * Errors (unknown command, parse and execution errors) are reported on {@link System#err} with their line number,
+ * then the batch stops or continues according to its {@link ErrorPolicy}.
+ */
+public final class CliBatch implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CliBatch.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum ErrorPolicy {
+        /**
+         * Stop at the first error
+         */
+        STOP,
+        /**
+         * Report errors and execute the next lines
+         */
+        CONTINUE
+    }
+
+    /**
+     * Run the script file commands
+     */
+    public static Result start(CliFactory factory, Path script, ErrorPolicy errorPolicy) throws Exception {
+        Objects.requireNonNull(script);
+        try (CliBatch batch = new CliBatch(factory);
+             FileChannel channel = FileChannel.open(script, StandardOpenOption.READ)) {
+            return batch.run(channel, script.toString(), errorPolicy);
+        }
+    }
+
+    /**
+     * Run the commands read from input (i.e. {@link System#in}), input is not closed
+     */
+    public static Result start(CliFactory factory, InputStream input, ErrorPolicy errorPolicy) throws Exception {
+        Objects.requireNonNull(input);
+        try (CliBatch batch = new CliBatch(factory)) {
+            return batch.run(Channels.newChannel(input), "<stdin>", errorPolicy);
+        }
+    }
+
+    private final Cli cli;
+
+    private final Terminal terminal;
+    private final CommandsRegistry commands;
+    private final Parser parser = new CliParser();
+
+    private boolean exitRequested;
+
+    public CliBatch(CliFactory factory) throws Exception {
+        cli = Objects.requireNonNull(factory.create());
+        terminal = new DumbTerminal(cli.name(), Terminal.TYPE_DUMB, InputStream.nullInputStream(), System.out,
+                Charset.defaultCharset());
+        commands = new CommandsRegistry(cli.isStrict());
+        cli.createCommands(terminal, commands);
+        commands.merge(Command.cmd("exit")
+                .withOtherNames("quit")
+                .withDescription("Stop the batch")
+                .withAction(() -> exitRequested = true)
+                .build());
+        final CommandsCompleter completer = new CommandsCompleter(commands);
+        commands.merge(TimeoutCommand.create(commands, cli.isAbbreviationAllowed(), completer));
+        commands.merge(StatsCommand.create(terminal));
+        commands.merge(HelpCommand.create(commands, terminal, cli.commandsResources(), completer));
+        commands.merge(AproposCommand.create(commands, terminal, cli.commandsResources()));
+        commands.freeze();
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(terminal);
+        closeQuietly(cli);
+    }
+
+    /**
+     * Execute the commands read from channel, until its end, an <code>exit</code> command, or an error if
+     * errorPolicy is {@link ErrorPolicy#STOP}. The channel is not closed.
+     *
+     * @param source the channel name used in errors
+     */
+    public Result run(ReadableByteChannel channel, String source, ErrorPolicy errorPolicy) throws IOException {
+        Objects.requireNonNull(errorPolicy);
+        exitRequested = false;
+        final BufferedReader reader = new BufferedReader(Channels.newReader(channel, Charset.defaultCharset()),
+                BUFFER_SIZE);
+        final Result result = new Result();
+        String line;
+        while (!exitRequested && (line = reader.readLine()) != null) {
+            final int lineNumber = ++result.lines;
+            if (isIgnored(line))
+                continue;
+
+            final MappedParsedLine parsedLine;
+            try {
+                parsedLine = (MappedParsedLine) parser.parse(line, line.length(), Parser.ParseContext.ACCEPT_LINE);
+            } catch (RuntimeException e) {
+                if (error(result, source, lineNumber, e.getMessage(), null, errorPolicy))
+                    continue;
+                break;
+            }
+            if (!execute(parsedLine, result, source, lineNumber, errorPolicy))
+                break;
+        }
+        terminal.writer().flush();
+        return result;
+    }
+
+    /**
+     * @return false if the batch must stop
+     */
+    private boolean execute(MappedParsedLine parsedLine, Result result, String source, int lineNumber,
+                            ErrorPolicy errorPolicy) {
+        final ParsedCommandLine commandLine = new ParsedCommandLine(parsedLine);
+        if (!commandLine.hasNext())
+            return true;
+        final Optional<Command> resolved = commands.resolve(commandLine, cli.isAbbreviationAllowed());
+        if (resolved.isEmpty())
+            return error(result, source, lineNumber, "Unknown command", null, errorPolicy);
+
+        final Pipeline pipeline;
+        try {
+            pipeline = Pipeline.resolve(resolved.get(), commandLine, commands, cli.isAbbreviationAllowed());
+        } catch (IllegalArgumentException e) {
+            return error(result, source, lineNumber, e.getMessage(), null, errorPolicy);
+        }
+
+        final ExecutionContext context = new ExecutionContext();
+        context.bind();
+        try {
+            pipeline.run(context, null);
+            result.executed++;
+            return true;
+        } catch (Pipeline.StageException se) {
+            final Throwable e = se.getCause();
+            if (e instanceof ParameterParseException)
+                return error(result, source, lineNumber, e.getMessage(), e, errorPolicy);
+            if (context.getCancellation().orElse(null) == ExecutionContext.Cancellation.TIMEOUT)
+                return error(result, source, lineNumber, "Timed out", null, errorPolicy);
+            return error(result, source, lineNumber, String.format("Error executing '%s': %s",
+                    se.getStage().getCommand().getQualifiedName(), e.getMessage()), e, errorPolicy);
+        } finally {
+            context.unbind();
+            terminal.writer().flush();
+        }
+    }
+
+    private boolean error(Result result, String source, int lineNumber, String message, Throwable exception,
+                          ErrorPolicy errorPolicy) {
+        result.errors++;
+        final String error = source + ":" + lineNumber + ": " + message;
+        if (exception != null)
+            LOGGER.error(error, exception);
+        terminal.writer().flush();
+        System.err.println(error);
+        if (errorPolicy == ErrorPolicy.STOP) {
+            result.aborted = true;
+            return false;
+        }
+        return true;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            LOGGER.warn("Error closing {}", closeable, e);
+        }
+    }
+
+    private static boolean isIgnored(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c > ' ')
+                return c == '#';
+        }
+        return true;
+    }
+
+    public static final class Result {
+        private int lines;
+        private int executed;
+        private int errors;
+        private boolean aborted;
+
+        private Result() {
+        }
+
+        /**
+         * @return the number of lines read
+         */
+        public int getLines() {
+            return lines;
+        }
+
+        /**
+         * @return the number of commands executed without error
+         */
+        public int getExecuted() {
+            return executed;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return true if the batch was stopped by an error
+         */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "lines=" + lines +
+                    ", executed=" + executed +
+                    ", errors=" + errors +
+                    ", aborted=" + aborted +
+                    '}';
+        }
+    }
+
+}
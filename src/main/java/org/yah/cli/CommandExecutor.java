@@ -4,56 +4,279 @@ import org.fusesource.jansi.Ansi;
 import org.jline.terminal.Terminal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yah.cli.Job.State;
 import org.yah.cli.command.Command;
+import org.yah.cli.command.parameter.ParameterParseException;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Execute the commands, or {@link Pipeline}s of commands, in the foreground, one at a time, or as background {@link Job}s in the jobs executor.<br/>
+ * Ctrl-C cancels the {@link ExecutionContext} of the foreground job only, a command timeout cancels its own context.
+ * The output of the background jobs is buffered until they are brought to the foreground: commands must write to
+ * {@link #getTerminal()} or to a {@link #jobsOutput(PrintStream)} stream, installed as {@link System#out} by the
+ * application while it runs. A finished job is removed once reported if it has no output, and at most {@link #MAX_FINISHED_JOBS} finished jobs keep their output.
+ */
 public class CommandExecutor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutor.class);
 
-    private final Terminal terminal;
+    /**
+     * Maximum number of bytes kept in a background job output buffer
+     */
+    private static final int JOB_OUTPUT_CAPACITY = 1024 * 1024;
+
+    /**
+     * Maximum number of finished background jobs kept with their output, the oldest being removed first
+     */
+    private static final int MAX_FINISHED_JOBS = 16;
+
+    private final JobsTerminal terminal;
     private final ExecutorService executorService;
+    private final ExecutorService jobsExecutor;
+
+    // guarded by this
+    private final NavigableMap<Integer, Job> jobs = new TreeMap<>();
 
-    private Thread thread;
-    private boolean interrupted;
+    private volatile Job foreground;
 
     public CommandExecutor(Terminal terminal) {
-        this.terminal = terminal;
+        this(terminal, JobExecutors.fixed(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public CommandExecutor(Terminal terminal, ExecutorService jobsExecutor) {
+        this.terminal = new JobsTerminal(terminal);
+        this.jobsExecutor = Objects.requireNonNull(jobsExecutor);
         terminal.handle(Terminal.Signal.INT, s -> interrupt());
-        executorService = Executors.newSingleThreadExecutor(r -> thread = new Thread(r, "command-executor"));
+        executorService = Executors.newSingleThreadExecutor(r -> new Thread(r, "command-executor"));
+    }
+
+    /**
+     * @return the terminal to give to the commands, writing to the job output buffer from a background job
+     */
+    public Terminal getTerminal() {
+        return terminal;
     }
 
     public void shutdown() {
         executorService.shutdown();
+        jobsExecutor.shutdownNow();
         interrupt();
     }
 
+    /**
+     * @param out the stream written from the foreground
+     * @return a stream writing to out from the foreground, and to the job output buffer from a background job
+     */
+    public PrintStream jobsOutput(PrintStream out) {
+        return new PrintStream(new JobsTerminal.JobsOutputStream(out), true, terminal.encoding());
+    }
+
+    /**
+     * Run the command in the foreground
+     *
+     * @return the job completion
+     */
     public CompletableFuture<?> run(Command command, CommandLine commandLine) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                command.getAction().run(command, commandLine);
-            } catch (Exception e) {
-                if (interrupted) return;
+        return run(Pipeline.of(command, commandLine));
+    }
+
+    /**
+     * Run the pipeline in the foreground
+     *
+     * @return the job completion
+     */
+    public CompletableFuture<?> run(Pipeline pipeline) {
+        final Job job = new Job(0, pipeline.toString(), null, null);
+        foreground = job;
+        job.completion().thenRun(() -> clearForeground(job));
+        execute(executorService, job, pipeline);
+        return job.completion();
+    }
+
+    /**
+     * Run the command as a background job
+     */
+    public Job submit(Command command, CommandLine commandLine) {
+        return submit(Pipeline.of(command, commandLine));
+    }
+
+    /**
+     * Run the pipeline as a background job
+     */
+    public synchronized Job submit(Pipeline pipeline) {
+        final int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+        final Job.Output output = new Job.Output(terminal.getTerminal().output(), JOB_OUTPUT_CAPACITY);
+        final Job job = new Job(id, pipeline.toString(), output, terminal.encoding());
+        jobs.put(id, job);
+        removeFinishedJobs();
+        execute(jobsExecutor, job, pipeline);
+        return job;
+    }
+
+    public synchronized List<Job> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public synchronized Optional<Job> getJob(int id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * @return the most recently submitted job
+     */
+    public synchronized Optional<Job> getLastJob() {
+        return Optional.ofNullable(jobs.lastEntry()).map(Map.Entry::getValue);
+    }
+
+    /**
+     * Returned jobs without output are removed, the others are kept until brought to the foreground or killed.
+     *
+     * @return the finished jobs not yet returned by this method
+     */
+    public synchronized List<Job> pollFinishedJobs() {
+        final List<Job> res = new ArrayList<>();
+        final Iterator<Job> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            final Job job = iterator.next();
+            if (job.report()) {
+                res.add(job);
+                if (job.getBufferedOutput() == 0)
+                    iterator.remove();
+            }
+        }
+        removeFinishedJobs();
+        return res;
+    }
+
+    /**
+     * Bring a background job to the foreground: write its buffered output to the terminal, then its output
+     * directly, until it ends or is interrupted. The job is then removed.
+     */
+    public void foreground(Job job) throws IOException, InterruptedException {
+        final Job previous = foreground;
+        foreground = job;
+        try {
+            terminal.getTerminal().writer().flush();
+            job.attach();
+            job.await();
+        } finally {
+            foreground = previous;
+            remove(job);
+        }
+    }
+
+    /**
+     * Cancel a background job, or remove it if finished.
+     */
+    public void kill(Job job) {
+        if (job.getState().isFinished())
+            remove(job);
+        else
+            job.interrupt();
+    }
+
+    /**
+     * Cancel the foreground job
+     */
+    public void interrupt() {
+        final Job job = foreground;
+        if (job != null)
+            job.interrupt();
+    }
+
+    private synchronized void remove(Job job) {
+        jobs.remove(job.getId(), job);
+    }
+
+    /**
+     * Remove the oldest finished jobs, and their output, beyond {@link #MAX_FINISHED_JOBS}.
+     */
+    private synchronized void removeFinishedJobs() {
+        int finished = 0;
+        for (Job job : jobs.values()) {
+            if (job.getState().isFinished())
+                finished++;
+        }
+        final Iterator<Job> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (iterator.next().getState().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private synchronized void clearForeground(Job job) {
+        if (foreground == job)
+            foreground = null;
+    }
+
+    private void execute(ExecutorService executor, Job job, Pipeline pipeline) {
+        try {
+            executor.execute(() -> execute(job, pipeline));
+        } catch (RejectedExecutionException e) {
+            job.finish(State.KILLED);
+        }
+    }
+
+    private void execute(Job job, Pipeline pipeline) {
+        if (!job.start())
+            return;
+        final ExecutionContext context = job.getContext();
+        State state = State.FAILED;
+        try {
+            pipeline.run(context, job);
+            state = State.DONE;
+        } catch (Pipeline.StageException se) {
+            final Throwable e = se.getCause();
+            final Command command = se.getStage().getCommand();
+            if (e instanceof ParameterParseException) {
+                final ParameterParseException pe = (ParameterParseException) e;
+                LOGGER.error("Error parsing parameter {}", pe.getParameter().getName(), pe.getCause());
+                System.out.println(Ansi.ansi().a("Error parsing parameter ").fgBrightDefault()
+                        .a(pe.getParameter().getName()).reset().a(": ").a(pe.getCause().getMessage()));
+            } else if (!context.isCancelled()) {
                 LOGGER.error("Error executing command '{}'", command.getQualifiedName(), e);
                 final String message = new Ansi()
                         .fgRed()
-                        .format("Error executing '%s(%s)': %s", command.getQualifiedName(), commandLine, e.getMessage())
+                        .format("Error executing '%s(%s)': %s", command.getQualifiedName(),
+                                se.getStage().getCommandLine(), e.getMessage())
                         .reset()
                         .newline()
                         .toString();
                 terminal.writer().write(message);
                 e.printStackTrace(terminal.writer());
             }
-        }, executorService);
+        } finally {
+            if (state != State.DONE && context.isCancelled())
+                state = cancelled(context, pipeline);
+            terminal.writer().flush();
+            job.finish(state);
+        }
     }
 
-    public synchronized void interrupt() {
-        if (thread == null) return;
-        interrupted = true;
-        thread.interrupt();
+    /**
+     * @return the state of a job ended by the cancellation of its context, reporting timeouts
+     */
+    private State cancelled(ExecutionContext context, Pipeline pipeline) {
+        if (context.getCancellation().orElseThrow() == ExecutionContext.Cancellation.INTERRUPTED)
+            return State.KILLED;
+        terminal.writer().println(Ansi.ansi().fgRed().format("'%s' timed out", pipeline).reset());
+        return State.TIMED_OUT;
     }
 
 }
@@ -8,4 +8,39 @@ public interface CommandLine extends Iterator<String> {
 
     String flush();
 
+    /**
+     * Same as {@link #next()}, but the returned word may be a view on the parsed line, not copied to a String.
+     */
+    default CharSequence nextView() {
+        return next();
+    }
+
+    /**
+     * Same as {@link #peek()}, but the returned word may be a view on the parsed line, not copied to a String.
+     */
+    default CharSequence peekView() {
+        return peek();
+    }
+
+    /**
+     * Same as {@link #flush()}, but the returned text may be a view on the parsed line, not copied to a String.
+     */
+    default CharSequence flushView() {
+        return flush();
+    }
+
+    /**
+     * @return the length of the whole line, -1 if unknown
+     */
+    default int length() {
+        return -1;
+    }
+
+    /**
+     * @return the number of words of the whole line, -1 if unknown
+     */
+    default int wordCount() {
+        return -1;
+    }
+
 }
@@ -0,0 +1,237 @@
+package org.yah.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context of a command execution: a cancellation token, cancelled by ctrl-c, <code>kill</code> or when its deadline
+ * expires, and an optional deadline set by the command timeout or the <code>timeout</code> command.<br/>
+ * Cancelling interrupts the thread executing the command and runs the {@link #onCancel(Runnable)} listeners, so that
+ * work forked by the command (i.e. {@link #track(Future) tracked} futures) is cancelled with it. Long running
+ * commands should also check {@link #isCancelled()} or call {@link #checkCancelled()} in their loops.<br/>
+ * Commands get their context from {@link #current()}, or from an <code>ExecutionContext</code> method parameter.
+ */
+public final class ExecutionContext {
+
+    public enum Cancellation {
+        /**
+         * Cancelled by ctrl-c, <code>kill</code> or {@link #cancel()}
+         */
+        INTERRUPTED,
+        /**
+         * Deadline expired
+         */
+        TIMEOUT
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionContext.class);
+
+    private static final ThreadLocal<ExecutionContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the context of the command executed by the current thread, or a new context not bound to any thread
+     * if the command is not executed by the cli (never cancelled unless {@link #cancel()} is called)
+     */
+    public static ExecutionContext current() {
+        final ExecutionContext context = CURRENT.get();
+        return context != null ? context : new ExecutionContext();
+    }
+
+    private volatile Cancellation cancellation;
+
+    // guarded by this
+    private Thread thread;
+    private long deadline;
+    private boolean hasDeadline;
+    private ScheduledFuture<?> deadlineTask;
+    private List<Runnable> listeners;
+
+    ExecutionContext() {
+    }
+
+    public boolean isCancelled() {
+        return cancellation != null;
+    }
+
+    public Optional<Cancellation> getCancellation() {
+        return Optional.ofNullable(cancellation);
+    }
+
+    /**
+     * Cooperative cancellation check, also clearing the interrupted status if cancelled.
+     *
+     * @throws CancellationException if this context is cancelled
+     */
+    public void checkCancelled() {
+        final Cancellation cancellation = this.cancellation;
+        if (cancellation != null) {
+            if (Thread.currentThread() == boundThread())
+                Thread.interrupted();
+            throw new CancellationException(cancellation == Cancellation.TIMEOUT ? "Timed out" : "Interrupted");
+        }
+    }
+
+    public void cancel() {
+        cancel(Cancellation.INTERRUPTED);
+    }
+
+    /**
+     * Set the deadline to now + timeout, if earlier than the current deadline.
+     */
+    public void timeout(Duration timeout) {
+        final long nanos = saturatedNanos(timeout);
+        synchronized (this) {
+            final long deadline = System.nanoTime() + nanos;
+            if (hasDeadline && deadline - this.deadline >= 0)
+                return;
+            this.deadline = deadline;
+            hasDeadline = true;
+            if (deadlineTask != null)
+                deadlineTask.cancel(false);
+            if (thread != null)
+                scheduleDeadline();
+        }
+    }
+
+    /**
+     * @return the time remaining before the deadline, if any
+     */
+    public synchronized Optional<Duration> remaining() {
+        if (!hasDeadline)
+            return Optional.empty();
+        return Optional.of(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+    }
+
+    /**
+     * Run listener when this context is cancelled, now if already cancelled. Listeners are released when the command
+     * ends.
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (this) {
+            if (cancellation == null) {
+                if (listeners == null)
+                    listeners = new ArrayList<>();
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Cancel (and interrupt) future when this context is cancelled.
+     *
+     * @return future
+     */
+    public <F extends Future<?>> F track(F future) {
+        onCancel(() -> future.cancel(true));
+        return future;
+    }
+
+    void cancel(Cancellation cancellation) {
+        final List<Runnable> listeners;
+        synchronized (this) {
+            if (this.cancellation != null)
+                return;
+            this.cancellation = cancellation;
+            if (thread != null)
+                thread.interrupt();
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+        if (listeners != null)
+            listeners.forEach(ExecutionContext::runListener);
+    }
+
+    /**
+     * Bind this context to the current thread, starting its deadline.
+     *
+     * @return false if already cancelled
+     */
+    boolean bind() {
+        synchronized (this) {
+            if (cancellation != null)
+                return false;
+            thread = Thread.currentThread();
+            if (hasDeadline)
+                scheduleDeadline();
+        }
+        CURRENT.set(this);
+        return true;
+    }
+
+    /**
+     * Unbind this context from the current thread: cancel the deadline, release the listeners and clear a pending
+     * interrupt so that it does not leak into the next task of a pooled thread.
+     */
+    void unbind() {
+        synchronized (this) {
+            if (thread != Thread.currentThread())
+                return;
+            thread = null;
+            listeners = null;
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+                deadlineTask = null;
+            }
+            Thread.interrupted();
+        }
+        CURRENT.remove();
+    }
+
+    private synchronized Thread boundThread() {
+        return thread;
+    }
+
+    // guarded by this
+    private void scheduleDeadline() {
+        // an expired deadline is also cancelled by the scheduler thread, once this lock is released
+        final long delay = Math.max(0, deadline - System.nanoTime());
+        deadlineTask = Deadlines.SCHEDULER.schedule(() -> cancel(Cancellation.TIMEOUT), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return Math.max(0, duration.toNanos());
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? 0 : Long.MAX_VALUE / 2;
+        }
+    }
+
+    private static void runListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            // a failing listener must not prevent the others from running
+            LOGGER.warn("Error in cancel listener {}", listener, e);
+        }
+    }
+
+    /**
+     * Lazily started deadlines scheduler thread
+     */
+    private static final class Deadlines {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+        private static ScheduledThreadPoolExecutor createScheduler() {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                final Thread thread = new Thread(r, "command-deadlines");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+package org.yah.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A command executed by {@link CommandExecutor}, in the foreground, or as a background job when its line ends with
+ * <code>&</code>.<br/>
+ * The output of a background job (its terminal writer and {@link System#out}) is kept in a bounded buffer, until
+ * the job is brought to the foreground with <code>fg</code>.
+ */
+public final class Job {
+
+    public enum State {
+        PENDING, RUNNING, DONE, FAILED, KILLED, TIMED_OUT;
+
+        public boolean isFinished() {
+            return this != PENDING && this != RUNNING;
+        }
+    }
+
+    private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the job executed by the current thread, if any
+     */
+    static Job current() {
+        return CURRENT.get();
+    }
+
+    private final int id;
+    private final String commandLine;
+    private final Output output;
+    private final Writer writer;
+    private final ExecutionContext context = new ExecutionContext();
+    private final CompletableFuture<Job> completion = new CompletableFuture<>();
+
+    private volatile State state = State.PENDING;
+
+    // guarded by this
+    private boolean reported;
+
+    /**
+     * @param output the background job output, null for a foreground job
+     */
+    Job(int id, String commandLine, Output output, Charset charset) {
+        this.id = id;
+        this.commandLine = commandLine;
+        this.output = output;
+        this.writer = output == null ? null : new OutputStreamWriter(output, charset);
+    }
+
+    /**
+     * @return the job id, 0 for a foreground job
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getCommandLine() {
+        return commandLine;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isBackground() {
+        return output != null;
+    }
+
+    /**
+     * @return the number of bytes waiting in the output buffer
+     */
+    public int getBufferedOutput() {
+        return output == null ? 0 : output.size();
+    }
+
+    public CompletableFuture<Job> completion() {
+        return completion;
+    }
+
+    public ExecutionContext getContext() {
+        return context;
+    }
+
+    /**
+     * Cancel the job execution context, interrupting the job thread.
+     */
+    public void interrupt() {
+        if (!state.isFinished())
+            context.cancel();
+    }
+
+    public boolean isInterrupted() {
+        return context.isCancelled();
+    }
+
+    /**
+     * Attach the job and its execution context to the current thread.
+     *
+     * @return false if the job was interrupted before it started
+     */
+    boolean start() {
+        if (!context.bind()) {
+            finish(State.KILLED);
+            return false;
+        }
+        state = State.RUNNING;
+        CURRENT.set(this);
+        return true;
+    }
+
+    /**
+     * Detach the job and its execution context from the current thread.
+     */
+    void finish(State state) {
+        if (CURRENT.get() == this)
+            CURRENT.remove();
+        context.unbind();
+        this.state = state;
+        completion.complete(this);
+    }
+
+    /**
+     * Wait for the job end.
+     */
+    void await() throws InterruptedException {
+        try {
+            completion.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Write the buffered output to the terminal, then the following output.
+     */
+    void attach() throws IOException {
+        if (output != null)
+            output.attach();
+    }
+
+    /**
+     * @return true the first time it is called on a finished job
+     */
+    synchronized boolean report() {
+        if (reported || !state.isFinished())
+            return false;
+        reported = true;
+        return true;
+    }
+
+    Output output() {
+        return output;
+    }
+
+    /**
+     * Attach the job to a pipeline stage thread, routing its output to the job output.
+     */
+    void bindStage() {
+        CURRENT.set(this);
+    }
+
+    void unbindStage() {
+        if (CURRENT.get() == this)
+            CURRENT.remove();
+    }
+
+    void write(char[] cbuf, int off, int len) throws IOException {
+        synchronized (writer) {
+            writer.write(cbuf, off, len);
+            writer.flush();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[" + id + "] " + state + " " + commandLine;
+    }
+
+    /**
+     * Background job output, keeping at most capacity bytes (the last written) until attached, then writing to the
+     * terminal.
+     */
+    static final class Output extends OutputStream {
+        private final OutputStream terminal;
+        private final int capacity;
+
+        private byte[] buffer = new byte[256];
+        private int size;
+        private long discarded;
+        private boolean attached;
+
+        Output(OutputStream terminal, int capacity) {
+            this.terminal = terminal;
+            this.capacity = capacity;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (attached) {
+                terminal.write(b, off, len);
+                terminal.flush();
+                return;
+            }
+            if (len >= capacity) {
+                discarded += size + len - capacity;
+                off += len - capacity;
+                len = capacity;
+                size = 0;
+            } else if (size + len > capacity) {
+                final int dropped = size + len - capacity;
+                System.arraycopy(buffer, dropped, buffer, 0, size - dropped);
+                size -= dropped;
+                discarded += dropped;
+            }
+            if (size + len > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.min(capacity, Math.max(size + len, buffer.length * 2)));
+            System.arraycopy(b, off, buffer, size, len);
+            size += len;
+        }
+
+        synchronized void attach() throws IOException {
+            if (discarded > 0)
+                terminal.write(("... " + discarded + " bytes discarded" + System.lineSeparator()).getBytes());
+            terminal.write(buffer, 0, size);
+            terminal.flush();
+            buffer = null;
+            size = 0;
+            attached = true;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.yah.cli;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.terminal.Terminal;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.parameter.CommandParameter;
+import org.yah.cli.command.parameter.ParsedParameter;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.fusesource.jansi.Ansi.ansi;
+
+/**
+ * <code>jobs</code>, <code>fg</code> and <code>kill</code> commands, managing the background jobs of a
+ * {@link CommandExecutor}.
+ */
+final class JobCommands {
+
+    static List<Command> create(CommandExecutor executor, Terminal terminal) {
+        final JobCommands jc = new JobCommands(executor, terminal);
+        return List.of(
+                Command.cmd("jobs")
+                        .withDescription("List the background jobs.")
+                        .withHelp("List the jobs started with a trailing '&', with their state and the size of " +
+                                "their buffered output")
+                        .withAction(jc::printJobs)
+                        .build(),
+                Command.cmd("fg")
+                        .withDescription("Bring a background job to the foreground.")
+                        .withHelp("Print the buffered output of a job, then wait for its end. " +
+                                "Ctrl-C interrupts the job.")
+                        .withParameter(jc::jobParameter)
+                        .withAction(jc::foreground)
+                        .build(),
+                Command.cmd("kill")
+                        .withDescription("Interrupt a background job.")
+                        .withHelp("Interrupt a running job, or discard a finished job and its output.")
+                        .withParameter(jc::jobParameter)
+                        .withAction(jc::kill)
+                        .build());
+    }
+
+    /**
+     * @return the job line printed when a job is submitted or finished
+     */
+    static String format(Job job) {
+        return ansi().fgBrightDefault().a("[").a(job.getId()).a("] ").reset()
+                .a(String.format("%-10s", job.getState())).a(job.getCommandLine()).toString();
+    }
+
+    private final CommandExecutor executor;
+    private final Terminal terminal;
+
+    private JobCommands(CommandExecutor executor, Terminal terminal) {
+        this.executor = executor;
+        this.terminal = terminal;
+    }
+
+    private void jobParameter(CommandParameter.Builder builder) {
+        builder.withName("job")
+                .withDescription("the job id, the most recent job if omitted")
+                .withCompleter(jobsCompleter())
+                .withParser((parameter, commandLine) -> commandLine.hasNext() ? parseJobId(commandLine.next()) : null);
+    }
+
+    private Completer jobsCompleter() {
+        return (reader, line, candidates) -> executor.getJobs().forEach(job -> candidates.add(
+                new Candidate(Integer.toString(job.getId()), Integer.toString(job.getId()), null,
+                        job.getCommandLine(), null, null, true)));
+    }
+
+    private static Integer parseJobId(String s) {
+        return Integer.valueOf(s.startsWith("%") ? s.substring(1) : s);
+    }
+
+    private void printJobs() {
+        final PrintWriter writer = terminal.writer();
+        for (Job job : executor.getJobs()) {
+            writer.print(format(job));
+            final int buffered = job.getBufferedOutput();
+            if (buffered > 0)
+                writer.print(" (" + buffered + " bytes of output)");
+            writer.println();
+        }
+        writer.flush();
+    }
+
+    private void foreground(Command command, List<ParsedParameter> parameters) throws Exception {
+        final Optional<Job> job = resolve(parameters);
+        if (job.isEmpty())
+            return;
+        terminal.writer().println(job.get().getCommandLine());
+        executor.foreground(job.get());
+        if (job.get().getState() != Job.State.DONE)
+            terminal.writer().println(format(job.get()));
+        terminal.writer().flush();
+    }
+
+    private void kill(Command command, List<ParsedParameter> parameters) {
+        resolve(parameters).ifPresent(executor::kill);
+    }
+
+    private Optional<Job> resolve(List<ParsedParameter> parameters) {
+        final Integer id = (Integer) parameters.get(0).getParsedValue();
+        final Optional<Job> job = id == null ? executor.getLastJob() : executor.getJob(id);
+        if (job.isEmpty()) {
+            terminal.writer().println(id == null ? "No job" : "No job " + id);
+            terminal.writer().flush();
+        }
+        return job;
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.yah.cli;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the background jobs, returned by {@link Cli#createJobsExecutor()}.
+ */
+public final class JobExecutors {
+
+    private static final MethodHandle VIRTUAL_THREADS_EXECUTOR = virtualThreadsExecutorFactory();
+
+    private JobExecutors() {
+    }
+
+    /**
+     * @return a pool of daemon threads, queuing the jobs when all threads are busy
+     */
+    public static ExecutorService fixed(int threads) {
+        return Executors.newFixedThreadPool(threads, jobThreadFactory());
+    }
+
+    /**
+     * @return a {@link java.util.concurrent.ForkJoinPool} using all available processors
+     * @see Executors#newWorkStealingPool()
+     */
+    public static ExecutorService workStealing() {
+        return Executors.newWorkStealingPool();
+    }
+
+    public static ExecutorService workStealing(int parallelism) {
+        return Executors.newWorkStealingPool(parallelism);
+    }
+
+    /**
+     * @return true if the running JDK supports virtual threads (JDK 21+)
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREADS_EXECUTOR != null;
+    }
+
+    /**
+     * @return an executor starting a virtual thread per job
+     * @throws UnsupportedOperationException if the running JDK does not support virtual threads
+     */
+    public static ExecutorService virtualThreads() {
+        if (VIRTUAL_THREADS_EXECUTOR == null)
+            throw new UnsupportedOperationException("Virtual threads are not supported by JDK " +
+                    System.getProperty("java.version"));
+        try {
+            return (ExecutorService) VIRTUAL_THREADS_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return {@link #virtualThreads()} if supported, {@link #fixed(int)} otherwise
+     */
+    public static ExecutorService virtualThreadsOrFixed(int threads) {
+        return isVirtualThreadsSupported() ? virtualThreads() : fixed(threads);
+    }
+
+    private static ThreadFactory jobThreadFactory() {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            final Thread thread = new Thread(r, "job-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static MethodHandle virtualThreadsExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+package org.yah.cli;
+
+import org.jline.terminal.Attributes;
+import org.jline.terminal.Cursor;
+import org.jline.terminal.MouseEvent;
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.utils.InfoCmp;
+import org.jline.utils.NonBlockingReader;
+import org.yah.cli.jfr.TerminalWriteEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Terminal given to the commands: delegates to the application terminal, except for {@link #writer()} and
+ * {@link #output()} writing to the {@link Job} output buffer when called from a background job.
+ */
+final class JobsTerminal implements Terminal {
+
+    private final Terminal terminal;
+    private final PrintWriter writer;
+    private final OutputStream output;
+
+    JobsTerminal(Terminal terminal) {
+        this.terminal = terminal;
+        this.writer = new PrintWriter(new JobsWriter(terminal));
+        this.output = new JobsOutputStream(terminal.output());
+    }
+
+    /**
+     * @return the wrapped terminal
+     */
+    Terminal getTerminal() {
+        return terminal;
+    }
+
+    @Override
+    public PrintWriter writer() {
+        return writer;
+    }
+
+    @Override
+    public OutputStream output() {
+        return output;
+    }
+
+    @Override
+    public String getName() {
+        return terminal.getName();
+    }
+
+    @Override
+    public SignalHandler handle(Signal signal, SignalHandler handler) {
+        return terminal.handle(signal, handler);
+    }
+
+    @Override
+    public void raise(Signal signal) {
+        terminal.raise(signal);
+    }
+
+    @Override
+    public NonBlockingReader reader() {
+        return terminal.reader();
+    }
+
+    @Override
+    public Charset encoding() {
+        return terminal.encoding();
+    }
+
+    @Override
+    public InputStream input() {
+        return terminal.input();
+    }
+
+    @Override
+    public boolean canPauseResume() {
+        return terminal.canPauseResume();
+    }
+
+    @Override
+    public void pause() {
+        terminal.pause();
+    }
+
+    @Override
+    public void pause(boolean wait) throws InterruptedException {
+        terminal.pause(wait);
+    }
+
+    @Override
+    public void resume() {
+        terminal.resume();
+    }
+
+    @Override
+    public boolean paused() {
+        return terminal.paused();
+    }
+
+    @Override
+    public Attributes enterRawMode() {
+        return terminal.enterRawMode();
+    }
+
+    @Override
+    public boolean echo() {
+        return terminal.echo();
+    }
+
+    @Override
+    public boolean echo(boolean echo) {
+        return terminal.echo(echo);
+    }
+
+    @Override
+    public Attributes getAttributes() {
+        return terminal.getAttributes();
+    }
+
+    @Override
+    public void setAttributes(Attributes attr) {
+        terminal.setAttributes(attr);
+    }
+
+    @Override
+    public Size getSize() {
+        return terminal.getSize();
+    }
+
+    @Override
+    public void setSize(Size size) {
+        terminal.setSize(size);
+    }
+
+    @Override
+    public int getWidth() {
+        return terminal.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return terminal.getHeight();
+    }
+
+    @Override
+    public Size getBufferSize() {
+        return terminal.getBufferSize();
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public String getType() {
+        return terminal.getType();
+    }
+
+    @Override
+    public boolean puts(InfoCmp.Capability capability, Object... params) {
+        return terminal.puts(capability, params);
+    }
+
+    @Override
+    public boolean getBooleanCapability(InfoCmp.Capability capability) {
+        return terminal.getBooleanCapability(capability);
+    }
+
+    @Override
+    public Integer getNumericCapability(InfoCmp.Capability capability) {
+        return terminal.getNumericCapability(capability);
+    }
+
+    @Override
+    public String getStringCapability(InfoCmp.Capability capability) {
+        return terminal.getStringCapability(capability);
+    }
+
+    @Override
+    public Cursor getCursorPosition(IntConsumer discarded) {
+        return terminal.getCursorPosition(discarded);
+    }
+
+    @Override
+    public boolean hasMouseSupport() {
+        return terminal.hasMouseSupport();
+    }
+
+    @Override
+    public boolean trackMouse(MouseTracking tracking) {
+        return terminal.trackMouse(tracking);
+    }
+
+    @Override
+    public MouseEvent readMouseEvent() {
+        return terminal.readMouseEvent();
+    }
+
+    @Override
+    public MouseEvent readMouseEvent(IntSupplier reader) {
+        return terminal.readMouseEvent(reader);
+    }
+
+    @Override
+    public boolean hasFocusSupport() {
+        return terminal.hasFocusSupport();
+    }
+
+    @Override
+    public boolean trackFocus(boolean tracking) {
+        return terminal.trackFocus(tracking);
+    }
+
+    /**
+     * Not closing the wrapped terminal, closed by the application.
+     */
+    @Override
+    public void close() {
+        writer.flush();
+    }
+
+    private static Job.Output backgroundOutput() {
+        final Job job = Job.current();
+        return job == null ? null : job.output();
+    }
+
+    private static void commit(TerminalWriteEvent event, Job job, int size) {
+        event.end();
+        if (event.shouldCommit()) {
+            final Pipeline.Stage stage = Pipeline.Stage.current();
+            if (stage == null) {
+                event.commit(null, -1, -1, size, job != null && job.isBackground());
+            } else {
+                final CommandLine commandLine = stage.getCommandLine();
+                event.commit(stage.getCommand().getQualifiedName(), commandLine.length(), commandLine.wordCount(),
+                        size, job != null && job.isBackground());
+            }
+        }
+    }
+
+    private static final class JobsWriter extends Writer {
+        private final Terminal terminal;
+
+        private JobsWriter(Terminal terminal) {
+            this.terminal = terminal;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            final TerminalWriteEvent event = new TerminalWriteEvent();
+            event.begin();
+            final Job job = Job.current();
+            if (job != null && job.isBackground())
+                job.write(cbuf, off, len);
+            else
+                terminal.writer().write(cbuf, off, len);
+            commit(event, job, len);
+        }
+
+        @Override
+        public void flush() {
+            if (backgroundOutput() == null)
+                terminal.writer().flush();
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    /**
+     * Write to the background job output, or to the foreground output.
+     */
+    static final class JobsOutputStream extends OutputStream {
+        private final OutputStream foreground;
+
+        JobsOutputStream(OutputStream foreground) {
+            this.foreground = foreground;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            final Job.Output output = backgroundOutput();
+            (output == null ? foreground : output).write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final TerminalWriteEvent event = new TerminalWriteEvent();
+            event.begin();
+            final Job job = Job.current();
+            final Job.Output output = job == null ? null : job.output();
+            (output == null ? foreground : output).write(b, off, len);
+            commit(event, job, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (backgroundOutput() == null)
+                foreground.flush();
+        }
+    }
+
+}
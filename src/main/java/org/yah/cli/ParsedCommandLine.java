@@ -3,58 +3,220 @@ package org.yah.cli;
 import org.yah.cli.parser.MappedParsedLine;
 import org.yah.cli.parser.MappedParsedLine.MappedWord;
 
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 public class ParsedCommandLine implements CommandLine {
+
+    /**
+     * Unquoted last word of a line requesting its execution as a background job
+     */
+    public static final String BACKGROUND = "&";
+
     private final MappedParsedLine parsedLine;
-    private final Iterator<MappedWord> wordIterator;
+    // raw offsets of this command in the line, excluding the background word and the piped commands
+    private final int start;
+    private final int end;
+    // emptied once flushed
+    private Iterator<MappedWord> wordIterator;
     private MappedWord nextWord;
-    private boolean flushed;
 
     public ParsedCommandLine(MappedParsedLine parsedLine) {
         this.parsedLine = parsedLine;
-        this.wordIterator = parsedLine.mappedWords().iterator();
+        final String line = parsedLine.line();
+        final Collection<MappedWord> mappedWords = parsedLine.mappedWords();
+        start = 0;
+        // mapped words can be created on access: only look at them if the line may be piped or ends with '&'
+        if (!endsWithBackground(line) && line.indexOf('|') < 0) {
+            end = line.length();
+            wordIterator = mappedWords.iterator();
+        } else {
+            final List<MappedWord> words = asList(mappedWords);
+            final int count = commandWordsCount(words);
+            final int pipeIndex = pipeIndex(words, 0, count);
+            final int last = pipeIndex < 0 ? count : pipeIndex;
+            end = last < words.size() ? words.get(last).getRawWordOffset() : line.length();
+            wordIterator = words.subList(0, last).iterator();
+        }
+    }
+
+    /**
+     * A piped command of the line: words from (included) to to (excluded)
+     */
+    private ParsedCommandLine(MappedParsedLine parsedLine, List<MappedWord> words, int from, int to) {
+        this.parsedLine = parsedLine;
+        start = from < words.size() ? words.get(from).getRawWordOffset() : parsedLine.line().length();
+        end = to < words.size() ? words.get(to).getRawWordOffset() : parsedLine.line().length();
+        wordIterator = words.subList(from, to).iterator();
+    }
+
+    /**
+     * @return true if the line ends with an unquoted {@link #BACKGROUND} word, not part of this command line
+     */
+    public boolean isBackground() {
+        return endsWithBackground(parsedLine.line()) && backgroundIndex(asList(parsedLine.mappedWords())) >= 0;
+    }
+
+    /**
+     * @return true if this command is followed by unquoted {@link Pipeline#PIPE} words
+     */
+    public boolean isPiped() {
+        if (start > 0 || parsedLine.line().indexOf('|') < 0)
+            return false;
+        final List<MappedWord> words = asList(parsedLine.mappedWords());
+        return pipeIndex(words, 0, commandWordsCount(words)) >= 0;
+    }
+
+    /**
+     * @return the command lines following this one in the pipeline, in order, empty if not {@link #isPiped()}
+     */
+    public List<ParsedCommandLine> getPipedLines() {
+        if (!isPiped())
+            return Collections.emptyList();
+        final List<MappedWord> words = asList(parsedLine.mappedWords());
+        final int count = commandWordsCount(words);
+        final List<ParsedCommandLine> res = new ArrayList<>();
+        int pipeIndex = pipeIndex(words, 0, count);
+        while (pipeIndex >= 0) {
+            final int from = pipeIndex + 1;
+            pipeIndex = pipeIndex(words, from, count);
+            res.add(new ParsedCommandLine(parsedLine, words, from, pipeIndex < 0 ? count : pipeIndex));
+        }
+        return res;
+    }
+
+    private static boolean endsWithBackground(String line) {
+        int last = line.length() - 1;
+        while (last >= 0 && Character.isWhitespace(line.charAt(last)))
+            last--;
+        return last >= 0 && line.charAt(last) == '&';
+    }
+
+    private static List<MappedWord> asList(Collection<MappedWord> words) {
+        return words instanceof List ? (List<MappedWord>) words : new ArrayList<>(words);
+    }
+
+    /**
+     * @return the number of words of the commands, excluding the background word
+     */
+    private static int commandWordsCount(List<MappedWord> words) {
+        final int backgroundIndex = backgroundIndex(words);
+        return backgroundIndex < 0 ? words.size() : backgroundIndex;
+    }
+
+    /**
+     * @return the index of the last non empty word if it is {@link #BACKGROUND}, -1 otherwise
+     */
+    private static int backgroundIndex(List<MappedWord> words) {
+        int last = words.size() - 1;
+        while (last >= 0 && words.get(last).getWordView().length() == 0)
+            last--;
+        return last >= 0 && isRawWord(words.get(last), '&') ? last : -1;
+    }
+
+    /**
+     * @return the index of the first {@link Pipeline#PIPE} word in [from, to[, -1 if none
+     */
+    private static int pipeIndex(List<MappedWord> words, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isRawWord(words.get(i), '|'))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the raw word is the unquoted c, ignoring its trailing delimiters
+     */
+    private static boolean isRawWord(MappedWord word, char c) {
+        final CharSequence rawWord = word.getRawWordView();
+        if (rawWord.length() == 0 || rawWord.charAt(0) != c)
+            return false;
+        for (int i = 1; i < rawWord.length(); i++) {
+            if (!Character.isWhitespace(rawWord.charAt(i)))
+                return false;
+        }
+        return true;
     }
 
     @Override
     public boolean hasNext() {
         if (nextWord != null)
             return true;
-        return !flushed && wordIterator.hasNext();
+        return wordIterator.hasNext();
     }
 
     @Override
     public String next() {
+        final CharSequence word = nextView();
+        return word == null ? null : word.toString();
+    }
+
+    @Override
+    public CharSequence nextView() {
         if (!hasNext())
             return null;
         MappedWord word = nextWord != null ? nextWord : wordIterator.next();
         nextWord = null;
-        return word.getWord();
+        return word.getWordView();
     }
 
     @Override
     public String peek() {
+        final CharSequence word = peekView();
+        return word == null ? null : word.toString();
+    }
+
+    @Override
+    public CharSequence peekView() {
         if (!hasNext())
             return null;
         if (nextWord == null)
             nextWord = wordIterator.next();
-        return nextWord.getWord();
+        return nextWord.getWordView();
     }
 
     @Override
     public String flush() {
-        flushed = true;
+        return flushView().toString();
+    }
+
+    @Override
+    public CharSequence flushView() {
         if (nextWord == null && hasNext())
             nextWord = wordIterator.next();
+        wordIterator = Collections.emptyIterator();
         if (nextWord != null) {
             final String rawLine = parsedLine.line();
-            return rawLine.substring(nextWord.getRawWordOffset());
+            return CharBuffer.wrap(rawLine, nextWord.getRawWordOffset(), end);
         }
         return "";
     }
 
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public int wordCount() {
+        final List<MappedWord> words = asList(parsedLine.mappedWords());
+        int count = 0;
+        for (MappedWord word : words) {
+            final int offset = word.getRawWordOffset();
+            if (offset >= start && offset < end)
+                count++;
+        }
+        return count;
+    }
+
     @Override
     public String toString() {
-        return parsedLine.line();
+        final String line = parsedLine.line();
+        return start == 0 && end == line.length() ? line : line.substring(start, end).trim();
     }
 }
@@ -0,0 +1,247 @@
+package org.yah.cli;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring buffer between two {@link Pipeline} stages, with one producer and one consumer thread.<br/>
+ * Each side only writes its own index, so elements are exchanged without lock: the producer publishes each element
+ * with a volatile write, the consumer takes all the available elements, up to {@link #BATCH_SIZE}, at once.<br/>
+ * A side parks only when the buffer is empty (consumer) or full (producer, backpressure). To avoid a thread switch
+ * per element when both sides run at the same speed (or share a cpu), a parked side is woken by batches: the consumer
+ * when half of the buffer is filled, or by the next element once it waited for {@link #LINGER_NANOS} (so that the
+ * elements of a slow producer are not delayed), the producer when half of the buffer is free.<br/>
+ * The producer ends the stream with {@link #complete()} or {@link #fail(Throwable)}, the consumer can stop it early
+ * with {@link #close()}: the producer then gets a {@link ClosedException} on its next {@link #put(Object)}.
+ */
+final class Pipe {
+
+    static final int BATCH_SIZE = 64;
+
+    /**
+     * Maximum time an element waits for a batch before the consumer takes it
+     */
+    static final long LINGER_NANOS = 1_000_000;
+
+    /**
+     * Thrown to the producer of a pipe closed by its consumer, ending the producer stage normally.
+     */
+    static final class ClosedException extends CancellationException {
+        private static final long serialVersionUID = 1L;
+
+        private ClosedException() {
+            super("Pipe closed");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Thrown to the consumer of a pipe failed by its producer, the cause being the producer error.
+     */
+    static final class UpstreamException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private UpstreamException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private final Object[] elements;
+    private final int mask;
+
+    // written by the producer, failure is published by completed
+    private volatile long tail;
+    private volatile boolean completed;
+    private Throwable failure;
+    // producer copy of head, refreshed when the buffer looks full
+    private long headCache;
+
+    // written by the consumer
+    private volatile long head;
+    private volatile boolean closed;
+    private volatile Thread parkedConsumer;
+    // set once the consumer waited for LINGER_NANOS: woken by the next element
+    private volatile boolean consumerIdle;
+    private volatile Thread parkedProducer;
+
+    /**
+     * @param capacity rounded up to a power of 2
+     */
+    Pipe(int capacity) {
+        elements = new Object[capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+        mask = elements.length - 1;
+    }
+
+    /**
+     * Add an element, blocking while the pipe is full.
+     *
+     * @throws ClosedException if the consumer closed the pipe
+     */
+    void put(Object element) throws InterruptedException {
+        if (closed)
+            throw new ClosedException();
+        final long t = tail;
+        if (t - headCache == elements.length)
+            awaitSpace(t);
+        elements[(int) t & mask] = element;
+        tail = t + 1;
+        final Thread consumer = parkedConsumer;
+        if (consumer != null && (consumerIdle || t + 1 - head >= Math.max(1, elements.length / 2)))
+            LockSupport.unpark(consumer);
+    }
+
+    private void awaitSpace(long t) throws InterruptedException {
+        // the consumer is woken by the batch size before the buffer is full
+        while (t - (headCache = head) == elements.length) {
+            parkedProducer = Thread.currentThread();
+            if (t - head == elements.length && !closed)
+                LockSupport.park(this);
+            parkedProducer = null;
+            if (closed)
+                throw new ClosedException();
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    /**
+     * End of the stream, the consumer takes the remaining elements.
+     */
+    void complete() {
+        completed = true;
+        unpark(parkedConsumer);
+    }
+
+    /**
+     * Fail the stream, the consumer gets an {@link UpstreamException} once the elements before the error are taken.
+     */
+    void fail(Throwable error) {
+        if (!completed) {
+            failure = error;
+            completed = true;
+        }
+        unpark(parkedConsumer);
+    }
+
+    /**
+     * Stop the stream from the consumer side, waking up the producer. The waiting elements are released with the
+     * pipe.
+     */
+    void close() {
+        closed = true;
+        unpark(parkedProducer);
+    }
+
+    /**
+     * @return the consumer iterator, blocking in {@link Iterator#hasNext()} until an element is available.
+     * Interruption is reported as a {@link CancellationException}, keeping the thread interrupted.
+     */
+    Iterator<Object> iterator() {
+        return new Iterator<>() {
+            private final Object[] batch = new Object[Math.min(BATCH_SIZE, elements.length)];
+            private int size;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index < size)
+                    return true;
+                try {
+                    size = take(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted");
+                }
+                index = 0;
+                return size > 0;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                final Object element = batch[index];
+                batch[index++] = null;
+                return element;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super Object> action) {
+                while (hasNext()) {
+                    while (index < size) {
+                        final Object element = batch[index];
+                        batch[index++] = null;
+                        action.accept(element);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Move the available elements to batch, waiting for at least one.
+     *
+     * @return the number of elements moved, 0 at the end of the stream
+     */
+    private int take(Object[] batch) throws InterruptedException {
+        final long h = head;
+        long t;
+        long parkedSince = 0;
+        while ((t = tail) == h) {
+            if (completed) {
+                // the last elements are published before completed
+                if ((t = tail) != h)
+                    break;
+                if (failure != null)
+                    throw new UpstreamException(failure);
+                return 0;
+            }
+            if (parkedConsumer == null) {
+                parkedSince = System.nanoTime();
+                parkedConsumer = Thread.currentThread();
+            }
+            final long remaining = parkedSince + LINGER_NANOS - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                consumerIdle = true;
+                if (tail == h && !completed)
+                    LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                unparked();
+                throw new InterruptedException();
+            }
+        }
+        unparked();
+        final int size = (int) Math.min(t - h, batch.length);
+        for (int i = 0; i < size; i++) {
+            final int index = (int) (h + i) & mask;
+            batch[i] = elements[index];
+            elements[index] = null;
+        }
+        head = h + size;
+        final Thread producer = parkedProducer;
+        if (producer != null && t - (h + size) <= elements.length / 2)
+            LockSupport.unpark(producer);
+        return size;
+    }
+
+    private void unparked() {
+        parkedConsumer = null;
+        consumerIdle = false;
+    }
+
+    private static void unpark(Thread thread) {
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+}
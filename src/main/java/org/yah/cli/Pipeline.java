@@ -0,0 +1,577 @@
+package org.yah.cli;
+
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandMetrics;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.jfr.ExecuteCommandEvent;
+
+import java.io.PrintStream;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Commands chained with {@link #PIPE}: <code>a | b | c</code>.<br/>
+ * The stages run concurrently, the last one in the job thread and the others in pipeline threads, connected by
+ * bounded buffers of {@link #CAPACITY} elements: a stage producing faster than the next one consumes is blocked
+ * (backpressure), and a stage ending before consuming all its input stops the previous stages.<br/>
+ * A command method produces its output by returning a {@link Stream}, an {@link Iterator}, an {@link Iterable} or a
+ * {@link Flow.Publisher}, and consumes the output of the previous stage with a parameter of type {@link Stream},
+ * {@link Iterator} or {@link Flow.Publisher}. Elements are passed as objects, without formatting; the output of the
+ * last stage, or of a command not piped, is printed one element per line.<br/>
+ * Cancelling the job {@link ExecutionContext} cancels all the stages, a stage timeout cancels the whole pipeline.
+ */
+public final class Pipeline {
+
+    public static final String PIPE = "|";
+
+    /**
+     * Maximum number of elements waiting between two stages
+     */
+    public static final int CAPACITY = 1024;
+
+    private static final ThreadLocal<Stage> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return true if a command method returning this type produces a pipeline output
+     */
+    public static boolean isOutputType(Class<?> type) {
+        return type == Stream.class || type == Iterator.class || type == Iterable.class
+                || type == Flow.Publisher.class;
+    }
+
+    /**
+     * Write the output of a command method to the next stage, or print it if the command is the last stage.<br/>
+     * A {@link Stream} result is closed once written. A result that is not an {@link #isOutputType(Class) output
+     * type} is written as a single element.
+     */
+    public static void output(Object result) throws Exception {
+        if (result == null)
+            return;
+        final Stage stage = CURRENT.get();
+        final Pipe pipe = stage == null ? null : stage.output;
+        if (result instanceof Stream) {
+            try (Stream<?> stream = (Stream<?>) result) {
+                write(stream, pipe);
+            }
+        } else if (result instanceof Iterator) {
+            write((Iterator<?>) result, pipe);
+        } else if (result instanceof Iterable) {
+            write(((Iterable<?>) result).iterator(), pipe);
+        } else if (result instanceof Flow.Publisher) {
+            publish((Flow.Publisher<?>) result, pipe);
+        } else {
+            write(Collections.singleton(result).iterator(), pipe);
+        }
+    }
+
+    /**
+     * @return the output of the previous stage, empty if the current command is not piped. The iterator blocks until
+     * the next element is available, and throws the error of the previous stage if it failed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Iterator<T> inputIterator() {
+        final Stage stage = CURRENT.get();
+        if (stage == null || stage.input == null)
+            return Collections.emptyIterator();
+        return (Iterator<T>) stage.input.iterator();
+    }
+
+    /**
+     * @return the output of the previous stage as a sequential stream, see {@link #inputIterator()}
+     */
+    public static <T> Stream<T> inputStream() {
+        final Iterator<T> iterator = inputIterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * @return the output of the previous stage as a publisher accepting a single subscriber. Elements are delivered
+     * synchronously by {@link Flow.Subscription#request(long)}, in the requesting thread.
+     */
+    public static <T> Flow.Publisher<T> inputPublisher() {
+        return new InputPublisher<>(inputIterator());
+    }
+
+    /**
+     * @return a single stage pipeline
+     */
+    public static Pipeline of(Command command, CommandLine commandLine) {
+        return new Pipeline(Collections.singletonList(new Stage(command, commandLine)));
+    }
+
+    /**
+     * Resolve the commands piped after command.
+     *
+     * @param command     the resolved command of commandLine
+     * @param commandLine the parsed line, positioned after the command words
+     * @throws IllegalArgumentException if a piped command is missing or unknown
+     */
+    public static Pipeline resolve(Command command, ParsedCommandLine commandLine, CommandsRegistry registry,
+                                   boolean abbreviations) {
+        if (!commandLine.isPiped())
+            return of(command, commandLine);
+        final List<Stage> stages = new ArrayList<>();
+        stages.add(new Stage(command, commandLine));
+        for (ParsedCommandLine pipedLine : commandLine.getPipedLines()) {
+            if (!pipedLine.hasNext())
+                throw new IllegalArgumentException("Missing command after '" + PIPE + "'");
+            final Command pipedCommand = registry.resolve(pipedLine, abbreviations)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown command '" + pipedLine + "'"));
+            stages.add(new Stage(pipedCommand, pipedLine));
+        }
+        return new Pipeline(stages);
+    }
+
+    private final List<Stage> stages;
+
+    private Pipeline(List<Stage> stages) {
+        this.stages = stages;
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Run the stages, the last one in the current thread, waiting for all of them to end.
+     *
+     * @param context the context of the job, bound to the current thread
+     * @param job     the job running this pipeline, null if not run by a {@link CommandExecutor}
+     * @throws StageException the error of the first failed stage
+     */
+    void run(ExecutionContext context, Job job) throws StageException {
+        for (Stage stage : stages) {
+            if (stage.command.getTimeout() != null)
+                context.timeout(stage.command.getTimeout());
+        }
+        final boolean background = job != null && job.isBackground();
+        final Stage last = stages.get(stages.size() - 1);
+        if (stages.size() == 1) {
+            try {
+                last.execute(background);
+            } catch (Exception e) {
+                throw new StageException(last, e);
+            }
+            return;
+        }
+
+        for (int i = 1; i < stages.size(); i++) {
+            final Pipe pipe = new Pipe(CAPACITY);
+            stages.get(i - 1).output = pipe;
+            stages.get(i).input = pipe;
+        }
+        final Throwable[] errors = new Throwable[stages.size()];
+        final List<Future<?>> futures = new ArrayList<>(stages.size() - 1);
+        for (int i = 0; i < stages.size() - 1; i++) {
+            final Stage stage = stages.get(i);
+            final int index = i;
+            final ExecutionContext stageContext = new ExecutionContext();
+            context.onCancel(() -> stageContext.cancel(context.getCancellation().orElseThrow()));
+            futures.add(Stages.EXECUTOR.submit(() -> {
+                errors[index] = stage.run(stageContext, job, background);
+            }));
+        }
+        try {
+            last.execute(background);
+        } catch (Exception e) {
+            errors[errors.length - 1] = e;
+        } finally {
+            last.input.close();
+        }
+        awaitAll(futures);
+
+        for (int i = 0; i < errors.length; i++) {
+            // a stage failing because of the previous stage error is reported by the previous stage
+            if (errors[i] != null && !(errors[i] instanceof Pipe.UpstreamException))
+                throw new StageException(stages.get(i), errors[i]);
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // the stages are cancelled with the job context, wait for them to end
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static void write(Iterator<?> iterator, Pipe pipe) throws InterruptedException {
+        write(iterator::forEachRemaining, pipe);
+    }
+
+    private static void write(Stream<?> stream, Pipe pipe) throws InterruptedException {
+        // forEach pushes the elements through the stream operations, much faster than the stream iterator
+        if (stream.isParallel())
+            write(stream.iterator(), pipe);
+        else
+            write(stream::forEach, pipe);
+    }
+
+    private static void write(Consumer<Consumer<Object>> elements, Pipe pipe) throws InterruptedException {
+        try {
+            elements.accept(new ElementWriter(pipe));
+        } catch (ElementWriter.Interrupted e) {
+            throw new InterruptedException();
+        } catch (Pipe.ClosedException e) {
+            // the next stage ended
+        } finally {
+            if (pipe == null)
+                System.out.flush();
+        }
+    }
+
+    /**
+     * Write the elements of a publisher from the current thread: the publisher threads write to a bounded buffer,
+     * requesting as much elements as taken from it.
+     */
+    private static void publish(Flow.Publisher<?> publisher, Pipe pipe) throws Exception {
+        final PublisherBridge bridge = new PublisherBridge();
+        publisher.subscribe(bridge);
+        try {
+            write(bridge, pipe);
+        } catch (Pipe.UpstreamException e) {
+            // the publisher error is the error of this stage
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new UndeclaredThrowableException(cause);
+        } finally {
+            bridge.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return stages.stream().map(stage -> stage.commandLine.toString())
+                .collect(Collectors.joining(" " + PIPE + " "));
+    }
+
+    /**
+     * A command of a pipeline and its line.
+     */
+    public static final class Stage {
+        private final Command command;
+        private final CommandLine commandLine;
+        // set while running a pipeline, null for the first and last stage
+        private Pipe input;
+        private Pipe output;
+
+        private Stage(Command command, CommandLine commandLine) {
+            this.command = command;
+            this.commandLine = commandLine;
+        }
+
+        /**
+         * @return the stage executed by the current thread, null if none
+         */
+        static Stage current() {
+            return CURRENT.get();
+        }
+
+        public Command getCommand() {
+            return command;
+        }
+
+        public CommandLine getCommandLine() {
+            return commandLine;
+        }
+
+        /**
+         * Run this stage in a pipeline thread.
+         *
+         * @return the stage error, null if completed
+         */
+        private Throwable run(ExecutionContext context, Job job, boolean background) {
+            if (!context.bind()) {
+                output.fail(new CancellationException("Interrupted"));
+                if (input != null)
+                    input.close();
+                return null;
+            }
+            if (job != null)
+                job.bindStage();
+            try {
+                execute(background);
+                output.complete();
+                return null;
+            } catch (Pipe.ClosedException e) {
+                return null;
+            } catch (Throwable e) {
+                output.fail(e);
+                return e;
+            } finally {
+                if (input != null)
+                    input.close();
+                if (job != null)
+                    job.unbindStage();
+                context.unbind();
+            }
+        }
+
+        private void execute(boolean background) throws Exception {
+            CURRENT.set(this);
+            final ExecuteCommandEvent event = new ExecuteCommandEvent();
+            event.begin();
+            final long start = CommandMetrics.ENABLED ? System.nanoTime() : 0;
+            final long allocated = CommandMetrics.ENABLED ? CommandMetrics.allocatedBytes() : 0;
+            try {
+                command.getAction().run(command, commandLine);
+            } finally {
+                if (CommandMetrics.ENABLED)
+                    CommandMetrics.record(command, CommandMetrics.Phase.EXECUTE, start, allocated);
+                event.commit(command, commandLine, background);
+                CURRENT.remove();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return commandLine.toString();
+        }
+    }
+
+    /**
+     * Error of a pipeline stage
+     */
+    static final class StageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Stage stage;
+
+        private StageException(Stage stage, Throwable cause) {
+            super(cause.getMessage(), cause);
+            this.stage = stage;
+        }
+
+        Stage getStage() {
+            return stage;
+        }
+    }
+
+    /**
+     * Write the elements to the next stage, or print them if there is none.
+     */
+    private static final class ElementWriter implements Consumer<Object> {
+        private final Pipe pipe;
+        private final PrintStream out;
+
+        private ElementWriter(Pipe pipe) {
+            this.pipe = pipe;
+            this.out = pipe == null ? System.out : null;
+        }
+
+        @Override
+        public void accept(Object element) {
+            if (Thread.currentThread().isInterrupted())
+                throw new Interrupted();
+            if (pipe == null) {
+                out.println(element);
+                return;
+            }
+            try {
+                pipe.put(element);
+            } catch (InterruptedException e) {
+                throw new Interrupted();
+            }
+        }
+
+        /**
+         * Interruption thrown through the stream or iterator, rethrown as {@link InterruptedException}
+         */
+        private static final class Interrupted extends RuntimeException {
+            private static final long serialVersionUID = 1L;
+
+            private Interrupted() {
+                super(null, null, false, false);
+            }
+        }
+    }
+
+    /**
+     * Subscriber buffering the published elements in a pipe, read as an iterator by the stage thread.
+     */
+    private static final class PublisherBridge implements Flow.Subscriber<Object>, Iterator<Object> {
+        private final Pipe pipe = new Pipe(CAPACITY);
+        private final Iterator<Object> iterator = pipe.iterator();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+        private int taken;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(CAPACITY);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            try {
+                pipe.put(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            } catch (Pipe.ClosedException e) {
+                // cancelled
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            pipe.fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            pipe.complete();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            final Object next = iterator.next();
+            if (++taken == Pipe.BATCH_SIZE) {
+                taken = 0;
+                subscription.request(Pipe.BATCH_SIZE);
+            }
+            return next;
+        }
+
+        void cancel() {
+            cancelled = true;
+            pipe.close();
+            final Flow.Subscription subscription = this.subscription;
+            if (subscription != null)
+                subscription.cancel();
+        }
+    }
+
+    /**
+     * Publisher of a stage input, delivering the elements in {@link Flow.Subscription#request(long)}.
+     */
+    private static final class InputPublisher<T> implements Flow.Publisher<T> {
+        private final Iterator<T> iterator;
+        private final AtomicInteger subscribers = new AtomicInteger();
+
+        private InputPublisher(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            if (subscribers.getAndIncrement() > 0) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("Pipeline input already subscribed"));
+                return;
+            }
+            subscriber.onSubscribe(new InputSubscription<>(iterator, subscriber));
+        }
+    }
+
+    private static final class InputSubscription<T> implements Flow.Subscription {
+        private final Iterator<T> iterator;
+        private final Flow.Subscriber<? super T> subscriber;
+        private long demand;
+        private boolean delivering;
+        private boolean done;
+
+        private InputSubscription(Iterator<T> iterator, Flow.Subscriber<? super T> subscriber) {
+            this.iterator = iterator;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (done)
+                return;
+            if (n <= 0) {
+                done = true;
+                subscriber.onError(new IllegalArgumentException("Non positive request " + n));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            // request called from onNext: the outer call delivers the new demand
+            if (delivering)
+                return;
+            delivering = true;
+            try {
+                while (demand > 0 && !done) {
+                    if (!iterator.hasNext()) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand--;
+                    subscriber.onNext(iterator.next());
+                }
+            } catch (RuntimeException e) {
+                done = true;
+                subscriber.onError(e instanceof Pipe.UpstreamException ? e.getCause() : e);
+            } finally {
+                delivering = false;
+            }
+        }
+
+        @Override
+        public synchronized void cancel() {
+            done = true;
+        }
+    }
+
+    /**
+     * Pipeline stages threads, not bounded since the stages of a pipeline wait for each other.
+     */
+    private static final class Stages {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "pipeline-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
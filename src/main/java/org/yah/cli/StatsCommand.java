@@ -0,0 +1,87 @@
+package org.yah.cli;
+
+import org.jline.terminal.Terminal;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandMetrics;
+import org.yah.cli.command.CommandMetrics.Phase;
+import org.yah.cli.command.CommandStats;
+import org.yah.cli.command.CommandStats.PhaseStats;
+
+import java.io.PrintWriter;
+
+import static org.fusesource.jansi.Ansi.ansi;
+
+/**
+ * <code>stats</code> command, printing the {@link CommandMetrics}, and <code>stats reset</code>.
+ */
+final class StatsCommand {
+
+    private static final String ROW_FORMAT = "%-30s %-8s %8s %9s %9s %9s %9s %9s %10s%n";
+
+    static Command create(Terminal terminal) {
+        final StatsCommand sc = new StatsCommand(terminal);
+        return Command.cmd("stats")
+                .withDescription("Print the commands metrics.")
+                .withHelp("Print the invocations count, latency percentiles and bytes allocated per invocation of " +
+                        "each command phase: resolve, parse and execute. Metrics are enabled by the " +
+                        "org.yah.cli.metrics=true system property.")
+                .withAction(sc::print)
+                .withSubCommands(Command.cmd("reset")
+                        .withDescription("Reset the commands metrics.")
+                        .withAction(CommandMetrics::reset)
+                        .build())
+                .build();
+    }
+
+    private final Terminal terminal;
+
+    private StatsCommand(Terminal terminal) {
+        this.terminal = terminal;
+    }
+
+    private void print() {
+        final PrintWriter writer = terminal.writer();
+        if (!CommandMetrics.ENABLED) {
+            writer.println("Metrics are disabled, run with -Dorg.yah.cli.metrics=true to enable them");
+            writer.flush();
+            return;
+        }
+        writer.print(ansi().fgBrightDefault().format(ROW_FORMAT, "command", "phase", "count", "mean", "p50",
+                "p90", "p99", "max", "alloc/op").reset());
+        for (CommandStats stats : CommandMetrics.getStats()) {
+            for (Phase phase : Phase.values()) {
+                final PhaseStats phaseStats = stats.get(phase);
+                if (phaseStats.getCount() == 0)
+                    continue;
+                final long allocated = phaseStats.getMeanAllocatedBytes();
+                writer.printf(ROW_FORMAT, stats.getName(), phase.name().toLowerCase(), phaseStats.getCount(),
+                        duration(phaseStats.getMeanNanos()),
+                        duration(phaseStats.getPercentileNanos(50)),
+                        duration(phaseStats.getPercentileNanos(90)),
+                        duration(phaseStats.getPercentileNanos(99)),
+                        duration(phaseStats.getMaxNanos()),
+                        allocated < 0 ? "-" : bytes(allocated));
+            }
+        }
+        writer.flush();
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000)
+            return nanos + "ns";
+        if (nanos < 1_000_000)
+            return String.format("%.1fus", nanos / 1e3);
+        if (nanos < 1_000_000_000)
+            return String.format("%.1fms", nanos / 1e6);
+        return String.format("%.2fs", nanos / 1e9);
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + "B";
+        if (bytes < 1024 * 1024)
+            return String.format("%.1fKB", bytes / 1024.0);
+        return String.format("%.1fMB", bytes / (1024.0 * 1024));
+    }
+
+}
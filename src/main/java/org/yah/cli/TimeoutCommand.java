@@ -0,0 +1,54 @@
+package org.yah.cli;
+
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsCompleter;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.parameter.ParameterParsers;
+
+import java.time.Duration;
+
+/**
+ * <code>timeout &lt;duration&gt; &lt;command...&gt;</code>: run a command, cancelling its {@link ExecutionContext}
+ * if it does not complete within duration.
+ */
+final class TimeoutCommand {
+
+    /**
+     * @param completer the registry completer, completing the command following the duration
+     */
+    static Command create(CommandsRegistry registry, boolean abbreviationAllowed, CommandsCompleter completer) {
+        final TimeoutCommand tc = new TimeoutCommand(registry, abbreviationAllowed);
+        return Command.cmd("timeout")
+                .withDescription("Run a command with a timeout.")
+                .withHelp("Cancel the command if it does not complete within the duration, a number followed by " +
+                        "a unit: ms, s, m, h (i.e. 500ms, 30s, 2m). Cancellable commands stop and report a timeout.")
+                .withArgumentsCompleter((reader, line, argumentIndex, candidates) -> {
+                    if (line.wordIndex() > argumentIndex)
+                        completer.complete(reader, line, argumentIndex + 1, candidates);
+                })
+                .withAction(tc::run)
+                .build();
+    }
+
+    private final CommandsRegistry registry;
+    private final boolean abbreviationAllowed;
+
+    private TimeoutCommand(CommandsRegistry registry, boolean abbreviationAllowed) {
+        this.registry = registry;
+        this.abbreviationAllowed = abbreviationAllowed;
+    }
+
+    private void run(CommandLine commandLine) throws Exception {
+        if (!commandLine.hasNext())
+            throw new IllegalArgumentException("Missing duration");
+        final Duration timeout = ParameterParsers.parseDuration(commandLine.nextView());
+        final Command command = registry.resolve(commandLine, abbreviationAllowed)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown command"));
+        final ExecutionContext context = ExecutionContext.current();
+        context.timeout(timeout);
+        if (command.getTimeout() != null)
+            context.timeout(command.getTimeout());
+        command.getAction().run(command, commandLine);
+    }
+
+}
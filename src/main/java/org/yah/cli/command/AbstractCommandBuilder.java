@@ -3,10 +3,12 @@ package org.yah.cli.command;
 import org.yah.cli.command.BuilderActions.CommandLineOnlyAction;
 import org.yah.cli.command.BuilderActions.ParsedParametersCommandAction;
 import org.yah.cli.command.BuilderActions.RunnableCommandAction;
+import org.yah.cli.command.Command.ArgumentsCompleter;
 import org.yah.cli.command.Command.CompleterFactory;
 import org.yah.cli.command.parameter.CommandParameter;
 import org.yah.cli.command.parameter.ParsedParameter;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -21,6 +23,8 @@ abstract class AbstractCommandBuilder<SELF extends AbstractCommandBuilder<SELF>>
     protected String help;
     protected CommandAction action;
     protected CompleterFactory completerFactory;
+    protected ArgumentsCompleter argumentsCompleter;
+    protected Duration timeout;
 
     protected final List<CommandParameter> parameters = new ArrayList<>();
 
@@ -63,17 +67,29 @@ abstract class AbstractCommandBuilder<SELF extends AbstractCommandBuilder<SELF>>
     public SELF withAction(ParsedParametersCommandAction action) {
         this.action = (command, commandLine) -> {
             final List<ParsedParameter> parsedParameters = command.parseParameters(commandLine);
-            if (parsedParameters != null)
-                action.run(command, parsedParameters);
+            action.run(command, parsedParameters);
         };
         return getThis();
     }
 
+    /**
+     * @param timeout the maximum execution time of the command, null for no timeout
+     */
+    public SELF withTimeout(Duration timeout) {
+        this.timeout = timeout;
+        return getThis();
+    }
+
     public SELF withCompleterFactory(CompleterFactory completerFactory) {
         this.completerFactory = completerFactory;
         return getThis();
     }
 
+    public SELF withArgumentsCompleter(ArgumentsCompleter argumentsCompleter) {
+        this.argumentsCompleter = argumentsCompleter;
+        return getThis();
+    }
+
     public SELF withParameter(Consumer<CommandParameter.Builder> parameterBuilder) {
         final CommandParameter.Builder builder = CommandParameter.builder(parameters.size());
         parameterBuilder.accept(builder);
@@ -91,6 +107,15 @@ abstract class AbstractCommandBuilder<SELF extends AbstractCommandBuilder<SELF>>
         return getThis();
     }
 
+    /**
+     * @param loader merging the sub commands in the registry it accepts, on first access to the sub commands
+     * @see CommandsRegistry#mergeLazily(Consumer)
+     */
+    public SELF withLazySubCommands(Consumer<CommandsRegistry> loader) {
+        this.subCommands.mergeLazilySubCommands(loader);
+        return getThis();
+    }
+
     protected abstract SELF getThis();
 
     protected final void prepare() {
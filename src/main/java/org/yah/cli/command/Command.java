@@ -1,16 +1,19 @@
 package org.yah.cli.command;
 
-import org.fusesource.jansi.Ansi;
 import org.jline.builtins.Completers.TreeCompleter;
 import org.jline.builtins.Completers.TreeCompleter.Node;
+import org.jline.reader.Candidate;
 import org.jline.reader.Completer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
 import org.yah.cli.CommandLine;
 import org.yah.cli.PassthroughCompleter;
 import org.yah.cli.command.parameter.CommandParameter;
+import org.yah.cli.command.parameter.ParameterParseException;
 import org.yah.cli.command.parameter.ParsedParameter;
+import org.yah.cli.jfr.BindParametersEvent;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -25,17 +28,22 @@ public final class Command {
     public static CommandBuilder cmd(String name, boolean strict) {
         return new CommandBuilder(name, strict);
     }
-    private static final Logger LOGGER = LoggerFactory.getLogger(Command.class);
+
     private final String name;
     private final Set<String> names;
     private final CommandAction action;
     private final CommandsRegistry subCommands;
     private final CompleterFactory completerFactory;
+    private final ArgumentsCompleter argumentsCompleter;
     private final List<CommandParameter> parameters;
     private final String description;
     private final String help;
+    private final Duration timeout;
     private Command parent;
     private String qualifiedName;
+    private CommandStats stats;
+    // set by freeze()
+    private List<Command> path;
 
     Command(AbstractCommandBuilder<?> builder) {
         this.name = builder.name;
@@ -46,6 +54,8 @@ public final class Command {
         this.subCommands = builder.subCommands;
         this.parameters = List.copyOf(builder.parameters);
         this.completerFactory = builder.completerFactory;
+        this.argumentsCompleter = builder.argumentsCompleter;
+        this.timeout = builder.timeout;
         subCommands.setParent(this);
     }
 
@@ -71,6 +81,8 @@ public final class Command {
     }
 
     public List<Command> getPath() {
+        if (this.path != null)
+            return this.path;
         List<Command> path = new ArrayList<>();
         Command current = this;
         while (current != null) {
@@ -89,6 +101,13 @@ public final class Command {
         return help;
     }
 
+    /**
+     * @return the maximum execution time of the command, null if none
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
     public List<CommandParameter> getParameters() {
         return parameters;
     }
@@ -97,23 +116,47 @@ public final class Command {
         return subCommands;
     }
 
+    public CompleterFactory getCompleterFactory() {
+        return completerFactory;
+    }
+
+    public ArgumentsCompleter getArgumentsCompleter() {
+        return argumentsCompleter;
+    }
+
     public boolean hasAction() {
         return action != UNIMPLENTED_COMMAND_ACTION;
     }
 
+    /**
+     * @throws ParameterParseException if a parameter can not be parsed
+     */
     public List<ParsedParameter> parseParameters(CommandLine commandLine) {
         if (parameters.isEmpty())
             return Collections.emptyList();
+        final BindParametersEvent event = new BindParametersEvent();
+        event.begin();
+        final long start = CommandMetrics.ENABLED ? System.nanoTime() : 0;
+        final long allocated = CommandMetrics.ENABLED ? CommandMetrics.allocatedBytes() : 0;
+        final List<ParsedParameter> parsedParameters;
+        try {
+            parsedParameters = doParseParameters(commandLine);
+        } finally {
+            if (CommandMetrics.ENABLED)
+                CommandMetrics.record(this, CommandMetrics.Phase.PARSE, start, allocated);
+        }
+        // not committed on error, so that the event does not escape through the exception path
+        event.commit(this, commandLine);
+        return parsedParameters;
+    }
 
+    private List<ParsedParameter> doParseParameters(CommandLine commandLine) {
         List<ParsedParameter> parsedParameters = new ArrayList<>(parameters.size());
         for (CommandParameter parameter : parameters) {
             try {
                 parsedParameters.add(parameter.parse(commandLine));
             } catch (RuntimeException e) {
-                LOGGER.error("Error parsing parameter {}", parameter.getName(), e);
-                System.out.println(Ansi.ansi().a("Error parsing parameter ").fgBrightDefault().a(parameter.getName())
-                        .reset().a(": ").a(e.getMessage()));
-                return null;
+                throw new ParameterParseException(parameter, e);
             }
         }
         return parsedParameters;
@@ -121,6 +164,28 @@ public final class Command {
 
     void setParent(Command command) {
         parent = command;
+        qualifiedName = null;
+        stats = null;
+    }
+
+    /**
+     * @return the metrics of this command qualified name
+     */
+    CommandStats getStats() {
+        CommandStats stats = this.stats;
+        if (stats == null)
+            this.stats = stats = CommandMetrics.getStats(getQualifiedName());
+        return stats;
+    }
+
+    /**
+     * Compute path and qualified name once the commands tree will not change, and freeze sub commands.
+     */
+    void freeze() {
+        path = List.copyOf(getPath());
+        qualifiedName = null;
+        qualifiedName = getQualifiedName();
+        subCommands.freeze();
     }
 
     Node createNode() {
@@ -157,4 +222,15 @@ public final class Command {
         void create(List<Object> nodes);
     }
 
+    /**
+     * Complete the words following a command name, used by {@link CommandsCompleter}.
+     */
+    @FunctionalInterface
+    public interface ArgumentsCompleter {
+        /**
+         * @param argumentIndex index of the command first argument in the line words
+         */
+        void complete(LineReader reader, ParsedLine line, int argumentIndex, List<Candidate> candidates);
+    }
+
 }
@@ -0,0 +1,109 @@
+package org.yah.cli.command;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per command metrics: latency histograms of the command {@link Phase}s and bytes allocated per execution, by command
+ * qualified name.<br/>
+ * Metrics are enabled with the <code>org.yah.cli.metrics=true</code> system property. {@link #ENABLED} is a
+ * constant, so that the instrumentation guarded by it is removed by the JIT when metrics are disabled.
+ */
+public final class CommandMetrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("org.yah.cli.metrics");
+
+    /**
+     * Name of the metrics of the command lines not resolved to a command
+     */
+    public static final String UNRESOLVED = "<unresolved>";
+
+    public enum Phase {
+        /**
+         * {@link CommandsRegistry#resolve(org.yah.cli.CommandLine, boolean)}
+         */
+        RESOLVE,
+        /**
+         * {@link Command#parseParameters(org.yah.cli.CommandLine)}
+         */
+        PARSE,
+        /**
+         * Command action execution, including its parameters parsing
+         */
+        EXECUTE
+    }
+
+    private static final Map<String, CommandStats> STATS = new ConcurrentHashMap<>();
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = allocationMXBean();
+
+    private CommandMetrics() {
+    }
+
+    /**
+     * @return the metrics of all commands, sorted by name
+     */
+    public static List<CommandStats> getStats() {
+        final List<CommandStats> res = new ArrayList<>(STATS.values());
+        res.sort(Comparator.comparing(CommandStats::getName));
+        return res;
+    }
+
+    /**
+     * @return the metrics of a command, created if missing
+     */
+    public static CommandStats getStats(String qualifiedName) {
+        return STATS.computeIfAbsent(qualifiedName, CommandStats::new);
+    }
+
+    public static void reset() {
+        STATS.values().forEach(CommandStats::reset);
+    }
+
+    /**
+     * @return the number of bytes allocated by the current thread so far, -1 if not supported by the JVM
+     */
+    public static long allocatedBytes() {
+        if (THREAD_MX_BEAN == null)
+            return -1;
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Record a command phase, to be called only if {@link #ENABLED}.
+     *
+     * @param command        the command, null if not resolved
+     * @param startNanos     the {@link System#nanoTime()} at the start of the phase
+     * @param startAllocated the {@link #allocatedBytes()} at the start of the phase, -1 if not measured
+     */
+    public static void record(Command command, Phase phase, long startNanos, long startAllocated) {
+        final long nanos = System.nanoTime() - startNanos;
+        final long allocated = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+        final CommandStats stats = command == null ? getStats(UNRESOLVED) : command.getStats();
+        stats.get(phase).record(nanos, allocated);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        if (!ENABLED)
+            return null;
+        try {
+            final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+                if (allocationBean.isThreadAllocatedMemorySupported()) {
+                    allocationBean.setThreadAllocatedMemoryEnabled(true);
+                    return allocationBean;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // not a HotSpot compatible JVM
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.yah.cli.command;
+
+import org.yah.cli.command.CommandMetrics.Phase;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a command, by qualified name: a {@link PhaseStats} per {@link Phase}.
+ */
+public final class CommandStats {
+
+    private final String name;
+    private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+
+    CommandStats(String name) {
+        this.name = name;
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new PhaseStats());
+        }
+    }
+
+    /**
+     * @return the command qualified name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public PhaseStats get(Phase phase) {
+        return phases.get(phase);
+    }
+
+    void reset() {
+        phases.values().forEach(PhaseStats::reset);
+    }
+
+    @Override
+    public String toString() {
+        return "CommandStats{" +
+                "name='" + name + '\'' +
+                ", phases=" + phases +
+                '}';
+    }
+
+    /**
+     * Invocations count, latency histogram and allocated bytes of a command phase.
+     */
+    public static final class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder allocationSamples = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private PhaseStats() {
+        }
+
+        void record(long nanos, long allocated) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.record(nanos);
+            if (allocated >= 0) {
+                allocatedBytes.add(allocated);
+                allocationSamples.increment();
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMeanNanos() {
+            final long count = getCount();
+            return count == 0 ? 0 : getTotalNanos() / count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param percentile in [0, 100]
+         * @return the latency percentile, within 12.5%, bounded by {@link #getMaxNanos()}
+         */
+        public long getPercentileNanos(double percentile) {
+            return Math.min(histogram.percentile(percentile), getMaxNanos());
+        }
+
+        /**
+         * @return the mean bytes allocated by the executing thread per invocation, -1 if not measured
+         */
+        public long getMeanAllocatedBytes() {
+            final long samples = allocationSamples.sum();
+            return samples == 0 ? -1 : allocatedBytes.sum() / samples;
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            allocatedBytes.reset();
+            allocationSamples.reset();
+            histogram.reset();
+        }
+
+        @Override
+        public String toString() {
+            return "PhaseStats{" +
+                    "count=" + getCount() +
+                    ", meanNanos=" + getMeanNanos() +
+                    ", maxNanos=" + getMaxNanos() +
+                    ", meanAllocatedBytes=" + getMeanAllocatedBytes() +
+                    '}';
+        }
+    }
+
+}
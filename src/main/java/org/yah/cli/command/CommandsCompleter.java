@@ -0,0 +1,150 @@
+package org.yah.cli.command;
+
+import org.jline.builtins.Completers.TreeCompleter;
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+import org.jline.utils.AttributedString;
+import org.yah.cli.PassthroughCompleter;
+import org.yah.cli.command.Command.ArgumentsCompleter;
+import org.yah.cli.command.parameter.CommandParameter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Completer walking the commands registry graph from the parsed line words: command names are resolved one word
+ * at a time, then the word under the cursor is completed with the resolved command sub commands names and its
+ * parameter completer.<br/>
+ * Nothing is copied from the registry, the completion cost depends on the line words before the cursor and on the
+ * completed names, not on the total number of commands.<br/>
+ * Commands having an {@link ArgumentsCompleter} complete their own arguments, commands having a
+ * {@link Command.CompleterFactory} are completed by a {@link TreeCompleter} created on first use for this command.
+ */
+public class CommandsCompleter implements Completer, ArgumentsCompleter {
+
+    private final CommandsRegistry registry;
+
+    private final Map<Command, Completer> treeCompleters = new ConcurrentHashMap<>();
+
+    public CommandsCompleter(CommandsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
+        complete(reader, line, 0, candidates);
+    }
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, int argumentIndex, List<Candidate> candidates) {
+        final List<String> words = line.words();
+        final int wordIndex = line.wordIndex();
+        if (wordIndex < argumentIndex)
+            return;
+
+        CommandsRegistry registry = this.registry;
+        Command command = null;
+        // index of the resolved command first argument
+        int index = argumentIndex;
+        while (index < wordIndex) {
+            final Command subCommand = registry.get(words.get(index));
+            if (subCommand == null)
+                break;
+            command = subCommand;
+            registry = subCommand.getSubCommands();
+            index++;
+            if (command.getArgumentsCompleter() != null) {
+                command.getArgumentsCompleter().complete(reader, line, index, candidates);
+                return;
+            }
+            if (command.getCompleterFactory() != null) {
+                completeTree(reader, line, command, index - 1, candidates);
+                return;
+            }
+        }
+
+        if (command == null && index < wordIndex)
+            return; // unknown command
+
+        final int parameterIndex = wordIndex - index;
+        if (parameterIndex == 0)
+            completeNames(reader, line, registry, candidates);
+
+        if (command != null && parameterIndex < command.getParameters().size()) {
+            final CommandParameter parameter = command.getParameters().get(parameterIndex);
+            Completer completer = parameter.getCompleter();
+            if (completer == null)
+                completer = PassthroughCompleter.INSTANCE;
+            completer.complete(reader, line, candidates);
+        }
+    }
+
+    /**
+     * Add the names starting with the completed word prefix, ignoring case if completion is case insensitive.
+     */
+    private static void completeNames(LineReader reader, ParsedLine line, CommandsRegistry registry,
+                                      List<Candidate> candidates) {
+        final String prefix = line.word().substring(0, line.wordCursor());
+        final List<String> names = reader.isSet(LineReader.Option.CASE_INSENSITIVE)
+                ? registry.namesIgnoreCase(prefix) : registry.names(prefix);
+        for (String name : names) {
+            candidates.add(new Candidate(AttributedString.stripAnsi(name), name, null, null, null, null, true));
+        }
+    }
+
+    private void completeTree(LineReader reader, ParsedLine line, Command command, int commandIndex,
+                              List<Candidate> candidates) {
+        final Completer completer = treeCompleters.computeIfAbsent(command,
+                c -> new TreeCompleter(c.createNode()));
+        completer.complete(reader, new ShiftedParsedLine(line, commandIndex), candidates);
+    }
+
+    /**
+     * Parsed line view starting at a given word, used to complete a command words with a completer expecting the
+     * command name as first word.
+     */
+    private static final class ShiftedParsedLine implements ParsedLine {
+        private final ParsedLine line;
+        private final int firstWord;
+
+        private ShiftedParsedLine(ParsedLine line, int firstWord) {
+            this.line = line;
+            this.firstWord = firstWord;
+        }
+
+        @Override
+        public String word() {
+            return line.word();
+        }
+
+        @Override
+        public int wordCursor() {
+            return line.wordCursor();
+        }
+
+        @Override
+        public int wordIndex() {
+            return line.wordIndex() - firstWord;
+        }
+
+        @Override
+        public List<String> words() {
+            final List<String> words = line.words();
+            return words.subList(firstWord, words.size());
+        }
+
+        @Override
+        public String line() {
+            return line.line();
+        }
+
+        @Override
+        public int cursor() {
+            return line.cursor();
+        }
+    }
+
+}
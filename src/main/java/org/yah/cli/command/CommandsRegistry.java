@@ -4,8 +4,10 @@ import org.jline.builtins.Completers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yah.cli.CommandLine;
+import org.yah.cli.jfr.ResolveCommandEvent;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class CommandsRegistry {
@@ -13,10 +15,28 @@ public class CommandsRegistry {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandsRegistry.class);
 
     private final Map<String, Command> commandsMap;
+    private final CommandsTrie commandsTrie;
     private final boolean strict;
 
+    // set by freeze(), read only lookup table and views of commandsMap
+    private FrozenCommands frozenCommands;
+    private Map<String, Command> frozenCommandsMap;
+    private Collection<Command> frozenCommandsList;
+
+    // merges the lazy commands on first access, null once loaded
+    private volatile Consumer<CommandsRegistry> loader;
+    // guarded by this, true while the loader runs
+    private boolean loading;
+    // guarded by this, set if the loader failed: the registry may hold part of the lazy commands only
+    private Throwable loadFailure;
+    // freeze() called before loading
+    private volatile boolean freezeOnLoad;
+    // the command owning this registry
+    private Command parent;
+
     public CommandsRegistry(boolean strict) {
         commandsMap = new LinkedHashMap<>();
+        commandsTrie = new CommandsTrie();
         this.strict = strict;
     }
 
@@ -24,37 +44,225 @@ public class CommandsRegistry {
         commands.forEach(this::merge);
     }
 
-    public void merge(Command command) {
+    public synchronized void merge(Command command) {
+        if (isFrozen() && !loading)
+            throw new IllegalStateException("Commands registry is frozen, can not merge " + command.getName());
         for (String name : command.getNames()) {
             final Command previous = commandsMap.putIfAbsent(name, command);
             if (previous != null) {
                 merge(previous, command, strict);
+            } else {
+                commandsTrie.putIfAbsent(name, command);
             }
         }
     }
 
+    /**
+     * Merge a command if its name is not mapped yet, without loading the lazy commands: a lazy command with the same
+     * name will be merged with this command when loaded.
+     *
+     * @return the command mapped by the command name: the previous one if any, this command otherwise
+     */
+    public synchronized Command putIfAbsent(Command command) {
+        final Command previous = commandsMap.get(command.getName());
+        if (previous != null)
+            return previous;
+        merge(command);
+        return command;
+    }
+
+    /**
+     * Merge the commands of loader on first access to this registry (a command lookup, completion or listing) instead
+     * of now: a group command can be created without creating its sub commands, and their parameters, completers and
+     * actions. As for {@link #merge(Command)}, the lazy commands parent is not set. They are frozen when loaded if this
+     * registry was frozen before.<br/>
+     * Exceptions of the loader, including names conflicts in a strict registry, are thrown by the first access. The
+     * following accesses throw an {@link IllegalStateException} caused by this exception, the loader is not run again.
+     *
+     * @param loader merging commands in the registry it accepts
+     */
+    public void mergeLazily(Consumer<CommandsRegistry> loader) {
+        Objects.requireNonNull(loader);
+        synchronized (this) {
+            if (loading) {
+                // merged in the registry being loaded
+                loader.accept(this);
+                return;
+            }
+            if (isFrozen())
+                throw new IllegalStateException("Commands registry is frozen, can not merge lazy commands");
+            final Consumer<CommandsRegistry> previous = this.loader;
+            this.loader = previous == null ? loader : previous.andThen(loader);
+        }
+    }
+
+    /**
+     * @return true if this registry has lazy commands not loaded yet
+     */
+    public boolean isLazy() {
+        return loader != null;
+    }
+
+    private void load() {
+        if (loader != null)
+            doLoad();
+    }
+
+    private synchronized void doLoad() {
+        final Consumer<CommandsRegistry> loader = this.loader;
+        // loaded by another thread, or accessed by the loader
+        if (loader == null || loading)
+            return;
+        if (loadFailure != null)
+            throw new IllegalStateException("Failed to load the lazy commands", loadFailure);
+        loading = true;
+        try {
+            loader.accept(this);
+            if (freezeOnLoad)
+                freezeLoaded();
+            this.loader = null;
+        } catch (RuntimeException | Error e) {
+            loadFailure = e;
+            throw e;
+        } finally {
+            loading = false;
+        }
+    }
+
+    /**
+     * {@link #mergeLazily(Consumer)} the sub commands of a command builder: as the sub commands given to the builder,
+     * the commands merged by the loader are sub commands of the built command.
+     */
+    void mergeLazilySubCommands(Consumer<CommandsRegistry> loader) {
+        mergeLazily(registry -> {
+            final Set<Command> previous = Collections.newSetFromMap(new IdentityHashMap<>());
+            previous.addAll(commandsMap.values());
+            loader.accept(registry);
+            for (Command command : commandsMap.values()) {
+                if (!previous.contains(command))
+                    command.setParent(parent);
+            }
+        });
+    }
+
     public Command get(String name) {
+        load();
+        if (frozenCommands != null)
+            return frozenCommands.get(name);
         return commandsMap.get(name);
     }
 
+    private Command get(CharSequence name) {
+        load();
+        if (frozenCommands != null)
+            return frozenCommands.get(name);
+        return commandsMap.get(name.toString());
+    }
+
+    /**
+     * Make this registry and all its commands sub registries read only: commands can not be merged anymore, names
+     * lookups use an array backed table and commands qualified names and paths are computed once.<br/>
+     * Called once all commands are created (i.e. by {@link org.yah.cli.CliApplication}). A registry with lazy commands
+     * is frozen once loaded.
+     */
+    public void freeze() {
+        if (isFrozen() || deferFreeze())
+            return;
+        freezeLoaded();
+    }
+
+    private synchronized boolean deferFreeze() {
+        if (loader == null || loading)
+            return false;
+        freezeOnLoad = true;
+        return true;
+    }
+
+    private void freezeLoaded() {
+        frozenCommands = new FrozenCommands(commandsMap);
+        frozenCommandsMap = Collections.unmodifiableMap(commandsMap);
+        frozenCommandsList = Collections.unmodifiableCollection(commandsMap.values());
+        // a command is mapped by each of its names
+        Set<Command> commands = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Command command : commandsMap.values()) {
+            if (commands.add(command))
+                command.freeze();
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozenCommands != null || freezeOnLoad;
+    }
+
+    /**
+     * @param abbreviation a command name or a prefix of a command name
+     * @return the command with this name, or the only command with a name starting with this prefix. Null if none, or
+     * if the prefix is ambiguous.
+     */
+    public Command getAbbreviated(String abbreviation) {
+        load();
+        return commandsTrie.findUnique(abbreviation);
+    }
+
+    /**
+     * @return the names (including other names) starting with prefix, sorted
+     */
+    public List<String> names(String prefix) {
+        load();
+        List<String> res = new ArrayList<>();
+        commandsTrie.forEach(prefix, (name, command) -> res.add(name));
+        return res;
+    }
+
+    /**
+     * @return the names (including other names) starting with prefix ignoring case, sorted
+     */
+    public List<String> namesIgnoreCase(String prefix) {
+        load();
+        List<String> res = new ArrayList<>();
+        commandsTrie.forEachIgnoreCase(prefix, (name, command) -> res.add(name));
+        return res;
+    }
+
     public Optional<Command> resolve(CommandLine commandLine) {
+        return resolve(commandLine, false);
+    }
+
+    /**
+     * @param commandLine   the command line to resolve, resolved command names are consumed
+     * @param abbreviations true to resolve unique prefixes of command names
+     * @return the resolved command
+     */
+    public Optional<Command> resolve(CommandLine commandLine, boolean abbreviations) {
+        final ResolveCommandEvent event = new ResolveCommandEvent();
+        event.begin();
+        final long start = CommandMetrics.ENABLED ? System.nanoTime() : 0;
+        final Command command = resolveCommand(commandLine, abbreviations);
+        if (CommandMetrics.ENABLED)
+            CommandMetrics.record(command, CommandMetrics.Phase.RESOLVE, start, -1);
+        event.commit(command, commandLine);
+        return Optional.ofNullable(command);
+    }
+
+    private Command resolveCommand(CommandLine commandLine, boolean abbreviations) {
         CommandsRegistry registry = this;
         Command command = null;
         while (commandLine.hasNext()) {
-            String name = commandLine.peek();
-            Command subCommand = registry.get(name);
+            Command subCommand = abbreviations ? registry.getAbbreviated(commandLine.peek())
+                    : registry.get(commandLine.peekView());
             if (subCommand == null) {
-                return Optional.ofNullable(command);
+                return command;
             }
             commandLine.next();
 
             registry = subCommand.getSubCommands();
             command = subCommand;
         }
-        return Optional.ofNullable(command);
+        return command;
     }
 
     public List<Completers.TreeCompleter.Node> createTreeNodes() {
+        load();
         return commandsMap.values().stream()
                 .map(Command::createNode)
                 .collect(Collectors.toList());
@@ -65,28 +273,37 @@ public class CommandsRegistry {
     }
 
     public Map<String, Command> commandsMap() {
+        load();
+        if (frozenCommandsMap != null)
+            return frozenCommandsMap;
         return Collections.unmodifiableMap(commandsMap);
     }
 
     public Collection<Command> commands() {
+        load();
+        if (frozenCommandsList != null)
+            return frozenCommandsList;
         return commandsMap.values();
     }
 
     public Command command(String name) {
-        return commandsMap.get(name);
+        return get(name);
     }
 
     public List<Completers.TreeCompleter.Node> createtNodes() {
+        load();
         return commands().stream()
                 .map(Command::createNode)
                 .collect(Collectors.toList());
     }
 
     public boolean isEmpty() {
+        load();
         return commandsMap.isEmpty();
     }
 
     void setParent(Command command) {
+        parent = command;
         commandsMap.values().forEach(c -> c.setParent(command));
     }
 
@@ -99,7 +316,19 @@ public class CommandsRegistry {
             else
                 LOGGER.info(message);
         }
-        final Collection<Command> newSubCommands = command.getSubCommands().commands();
+        final CommandsRegistry subCommands = command.getSubCommands();
+        if (subCommands.isLazy()) {
+            // merged when the previous command sub commands are loaded
+            previous.getSubCommands().mergeLazily(registry -> {
+                final Collection<Command> newSubCommands = subCommands.commands();
+                for (Command subCommand : newSubCommands) {
+                    subCommand.setParent(previous);
+                }
+                registry.merge(newSubCommands);
+            });
+            return;
+        }
+        final Collection<Command> newSubCommands = subCommands.commands();
         for (Command subCommand : newSubCommands) {
             subCommand.setParent(previous);
         }
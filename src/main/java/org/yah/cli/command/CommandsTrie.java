@@ -0,0 +1,252 @@
+package org.yah.cli.command;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Compressed (radix) trie of command names.<br/>
+ * Exact lookup, unique prefix lookup and prefix enumeration cost is proportional to the name length (plus the
+ * enumerated names), not to the number of names. Children are sorted, names are enumerated in lexicographic order.
+ */
+final class CommandsTrie {
+
+    private final Node root = new Node("");
+
+    /**
+     * @return the command previously associated to name, or null if the command was added
+     */
+    Command putIfAbsent(String name, Command command) {
+        final Command previous = get(name);
+        if (previous != null)
+            return previous;
+
+        Node node = root;
+        int offset = 0;
+        while (true) {
+            node.count(command);
+            if (offset == name.length()) {
+                node.command = command;
+                return null;
+            }
+            final int index = node.indexOf(name.charAt(offset));
+            if (index < 0) {
+                final Node leaf = new Node(name.substring(offset));
+                leaf.command = command;
+                leaf.count(command);
+                node.insertChild(-index - 1, leaf);
+                return null;
+            }
+            Node child = node.children[index];
+            final int common = commonLength(child.label, name, offset);
+            if (common < child.label.length())
+                child = node.split(index, common);
+            node = child;
+            offset += common;
+        }
+    }
+
+    Command get(String name) {
+        Node node = root;
+        int offset = 0;
+        while (offset < name.length()) {
+            final int index = node.indexOf(name.charAt(offset));
+            if (index < 0)
+                return null;
+            node = node.children[index];
+            if (!name.startsWith(node.label, offset))
+                return null;
+            offset += node.label.length();
+        }
+        return node.command;
+    }
+
+    /**
+     * @param prefix a command name or a prefix of command names
+     * @return the command named prefix, or the only command having a name starting with prefix, null if none or
+     * if prefix is ambiguous
+     */
+    Command findUnique(String prefix) {
+        final Locus locus = locate(prefix);
+        if (locus == null)
+            return null;
+        if (locus.exact && locus.node.command != null)
+            return locus.node.command;
+        return locus.node.single;
+    }
+
+    /**
+     * Enumerate names starting with prefix, in lexicographic order.
+     */
+    void forEach(String prefix, BiConsumer<String, Command> consumer) {
+        final Locus locus = locate(prefix);
+        if (locus == null)
+            return;
+        final StringBuilder name = new StringBuilder(prefix);
+        name.append(locus.node.label, locus.labelOffset, locus.node.label.length());
+        forEach(locus.node, name, consumer);
+    }
+
+    /**
+     * Enumerate names starting with prefix ignoring case, in lexicographic order. Only the children matching a case
+     * variant of each prefix character are visited.
+     */
+    void forEachIgnoreCase(String prefix, BiConsumer<String, Command> consumer) {
+        forEachIgnoreCase(root, prefix, 0, new StringBuilder(), consumer);
+    }
+
+    /**
+     * @param offset the prefix characters matched by the path to node, named name
+     */
+    private void forEachIgnoreCase(Node node, String prefix, int offset, StringBuilder name,
+                                   BiConsumer<String, Command> consumer) {
+        if (offset == prefix.length()) {
+            forEach(node, name, consumer);
+            return;
+        }
+        final int length = name.length();
+        for (int index : childrenIgnoreCase(node, prefix.charAt(offset))) {
+            final Node child = node.children[index];
+            final int common = Math.min(child.label.length(), prefix.length() - offset);
+            if (child.label.regionMatches(true, 0, prefix, offset, common)) {
+                name.append(child.label);
+                forEachIgnoreCase(child, prefix, offset + common, name, consumer);
+                name.setLength(length);
+            }
+        }
+    }
+
+    /**
+     * @return the ascending indices of the children of node with a key equal to c ignoring case
+     */
+    private static int[] childrenIgnoreCase(Node node, char c) {
+        final char[] variants = {c, Character.toLowerCase(c), Character.toUpperCase(c), Character.toTitleCase(c)};
+        final int[] indices = new int[variants.length];
+        int count = 0;
+        for (char variant : variants) {
+            final int index = node.indexOf(variant);
+            if (index >= 0 && Arrays.binarySearch(indices, 0, count, index) < 0) {
+                indices[count++] = index;
+                Arrays.sort(indices, 0, count);
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    private void forEach(Node node, StringBuilder name, BiConsumer<String, Command> consumer) {
+        if (node.command != null)
+            consumer.accept(name.toString(), node.command);
+        final int length = name.length();
+        for (int i = 0; i < node.childCount; i++) {
+            final Node child = node.children[i];
+            name.append(child.label);
+            forEach(child, name, consumer);
+            name.setLength(length);
+        }
+    }
+
+    /**
+     * @return the node where prefix ends, and the prefix end offset in this node label
+     */
+    private Locus locate(String prefix) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            final int index = node.indexOf(prefix.charAt(offset));
+            if (index < 0)
+                return null;
+            node = node.children[index];
+            final int common = commonLength(node.label, prefix, offset);
+            if (common < node.label.length()) {
+                if (offset + common < prefix.length())
+                    return null;
+                return new Locus(node, common, false);
+            }
+            offset += common;
+        }
+        return new Locus(node, node.label.length(), true);
+    }
+
+    private static int commonLength(String label, String name, int offset) {
+        final int max = Math.min(label.length(), name.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == name.charAt(offset + i))
+            i++;
+        return i;
+    }
+
+    private static final class Locus {
+        private final Node node;
+        private final int labelOffset;
+        private final boolean exact;
+
+        private Locus(Node node, int labelOffset, boolean exact) {
+            this.node = node;
+            this.labelOffset = labelOffset;
+            this.exact = exact;
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        private Command command;
+
+        // children sorted by first label character
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+
+        // number of names in this sub tree, and their command if they all have the same
+        private int names;
+        private Command single;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private void count(Command command) {
+            if (names++ == 0)
+                single = command;
+            else if (single != command)
+                single = null;
+        }
+
+        private int indexOf(char key) {
+            return Arrays.binarySearch(keys, 0, childCount, key);
+        }
+
+        private void insertChild(int index, Node child) {
+            if (childCount == keys.length) {
+                final int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, index, keys, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            keys[index] = child.label.charAt(0);
+            children[index] = child;
+            childCount++;
+        }
+
+        /**
+         * Split the child at index, keeping the first length characters of its label in a new intermediate child.
+         *
+         * @return the new child
+         */
+        private Node split(int index, int length) {
+            final Node child = children[index];
+            final Node parent = new Node(child.label.substring(0, length));
+            parent.names = child.names;
+            parent.single = child.single;
+            child.label = child.label.substring(length);
+            parent.keys = new char[]{child.label.charAt(0)};
+            parent.children = new Node[]{child};
+            parent.childCount = 1;
+            children[index] = parent;
+            return parent;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.yah.cli.command;
+
+import java.util.Map;
+
+/**
+ * Immutable open addressing hash table of command names, built by {@link CommandsRegistry#freeze()}.<br/>
+ * Names, their hash and their command are stored in parallel arrays, a lookup compares the stored hashes before
+ * comparing names. Names can be looked up from a {@link CharSequence} (i.e. a command line word view) without
+ * creating a String.
+ */
+final class FrozenCommands {
+
+    private final String[] names;
+    private final int[] hashes;
+    private final Command[] commands;
+    private final int mask;
+
+    FrozenCommands(Map<String, Command> commandsMap) {
+        // load factor <= 0.75
+        final int capacity = Integer.highestOneBit(Math.max(1, commandsMap.size() * 4 / 3)) << 1;
+        names = new String[capacity];
+        hashes = new int[capacity];
+        commands = new Command[capacity];
+        mask = capacity - 1;
+        for (Map.Entry<String, Command> entry : commandsMap.entrySet()) {
+            final int hash = entry.getKey().hashCode();
+            int index = spread(hash) & mask;
+            while (names[index] != null)
+                index = (index + 1) & mask;
+            names[index] = entry.getKey();
+            hashes[index] = hash;
+            commands[index] = entry.getValue();
+        }
+    }
+
+    Command get(CharSequence name) {
+        final int hash = hash(name);
+        int index = spread(hash) & mask;
+        String current;
+        while ((current = names[index]) != null) {
+            if (hashes[index] == hash && current.contentEquals(name))
+                return commands[index];
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return the same hash as {@link String#hashCode()} for the same characters
+     */
+    private static int hash(CharSequence name) {
+        if (name instanceof String)
+            return name.hashCode();
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++)
+            hash = 31 * hash + name.charAt(i);
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
@@ -0,0 +1,66 @@
+package org.yah.cli.command;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free log-linear histogram of positive values (nanoseconds): 8 linear sub buckets per power of two, so that
+ * the value of a bucket is known within 12.5%.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long value) {
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+
+    /**
+     * @param percentile in [0, 100]
+     * @return the upper bound of the bucket containing the percentile, 0 if empty
+     */
+    long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0)
+            return 0;
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+            if (count >= rank)
+                return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long subBucket = bucket % SUB_BUCKETS;
+        final long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + width - 1 < 0 ? Long.MAX_VALUE : lowerBound + width - 1;
+    }
+
+}
@@ -36,6 +36,13 @@ public @interface CliCommand {
      */
     String help() default "";
 
+    /**
+     * @return maximum execution time of the command (i.e. <code>500ms</code>, <code>30s</code>, <code>2m</code>), no
+     * timeout if blank
+     * @see org.yah.cli.command.parameter.ParameterParsers#parseDuration(CharSequence)
+     */
+    String timeout() default "";
+
     /**
      * @return a factory to create command "node" completers (TODO: add doc on command node)
      */
@@ -13,93 +13,226 @@ import org.yah.cli.command.annotation.CliCommands;
 import org.yah.cli.command.annotation.CliParameter;
 import org.yah.cli.command.annotation.ParameterCompleter;
 import org.yah.cli.command.annotation.ParameterCompleter.DefaultParameterCompleter;
+import org.yah.cli.command.factory.CommandMethod.MethodParameter;
 import org.yah.cli.command.parameter.CommandParameter;
+import org.yah.cli.command.parameter.DoubleParameterParser;
+import org.yah.cli.command.parameter.IntParameterParser;
+import org.yah.cli.command.parameter.LongParameterParser;
 import org.yah.cli.command.parameter.ParameterParser;
 import org.yah.cli.command.parameter.ParameterParsersRegistries;
 import org.yah.cli.command.parameter.ParameterParsersRegistry;
+import org.yah.cli.command.parameter.ParsedParameter;
 
 import java.io.File;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-import static java.util.Objects.requireNonNullElse;
 import static org.apache.commons.lang3.StringUtils.trimToNull;
 import static org.yah.cli.command.factory.ParameterSuppliersRegistries.defaultSuppliers;
 import static org.yah.cli.command.parameter.ParameterParsersRegistries.defaultParsers;
 
 public class CommandAnnotationParser {
 
+    // generated populators by annotated class, looked up once per class
+    private static final ClassValue<Optional<CommandsPopulator<Object>>> POPULATORS = new ClassValue<>() {
+        @Override
+        protected Optional<CommandsPopulator<Object>> computeValue(Class<?> type) {
+            return Optional.ofNullable(findPopulator(type));
+        }
+    };
+
+    // annotated methods of a class hierarchy, scanned once per class when there is no generated populator
+    private static final ClassValue<List<AnnotatedMethod>> ANNOTATED_METHODS = new ClassValue<>() {
+        @Override
+        protected List<AnnotatedMethod> computeValue(Class<?> type) {
+            return List.copyOf(collectCommands(classHierarchy(type)));
+        }
+    };
+
     private final Function<Method, String> commandNameStrategy;
 
     private final ParameterSuppliersRegistry parameterSuppliersRegistry;
 
     private final ParameterParsersRegistry parameterParsersRegistry;
 
+    // user parsers, looked up before the compile time resolved type parsers
+    private final ParameterParsersRegistry customParametersParsersRegistry;
+
     public CommandAnnotationParser(Terminal terminal,
                                    Function<Method, String> commandNameStrategy,
                                    ParameterSuppliersRegistry parameterSuppliersRegistry,
                                    ParameterParsersRegistry parameterParsersRegistry) {
-        this.commandNameStrategy = requireNonNullElse(commandNameStrategy,
-                CommandAnnotationParser::defaultCommandName);
+        this.commandNameStrategy = commandNameStrategy;
+        // parameters types are resolved once, not for each command registration
         if (parameterSuppliersRegistry != null) {
-            this.parameterSuppliersRegistry = ParameterSuppliersRegistries.composite(
-                    parameterSuppliersRegistry,
-                    defaultSuppliers(terminal)
+            this.parameterSuppliersRegistry = ParameterSuppliersRegistries.cached(
+                    ParameterSuppliersRegistries.composite(parameterSuppliersRegistry, defaultSuppliers(terminal))
             );
         } else {
-            this.parameterSuppliersRegistry = defaultSuppliers(terminal);
+            this.parameterSuppliersRegistry = ParameterSuppliersRegistries.cached(defaultSuppliers(terminal));
         }
 
         if (parameterParsersRegistry != null) {
-            this.parameterParsersRegistry = ParameterParsersRegistries.composite(
-                    parameterParsersRegistry,
+            this.customParametersParsersRegistry = ParameterParsersRegistries.cached(parameterParsersRegistry);
+            this.parameterParsersRegistry = ParameterParsersRegistries.cached(ParameterParsersRegistries.composite(
+                    customParametersParsersRegistry,
                     defaultParsers()
-            );
+            ));
         } else {
+            this.customParametersParsersRegistry = null;
             this.parameterParsersRegistry = defaultParsers();
         }
     }
 
+    /**
+     * Register the commands of an annotated object, using the {@link CommandsPopulator} generated for its class if
+     * any, reflection otherwise.<br/>
+     * The commands of a {@link CliCommands} class are lazy sub commands of its group: they are created on first access
+     * to the group sub commands, see {@link CommandsRegistry#mergeLazily(Consumer)}.
+     */
     public void parse(Object object, CommandsRegistry registry) {
         Objects.requireNonNull(object);
 
+        final CommandsPopulator<Object> populator = POPULATORS.get(object.getClass()).orElse(null);
+        if (populator != null) {
+            populator.populate(object, this, registry);
+            return;
+        }
+
+        final Consumer<CommandsRegistry> commands = r -> {
+            for (AnnotatedMethod am : ANNOTATED_METHODS.get(object.getClass())) {
+                r.merge(createCommand(am.createCommandMethod(object)));
+            }
+        };
         final List<CliCommands> cliCommands = collectCommandsAnnotations(object.getClass());
+        if (cliCommands.isEmpty()) {
+            commands.accept(registry);
+            return;
+        }
         ListIterator<CliCommands> iterator = cliCommands.listIterator(cliCommands.size());
         while (iterator.hasPrevious()) {
             final CliCommands annotation = iterator.previous();
-                String name = trimToNull(annotation.name());
+            String name = trimToNull(annotation.name());
             if (name == null)
                 name = trimToNull(annotation.value());
-            if (name == null)
-                name = object.toString().toLowerCase();
+            if (iterator.hasPrevious())
+                registry = group(object, registry, name, annotation.description(), annotation.help());
+            else
+                group(object, registry, name, annotation.description(), annotation.help(), commands);
+        }
+    }
 
-            Command currentCommand = registry.get(name);
-            if (currentCommand == null) {
-                currentCommand = createGroupCommand(name, annotation);
-                registry.merge(currentCommand);
-            }
-            registry = currentCommand.getSubCommands();
+    /**
+     * Get or create a {@link CliCommands} group command.
+     *
+     * @param name the group name, null to use the lower case instance string
+     * @return the group sub commands
+     */
+    public CommandsRegistry group(Object instance, CommandsRegistry registry, String name, String description,
+                                  String help) {
+        if (name == null)
+            name = instance.toString().toLowerCase();
+        // the lazy commands of registry are not loaded
+        final Command currentCommand = registry.putIfAbsent(Command.cmd(name)
+                .withDescription(trimToNull(description))
+                .withHelp(trimToNull(help))
+                .build());
+        return currentCommand.getSubCommands();
+    }
+
+    /**
+     * Get or create a {@link CliCommands} group command, with lazy sub commands.
+     *
+     * @param name     the group name, null to use the lower case instance string
+     * @param commands merging the group commands in the registry it accepts, on first access to the group sub
+     *                 commands
+     * @return the group sub commands
+     */
+    public CommandsRegistry group(Object instance, CommandsRegistry registry, String name, String description,
+                                  String help, Consumer<CommandsRegistry> commands) {
+        final CommandsRegistry subCommands = group(instance, registry, name, description, help);
+        subCommands.mergeLazily(commands);
+        return subCommands;
+    }
+
+    /**
+     * @return the command of this method, with its parent commands if the method command name is qualified
+     */
+    public Command createCommand(CommandMethod commandMethod) {
+        String name = commandMethod.getName();
+        if (name == null)
+            name = commandName(commandMethod);
+        final String[] parts = name.split("\\.");
+        String cmdName = parts[parts.length - 1];
+
+        final CommandBuilder builder = Command.cmd(cmdName);
+        builder.withOtherNames(commandMethod.getOtherNames())
+                .withDescription(commandMethod.getDescription())
+                .withHelp(commandMethod.getHelp())
+                .withTimeout(commandMethod.getTimeout());
+        if (commandMethod.getCompleterFactory() != null) {
+            builder.withCompleterFactory(commandMethod.getCompleterFactory());
         }
 
-        final Set<Class<?>> hierarchy = classHierarchy(object.getClass());
+        final List<MethodParameter> parameters = commandMethod.getParameters();
+        ParameterSupplier[] suppliers = new ParameterSupplier[parameters.size()];
+        List<CommandParameter> commandParameters = new ArrayList<>();
+        for (int methodParameterIndex = 0; methodParameterIndex < parameters.size(); methodParameterIndex++) {
+            MethodParameter parameter = parameters.get(methodParameterIndex);
+            ParameterSupplier supplier = getParameterSupplier(parameter).orElse(null);
+            if (supplier == null) {
+                CommandParameter commandParameter = createCommandParameter(commandParameters.size(), parameter);
+                commandParameters.add(commandParameter);
+                supplier = parsedParameterSupplier(commandParameter);
+            }
+            suppliers[methodParameterIndex] = supplier;
+        }
+        builder.withParameters(commandParameters)
+                .withAction(new MethodCommandAction(commandMethod.getInvoker(), suppliers));
+        final Command command = builder.build();
+
+        Command res = command;
+        CommandsRegistry currentRegistry = null;
+        for (int i = 0; i < parts.length - 1; i++) {
+            String part = parts[i];
+            Command current = Command.cmd(part).build();
+            if (currentRegistry != null) {
+                currentRegistry.merge(current);
+            } else {
+                res = current;
+            }
+            currentRegistry = current.getSubCommands();
+        }
+        if (currentRegistry != null)
+            currentRegistry.merge(command);
+        return res;
+    }
 
-        List<AnnotatedMethod> commandAnnotations = collectCommands(hierarchy);
-        for (AnnotatedMethod am : commandAnnotations) {
-            registry.merge(am.createCommand(object));
+    @SuppressWarnings("unchecked")
+    private static CommandsPopulator<Object> findPopulator(Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null)
+            return null;
+        final Class<?> populatorClass;
+        try {
+            populatorClass = Class.forName(CommandsPopulator.populatorName(type), true, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
         }
+        if (!CommandsPopulator.class.isAssignableFrom(populatorClass))
+            return null;
+        return (CommandsPopulator<Object>) newInstance(populatorClass);
     }
 
-    private Command createGroupCommand(String name, CliCommands annotation) {
-        final String description = trimToNull(annotation.description());
-        final String help = trimToNull(annotation.help());
-        return Command.cmd(name)
-                .withDescription(description)
-                .withHelp(help)
-                .build();
+    private String commandName(CommandMethod commandMethod) {
+        if (commandNameStrategy != null)
+            return commandNameStrategy.apply(commandMethod.getMethod());
+        return defaultCommandName(commandMethod.getMethodName());
     }
 
     private List<CliCommands> collectCommandsAnnotations(Class<?> aClass) {
@@ -114,13 +247,13 @@ public class CommandAnnotationParser {
         return res;
     }
 
-    private List<AnnotatedMethod> collectCommands(Set<Class<?>> hierarchy) {
+    private static List<AnnotatedMethod> collectCommands(Set<Class<?>> hierarchy) {
         List<AnnotatedMethod> res = new ArrayList<>();
         hierarchy.forEach(c -> collectCommands(c.getDeclaredMethods(), res));
         return res;
     }
 
-    private Set<Class<?>> classHierarchy(Class<?> aClass) {
+    private static Set<Class<?>> classHierarchy(Class<?> aClass) {
         Set<Class<?>> hierarchy = new LinkedHashSet<>();
         Class<?> current = aClass;
         while (current != Object.class) {
@@ -131,7 +264,7 @@ public class CommandAnnotationParser {
         return hierarchy;
     }
 
-    private void collectCommands(Method[] methods, List<AnnotatedMethod> res) {
+    private static void collectCommands(Method[] methods, List<AnnotatedMethod> res) {
         for (Method method : methods) {
             final AnnotatedMethod am = createMethod(method);
             if (am != null)
@@ -139,7 +272,7 @@ public class CommandAnnotationParser {
         }
     }
 
-    private AnnotatedMethod createMethod(Method method) {
+    private static AnnotatedMethod createMethod(Method method) {
         final CliCommand annotation = method.getAnnotation(CliCommand.class);
         if (annotation != null) {
             return new AnnotatedMethod(annotation, method);
@@ -147,8 +280,7 @@ public class CommandAnnotationParser {
         return null;
     }
 
-    private static String defaultCommandName(Method method) {
-        final String s = method.getName();
+    private static String defaultCommandName(String s) {
         StringBuilder sb = new StringBuilder(s.length());
         for (int i = 0; i < s.length(); i++) {
             char c = s.charAt(i);
@@ -169,37 +301,128 @@ public class CommandAnnotationParser {
         }
     }
 
-    private Optional<ParameterSupplier> getParameterSupplier(Parameter parameter, CliParameter annotation) {
-        if (annotation != null && annotation.supplier() != CliParameter.DefaultParameterSupplier.class) {
-            return Optional.of(newInstance(annotation.supplier()));
+    private Optional<ParameterSupplier> getParameterSupplier(MethodParameter parameter) {
+        if (parameter.getSupplier() != null) {
+            return Optional.of(parameter.getSupplier());
         }
         return parameterSuppliersRegistry.get(parameter.getType());
     }
 
-    private ParameterParser getParameterParser(Parameter parameter, CliParameter annotation) {
+    private ParameterParser getParameterParser(MethodParameter parameter) {
         final ParameterParser delegateParser;
-        if (annotation != null && annotation.parser() != CliParameter.DefaultParameterParser.class) {
-            delegateParser = newInstance(annotation.parser());
+        if (parameter.getParser() != null) {
+            delegateParser = parameter.getParser();
+        } else if (parameter.getTypeParser() != null) {
+            delegateParser = customParametersParsersRegistry == null ? parameter.getTypeParser()
+                    : customParametersParsersRegistry.get(parameter.getType()).orElse(parameter.getTypeParser());
         } else {
             delegateParser = parameterParsersRegistry.get(parameter.getType())
                     .orElseThrow(unsupportedParameter(parameter));
         }
 
-        ParameterParser parser = delegateParser;
-        if (annotation != null && !annotation.defaultValue().isBlank()) {
-            final String defaultValue = annotation.defaultValue();
-            parser = (param, commandLine) -> delegateParser
-                    .parse(param, new WithDefaultCommandLine(commandLine, defaultValue));
+        if (parameter.getDefaultValue() == null)
+            return delegateParser;
+        return withDefaultValue(delegateParser, parameter.getDefaultValue());
+    }
+
+    /**
+     * @return a parser of the same primitive type as delegate, parsing defaultValue if the next word is blank
+     */
+    private static ParameterParser withDefaultValue(ParameterParser delegate, String defaultValue) {
+        if (delegate instanceof IntParameterParser) {
+            final IntParameterParser parser = (IntParameterParser) delegate;
+            return (IntParameterParser) (param, commandLine) -> parser
+                    .parseInt(param, new WithDefaultCommandLine(commandLine, defaultValue));
+        }
+        if (delegate instanceof LongParameterParser) {
+            final LongParameterParser parser = (LongParameterParser) delegate;
+            return (LongParameterParser) (param, commandLine) -> parser
+                    .parseLong(param, new WithDefaultCommandLine(commandLine, defaultValue));
         }
-        return parser;
+        if (delegate instanceof DoubleParameterParser) {
+            final DoubleParameterParser parser = (DoubleParameterParser) delegate;
+            return (DoubleParameterParser) (param, commandLine) -> parser
+                    .parseDouble(param, new WithDefaultCommandLine(commandLine, defaultValue));
+        }
+        return (param, commandLine) -> delegate.parse(param, new WithDefaultCommandLine(commandLine, defaultValue));
     }
 
-    private Supplier<UnsupportedOperationException> unsupportedParameter(Parameter parameter) {
+    private Supplier<UnsupportedOperationException> unsupportedParameter(MethodParameter parameter) {
         return () -> new UnsupportedOperationException("Unsupported parameter " + parameter.getName() + " (" + parameter
                 .getType() + ")");
     }
 
-    private class AnnotatedMethod {
+    static ParameterSupplier parsedParameterSupplier(CommandParameter commandParameter) {
+        return new ParsedParameterSupplier(commandParameter.getIndex());
+    }
+
+    private CommandParameter createCommandParameter(int index, MethodParameter parameter) {
+        ParameterParser parameterParser = getParameterParser(parameter);
+        final Completer completer = parameter.getCompleter() != null ? parameter.getCompleter()
+                : createParameterCompleter(parameter.getType());
+        return CommandParameter.builder(index)
+                .withParser(parameterParser)
+                .withCompleter(completer)
+                .withName(parameter.getName())
+                .withDescription(parameter.getDescription())
+                .build();
+    }
+
+    private static Completer createParameterCompleter(Class<?> type) {
+        Completer completer;
+        if (type.isEnum()) {
+            final Object[] enumConstants = type.getEnumConstants();
+            completer = new StringsCompleter(Arrays.stream(enumConstants)
+                    .map(o -> ((Enum<?>) o).name())
+                    .toArray(String[]::new));
+        } else if (File.class.isAssignableFrom(type) || Path.class.isAssignableFrom(type)) {
+            completer = new Completers.FileNameCompleter();
+        } else if (Boolean.class.isAssignableFrom(type) || Boolean.TYPE.isAssignableFrom(type)) {
+            completer = new StringsCompleter(Boolean.TRUE.toString(), Boolean.FALSE.toString());
+        } else {
+            completer = PassthroughCompleter.INSTANCE;
+        }
+
+        if (!type.isPrimitive()) {
+            completer = new NullableCompleter(completer);
+        }
+
+        return completer;
+    }
+
+    /**
+     * Supply a parsed parameter value, without boxing primitive values.
+     */
+    private static final class ParsedParameterSupplier implements ParameterSupplier {
+
+        private final int index;
+
+        private ParsedParameterSupplier(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object get(Command command, List<ParsedParameter> parsedParameters) {
+            return parsedParameters.get(index).getParsedValue();
+        }
+
+        @Override
+        public int getInt(Command command, List<ParsedParameter> parsedParameters) {
+            return parsedParameters.get(index).getInt();
+        }
+
+        @Override
+        public long getLong(Command command, List<ParsedParameter> parsedParameters) {
+            return parsedParameters.get(index).getLong();
+        }
+
+        @Override
+        public double getDouble(Command command, List<ParsedParameter> parsedParameters) {
+            return parsedParameters.get(index).getDouble();
+        }
+    }
+
+    private static class AnnotatedMethod {
 
         private final CliCommand annotation;
         private final Method method;
@@ -209,114 +432,52 @@ public class CommandAnnotationParser {
             this.method = method;
         }
 
-        public Command createCommand(Object instance) {
-            String name = getName();
-            final String[] parts = name.split("\\.");
-            String cmdName = parts[parts.length - 1];
-
-            final CommandBuilder builder = Command.cmd(cmdName);
-            builder.withOtherNames(annotation.otherNames())
-                    .withDescription(trimToNull(annotation.description()))
-                    .withHelp(trimToNull(annotation.help()));
+        public CommandMethod createCommandMethod(Object instance) {
+            final CommandMethod.Builder builder = CommandMethod.builder(method.getDeclaringClass(), method.getName())
+                    .withMethod(method)
+                    .withName(getName())
+                    .withOtherNames(annotation.otherNames())
+                    .withDescription(annotation.description())
+                    .withHelp(annotation.help())
+                    .withTimeout(annotation.timeout())
+                    .withInvoker(CommandMethod.methodInvoker(instance, method));
             if (annotation.completerFactory() != CliCommand.DefaultCompleterFactory.class) {
                 builder.withCompleterFactory(newInstance(annotation.completerFactory()));
             }
 
-            ParameterSupplier[] suppliers = new ParameterSupplier[method.getParameterCount()];
-            final Parameter[] parameters = method.getParameters();
-            List<CommandParameter> commandParameters = new ArrayList<>();
-            for (int methodParameterIndex = 0; methodParameterIndex < parameters.length; methodParameterIndex++) {
-                Parameter parameter = parameters[methodParameterIndex];
+            for (Parameter parameter : method.getParameters()) {
                 final CliParameter parameterAnnotation = parameter.getAnnotation(CliParameter.class);
-                ParameterSupplier supplier = getParameterSupplier(parameter, parameterAnnotation).orElse(null);
-                if (supplier == null) {
-                    CommandParameter commandParameter = createCommandParameter(commandParameters
-                            .size(), parameter, parameterAnnotation);
-                    commandParameters.add(commandParameter);
-                    supplier = parsedParameterSupplier(commandParameter);
-                }
-                suppliers[methodParameterIndex] = supplier;
-            }
-            builder.withParameters(commandParameters)
-                    .withAction(new MethodCommandAction(instance,
-                            method,
-                            suppliers));
-            final Command command = builder.build();
-
-            Command res = command;
-            CommandsRegistry currentRegistry = null;
-            for (int i = 0; i < parts.length - 1; i++) {
-                String part = parts[i];
-                Command current = Command.cmd(part).build();
-                if (currentRegistry != null) {
-                    currentRegistry.merge(current);
-                } else {
-                    res = current;
+                final MethodParameter.Builder parameterBuilder = CommandMethod.parameter(parameter.getType(),
+                        parameter.isNamePresent() ? parameter.getName() : null);
+                if (parameterAnnotation != null) {
+                    parameterBuilder.withDescription(parameterAnnotation.description())
+                            .withDefaultValue(parameterAnnotation.defaultValue())
+                            .withCompleter(createParameterCompleter(parameterAnnotation));
+                    if (parameterAnnotation.supplier() != CliParameter.DefaultParameterSupplier.class)
+                        parameterBuilder.withSupplier(newInstance(parameterAnnotation.supplier()));
+                    else if (parameterAnnotation.parser() != CliParameter.DefaultParameterParser.class)
+                        parameterBuilder.withParser(newInstance(parameterAnnotation.parser()));
                 }
-                currentRegistry = current.getSubCommands();
+                builder.withParameter(parameterBuilder);
             }
-            if (currentRegistry != null)
-                currentRegistry.merge(command);
-            return res;
-        }
-
-        private ParameterSupplier parsedParameterSupplier(CommandParameter commandParameter) {
-            return (command, parsedParameters) -> parsedParameters.get(commandParameter.getIndex()).getParsedValue();
-        }
-
-        private CommandParameter createCommandParameter(int index, Parameter parameter, CliParameter annotation) {
-            ParameterParser parameterParser = getParameterParser(parameter, annotation);
-            return CommandParameter.builder(index)
-                    .withParser(parameterParser)
-                    .withCompleter(createParameterCompleter(parameter, annotation))
-                    .withName(parameter.isNamePresent() ? parameter.getName() : null)
-                    .withDescription(getParameterDescription(annotation))
-                    .build();
+            return builder.build();
         }
 
-        private Completer createParameterCompleter(Parameter parameter, CliParameter annotation) {
-            if (annotation != null) {
-                final ParameterCompleter completer = annotation.completer();
-                if (completer.factory() != DefaultParameterCompleter.class) {
-                    return newInstance(completer.factory()).get();
-                }
-
-                if (completer.value().length > 0) {
-                    return new StringsCompleter(completer.value());
-                }
-            }
-            return createParameterCompleter(parameter.getType());
-        }
-
-        private Completer createParameterCompleter(Class<?> type) {
-            Completer completer;
-            if (type.isEnum()) {
-                final Object[] enumConstants = type.getEnumConstants();
-                completer = new StringsCompleter(Arrays.stream(enumConstants)
-                        .map(o -> ((Enum<?>) o).name())
-                        .toArray(String[]::new));
-            } else if (File.class.isAssignableFrom(type) || Path.class.isAssignableFrom(type)) {
-                completer = new Completers.FileNameCompleter();
-            } else if (Boolean.class.isAssignableFrom(type) || Boolean.TYPE.isAssignableFrom(type)) {
-                completer = new StringsCompleter(Boolean.TRUE.toString(), Boolean.FALSE.toString());
-            } else {
-                completer = PassthroughCompleter.INSTANCE;
+        private Completer createParameterCompleter(CliParameter annotation) {
+            final ParameterCompleter completer = annotation.completer();
+            if (completer.factory() != DefaultParameterCompleter.class) {
+                return newInstance(completer.factory()).get();
             }
 
-            if (!type.isPrimitive()) {
-                completer = new NullableCompleter(completer);
+            if (completer.value().length > 0) {
+                return new StringsCompleter(completer.value());
             }
-
-            return completer;
-        }
-
-        private String getParameterDescription(CliParameter annotation) {
-            return annotation == null ? null : trimToNull(annotation.description());
+            return null;
         }
 
         private String getName() {
             if (annotation.value().isBlank() && annotation.name().isBlank())
-                return commandNameStrategy.apply(method);
+                return null;
             if (annotation.name().isBlank())
                 return annotation.value();
             return annotation.name();
@@ -0,0 +1,420 @@
+package org.yah.cli.command.factory;
+
+import org.jline.reader.Completer;
+import org.yah.cli.Pipeline;
+import org.yah.cli.command.Command.CompleterFactory;
+import org.yah.cli.command.parameter.ParameterParser;
+import org.yah.cli.command.parameter.ParameterParsers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.StringUtils.trimToNull;
+
+/**
+ * An annotated command method, as described by its {@link org.yah.cli.command.annotation.CliCommand} and
+ * {@link org.yah.cli.command.annotation.CliParameter} annotations.<br/>
+ * Created from the {@link Method} by {@link CommandAnnotationParser}, or from constants by a
+ * {@link CommandsPopulator} generated at compile time, in which case the method is invoked directly and no
+ * annotation is read at runtime.
+ */
+public final class CommandMethod {
+
+    public static Builder builder(Class<?> declaringClass, String methodName) {
+        return new Builder(declaringClass, methodName);
+    }
+
+    public static MethodParameter.Builder parameter(Class<?> type, String name) {
+        return new MethodParameter.Builder(type, name);
+    }
+
+    /**
+     * @return an invoker calling method without {@link Method#invoke(Object, Object...)}: through a lambda created by
+     * {@link java.lang.invoke.LambdaMetafactory} when possible, otherwise through a {@link MethodHandle} bound to
+     * instance and spreading the arguments array. The result of a method returning a {@link Pipeline} output is
+     * written with {@link Pipeline#output(Object)}.
+     */
+    public static Invoker methodInvoker(Object instance, Method method) {
+        if (Pipeline.isOutputType(method.getReturnType()))
+            return methodHandleInvoker(instance, method);
+        final Invoker lambdaInvoker = LambdaInvokers.create(instance, method);
+        return lambdaInvoker != null ? lambdaInvoker : methodHandleInvoker(instance, method);
+    }
+
+    static Invoker methodHandleInvoker(Object instance, Method method) {
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!method.canAccess(isStatic ? null : instance))
+            method.setAccessible(true);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access command method " + method, e);
+        }
+        if (!isStatic)
+            handle = handle.bindTo(instance);
+        final int count = method.getParameterCount();
+        if (Pipeline.isOutputType(method.getReturnType())) {
+            final MethodHandle spreader = handle
+                    .asType(MethodType.genericMethodType(count))
+                    .asSpreader(Object[].class, count);
+            return arguments -> {
+                final Object result;
+                try {
+                    result = spreader.invokeExact(arguments.toArray());
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UndeclaredThrowableException(e);
+                }
+                Pipeline.output(result);
+            };
+        }
+        final MethodHandle spreader = handle
+                .asType(MethodType.genericMethodType(count).changeReturnType(void.class))
+                .asSpreader(Object[].class, count);
+        return arguments -> {
+            try {
+                spreader.invokeExact(arguments.toArray());
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
+    }
+
+    /**
+     * @return an invoker calling the declared method, used by generated code for methods that can not be called
+     * directly (i.e. private methods)
+     */
+    public static Invoker methodInvoker(Object instance, Class<?> declaringClass, String methodName,
+                                        Class<?>... parameterTypes) {
+        return methodInvoker(instance, declaredMethod(declaringClass, methodName, parameterTypes));
+    }
+
+    private final Class<?> declaringClass;
+    private final String methodName;
+    private final String name;
+    private final String[] otherNames;
+    private final String description;
+    private final String help;
+    private final Duration timeout;
+    private final CompleterFactory completerFactory;
+    private final List<MethodParameter> parameters;
+    private final Invoker invoker;
+    private Method method;
+
+    private CommandMethod(Builder builder) {
+        this.declaringClass = builder.declaringClass;
+        this.methodName = builder.methodName;
+        this.name = builder.name;
+        this.otherNames = builder.otherNames;
+        this.description = builder.description;
+        this.help = builder.help;
+        this.timeout = builder.timeout;
+        this.completerFactory = builder.completerFactory;
+        this.parameters = List.copyOf(builder.parameters);
+        this.invoker = Objects.requireNonNull(builder.invoker, "invoker");
+        this.method = builder.method;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return the command qualified name from the annotation, null to use the command name strategy
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String[] getOtherNames() {
+        return otherNames;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return the command timeout, null if none
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public CompleterFactory getCompleterFactory() {
+        return completerFactory;
+    }
+
+    public List<MethodParameter> getParameters() {
+        return parameters;
+    }
+
+    public Invoker getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * @return the annotated method, looked up from its declaring class if this command method was generated
+     */
+    public Method getMethod() {
+        if (method == null) {
+            method = declaredMethod(declaringClass, methodName, parameters.stream()
+                    .map(MethodParameter::getType)
+                    .toArray(Class<?>[]::new));
+        }
+        return method;
+    }
+
+    private static Method declaredMethod(Class<?> declaringClass, String methodName, Class<?>[] parameterTypes) {
+        try {
+            return declaringClass.getDeclaredMethod(methodName, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Command method " + declaringClass.getName() + "." + methodName +
+                    " not found", e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Invoker {
+        void invoke(Arguments arguments) throws Exception;
+    }
+
+    /**
+     * The arguments of a command method invocation.<br/>
+     * The primitive accessors do not box values parsed by primitive parameters parsers, they are used by generated
+     * populators for int, long and double parameters.
+     */
+    public interface Arguments {
+
+        int size();
+
+        Object get(int index);
+
+        int getInt(int index);
+
+        long getLong(int index);
+
+        double getDouble(int index);
+
+        default Object[] toArray() {
+            final Object[] res = new Object[size()];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = get(i);
+            }
+            return res;
+        }
+    }
+
+    public static final class Builder {
+        private final Class<?> declaringClass;
+        private final String methodName;
+        private String name;
+        private String[] otherNames = new String[0];
+        private String description;
+        private String help;
+        private Duration timeout;
+        private CompleterFactory completerFactory;
+        private final List<MethodParameter> parameters = new ArrayList<>();
+        private Invoker invoker;
+        private Method method;
+
+        private Builder(Class<?> declaringClass, String methodName) {
+            this.declaringClass = Objects.requireNonNull(declaringClass);
+            this.methodName = Objects.requireNonNull(methodName);
+        }
+
+        /**
+         * @param name the command qualified name, null or blank to use the command name strategy
+         */
+        public Builder withName(String name) {
+            this.name = name == null || name.isBlank() ? null : name;
+            return this;
+        }
+
+        public Builder withOtherNames(String... otherNames) {
+            this.otherNames = otherNames;
+            return this;
+        }
+
+        public Builder withDescription(String description) {
+            this.description = trimToNull(description);
+            return this;
+        }
+
+        public Builder withHelp(String help) {
+            this.help = trimToNull(help);
+            return this;
+        }
+
+        /**
+         * @param timeout the command timeout, null or blank for no timeout
+         * @throws IllegalArgumentException if timeout is not a valid duration
+         * @see ParameterParsers#parseDuration(CharSequence)
+         */
+        public Builder withTimeout(String timeout) {
+            this.timeout = timeout == null || timeout.isBlank() ? null : ParameterParsers.parseDuration(timeout);
+            return this;
+        }
+
+        public Builder withCompleterFactory(CompleterFactory completerFactory) {
+            this.completerFactory = completerFactory;
+            return this;
+        }
+
+        public Builder withParameter(MethodParameter.Builder parameter) {
+            parameters.add(parameter.build());
+            return this;
+        }
+
+        public Builder withInvoker(Invoker invoker) {
+            this.invoker = invoker;
+            return this;
+        }
+
+        Builder withMethod(Method method) {
+            this.method = method;
+            return this;
+        }
+
+        public CommandMethod build() {
+            return new CommandMethod(this);
+        }
+    }
+
+    /**
+     * A command method parameter. Parameters without supplier are parsed from the command line.
+     */
+    public static final class MethodParameter {
+        private final Class<?> type;
+        private final String name;
+        private final String description;
+        private final String defaultValue;
+        private final ParameterSupplier supplier;
+        private final ParameterParser parser;
+        private final ParameterParser typeParser;
+        private final Completer completer;
+
+        private MethodParameter(Builder builder) {
+            this.type = builder.type;
+            this.name = builder.name;
+            this.description = builder.description;
+            this.defaultValue = builder.defaultValue;
+            this.supplier = builder.supplier;
+            this.parser = builder.parser;
+            this.typeParser = builder.typeParser;
+            this.completer = builder.completer;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * @return the supplier set by the parameter annotation, null to use the parameter suppliers registry
+         */
+        public ParameterSupplier getSupplier() {
+            return supplier;
+        }
+
+        /**
+         * @return the parser set by the parameter annotation, null to use the parameter parsers registry
+         */
+        public ParameterParser getParser() {
+            return parser;
+        }
+
+        /**
+         * @return the default parser of this parameter type resolved at compile time, null to use the default
+         * parameter parsers registry
+         */
+        public ParameterParser getTypeParser() {
+            return typeParser;
+        }
+
+        /**
+         * @return the completer set by the parameter annotation, null to use the parameter type completer
+         */
+        public Completer getCompleter() {
+            return completer;
+        }
+
+        public static final class Builder {
+            private final Class<?> type;
+            private final String name;
+            private String description;
+            private String defaultValue;
+            private ParameterSupplier supplier;
+            private ParameterParser parser;
+            private ParameterParser typeParser;
+            private Completer completer;
+
+            private Builder(Class<?> type, String name) {
+                this.type = Objects.requireNonNull(type);
+                this.name = name;
+            }
+
+            public Builder withDescription(String description) {
+                this.description = trimToNull(description);
+                return this;
+            }
+
+            public Builder withDefaultValue(String defaultValue) {
+                this.defaultValue = defaultValue == null || defaultValue.isBlank() ? null : defaultValue;
+                return this;
+            }
+
+            public Builder withSupplier(ParameterSupplier supplier) {
+                this.supplier = supplier;
+                return this;
+            }
+
+            public Builder withParser(ParameterParser parser) {
+                this.parser = parser;
+                return this;
+            }
+
+            public Builder withTypeParser(ParameterParser typeParser) {
+                this.typeParser = typeParser;
+                return this;
+            }
+
+            public Builder withCompleter(Completer completer) {
+                this.completer = completer;
+                return this;
+            }
+
+            MethodParameter build() {
+                return new MethodParameter(this);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.yah.cli.command.factory;
+
+import org.yah.cli.command.CommandsRegistry;
+
+/**
+ * Register the annotated commands of a class without reflection.<br/>
+ * Implementations are generated at compile time by the java-cli-processor annotation processor, in the package of
+ * the annotated class, and named after its binary name: <code>com.acme.Outer$Inner</code> commands are populated by
+ * <code>com.acme.Outer_Inner_CliCommands</code>.<br/>
+ * Used by {@link CommandAnnotationParser#parse(Object, CommandsRegistry)} when present for the parsed object class.
+ *
+ * @param <T> the annotated class
+ */
+public interface CommandsPopulator<T> {
+
+    String SUFFIX = "_CliCommands";
+
+    void populate(T instance, CommandAnnotationParser parser, CommandsRegistry registry);
+
+    /**
+     * @return the name of the populator generated for type
+     */
+    static String populatorName(Class<?> type) {
+        final String packageName = type.getPackageName();
+        String simpleBinaryName = type.getName();
+        if (!packageName.isEmpty())
+            simpleBinaryName = simpleBinaryName.substring(packageName.length() + 1);
+        final String name = simpleBinaryName.replace('$', '_') + SUFFIX;
+        return packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+}
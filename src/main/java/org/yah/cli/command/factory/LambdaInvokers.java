@@ -0,0 +1,153 @@
+package org.yah.cli.command.factory;
+
+import org.yah.cli.command.factory.CommandMethod.Invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Create {@link Invoker}s calling a command method through a lambda spun by {@link LambdaMetafactory}, so that the
+ * method is invoked like from a generated populator instead of going through reflection.<br/>
+ * The lambda implements one of the arity specific interfaces below, defined in the method declaring class nest using
+ * a private lookup. Returns null when the lambda can not be created (too many parameters, declaring class in a
+ * module not opened to java-cli, interfaces not visible from the declaring class loader).<br/>
+ * The lambda class is spun once per method, later invokers of the same method only bind a new instance.
+ */
+final class LambdaInvokers {
+
+    private static final Class<?>[] INTERFACES = {
+            Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class,
+            Invoker4.class, Invoker5.class, Invoker6.class, Invoker7.class
+    };
+
+    // lambda factories by declaring class and method, empty if the lambda can not be created
+    private static final ClassValue<Map<Method, Optional<MethodHandle>>> FACTORIES = new ClassValue<>() {
+        @Override
+        protected Map<Method, Optional<MethodHandle>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private LambdaInvokers() {
+    }
+
+    static Invoker create(Object instance, Method method) {
+        final int count = method.getParameterCount();
+        if (count >= INTERFACES.length || method.isVarArgs())
+            return null;
+        final MethodHandle factory = FACTORIES.get(method.getDeclaringClass())
+                .computeIfAbsent(method, LambdaInvokers::createFactory)
+                .orElse(null);
+        if (factory == null)
+            return null;
+        final Object lambda;
+        try {
+            lambda = Modifier.isStatic(method.getModifiers()) ? factory.invoke() : factory.invoke(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error creating invoker of " + method, e);
+        }
+        return adapt(count, lambda);
+    }
+
+    private static Optional<MethodHandle> createFactory(Method method) {
+        final int count = method.getParameterCount();
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        final Class<?> declaringClass = method.getDeclaringClass();
+        final Class<?> interfaceClass = INTERFACES[count];
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+            final MethodHandle implementation = lookup.unreflect(method);
+            final MethodType invokedType = isStatic ? MethodType.methodType(interfaceClass)
+                    : MethodType.methodType(interfaceClass, declaringClass);
+            // primitive parameters are instantiated with their wrapper, unboxed when calling the implementation
+            final MethodType instantiatedType = MethodType.methodType(void.class, method.getParameterTypes())
+                    .wrap().changeReturnType(void.class);
+            final CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke", invokedType,
+                    MethodType.genericMethodType(count).changeReturnType(void.class),
+                    implementation, instantiatedType);
+            return Optional.of(callSite.getTarget());
+        } catch (IllegalAccessException | LambdaConversionException | LinkageError | SecurityException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Invoker adapt(int count, Object lambda) {
+        switch (count) {
+            case 0:
+                final Invoker0 i0 = (Invoker0) lambda;
+                return arguments -> i0.invoke();
+            case 1:
+                final Invoker1 i1 = (Invoker1) lambda;
+                return arguments -> i1.invoke(arguments.get(0));
+            case 2:
+                final Invoker2 i2 = (Invoker2) lambda;
+                return arguments -> i2.invoke(arguments.get(0), arguments.get(1));
+            case 3:
+                final Invoker3 i3 = (Invoker3) lambda;
+                return arguments -> i3.invoke(arguments.get(0), arguments.get(1), arguments.get(2));
+            case 4:
+                final Invoker4 i4 = (Invoker4) lambda;
+                return arguments -> i4.invoke(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3));
+            case 5:
+                final Invoker5 i5 = (Invoker5) lambda;
+                return arguments -> i5.invoke(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3),
+                        arguments.get(4));
+            case 6:
+                final Invoker6 i6 = (Invoker6) lambda;
+                return arguments -> i6.invoke(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3),
+                        arguments.get(4), arguments.get(5));
+            case 7:
+                final Invoker7 i7 = (Invoker7) lambda;
+                return arguments -> i7.invoke(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3),
+                        arguments.get(4), arguments.get(5), arguments.get(6));
+            default:
+                throw new IllegalArgumentException("Unsupported arity " + count);
+        }
+    }
+
+    // public so that lambdas defined in the command classes packages can implement them
+
+    public interface Invoker0 {
+        void invoke() throws Exception;
+    }
+
+    public interface Invoker1 {
+        void invoke(Object a0) throws Exception;
+    }
+
+    public interface Invoker2 {
+        void invoke(Object a0, Object a1) throws Exception;
+    }
+
+    public interface Invoker3 {
+        void invoke(Object a0, Object a1, Object a2) throws Exception;
+    }
+
+    public interface Invoker4 {
+        void invoke(Object a0, Object a1, Object a2, Object a3) throws Exception;
+    }
+
+    public interface Invoker5 {
+        void invoke(Object a0, Object a1, Object a2, Object a3, Object a4) throws Exception;
+    }
+
+    public interface Invoker6 {
+        void invoke(Object a0, Object a1, Object a2, Object a3, Object a4, Object a5) throws Exception;
+    }
+
+    public interface Invoker7 {
+        void invoke(Object a0, Object a1, Object a2, Object a3, Object a4, Object a5, Object a6) throws Exception;
+    }
+
+}
@@ -2,43 +2,73 @@ package org.yah.cli.command.factory;
 
 import org.yah.cli.command.BuilderActions.ParsedParametersCommandAction;
 import org.yah.cli.command.Command;
+import org.yah.cli.command.factory.CommandMethod.Arguments;
+import org.yah.cli.command.factory.CommandMethod.Invoker;
 import org.yah.cli.command.parameter.ParsedParameter;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 
 
 class MethodCommandAction implements ParsedParametersCommandAction {
 
-    private final Object instance;
-    private final Method method;
+    private final Invoker invoker;
 
     private final ParameterSupplier[] parametersSuppliers;
 
     MethodCommandAction(Object instance, Method method, ParameterSupplier[] parametersSuppliers) {
+        this(CommandMethod.methodInvoker(instance, method), parametersSuppliers);
         if (parametersSuppliers.length != method.getParameterCount())
             throw new IllegalStateException("parameters suppliers and method parameters count mismatch");
-        this.instance = instance;
-        this.method = method;
-        if (!method.canAccess(instance))
-            method.setAccessible(true);
+    }
+
+    MethodCommandAction(Invoker invoker, ParameterSupplier[] parametersSuppliers) {
+        this.invoker = invoker;
         this.parametersSuppliers = parametersSuppliers;
     }
 
     @Override
     public void run(Command command, List<ParsedParameter> parameters) throws Exception {
-        Object[] params = new Object[parametersSuppliers.length];
-        for (int i = 0; i < parametersSuppliers.length; i++) {
-            params[i] = parametersSuppliers[i].get(command, parameters);
+        invoker.invoke(new SuppliedArguments(command, parameters));
+    }
+
+    /**
+     * Arguments supplied on demand by the parameters suppliers.
+     */
+    private final class SuppliedArguments implements Arguments {
+
+        private final Command command;
+
+        private final List<ParsedParameter> parameters;
+
+        private SuppliedArguments(Command command, List<ParsedParameter> parameters) {
+            this.command = command;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public int size() {
+            return parametersSuppliers.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            return parametersSuppliers[index].get(command, parameters);
+        }
+
+        @Override
+        public int getInt(int index) {
+            return parametersSuppliers[index].getInt(command, parameters);
+        }
+
+        @Override
+        public long getLong(int index) {
+            return parametersSuppliers[index].getLong(command, parameters);
         }
-        try {
-            method.invoke(instance, params);
-        } catch (InvocationTargetException e) {
-            final Throwable targetException = e.getTargetException();
-            if(targetException instanceof Exception)
-                throw (Exception)targetException;
-            throw e;
+
+        @Override
+        public double getDouble(int index) {
+            return parametersSuppliers[index].getDouble(command, parameters);
         }
     }
 
@@ -9,4 +9,25 @@ public interface ParameterSupplier {
 
     Object get(Command command, List<ParsedParameter> parsedParameters);
 
+    /**
+     * @return the supplied value of an int parameter, overridden to avoid boxing
+     */
+    default int getInt(Command command, List<ParsedParameter> parsedParameters) {
+        return ((Number) get(command, parsedParameters)).intValue();
+    }
+
+    /**
+     * @return the supplied value of a long parameter, overridden to avoid boxing
+     */
+    default long getLong(Command command, List<ParsedParameter> parsedParameters) {
+        return ((Number) get(command, parsedParameters)).longValue();
+    }
+
+    /**
+     * @return the supplied value of a double parameter, overridden to avoid boxing
+     */
+    default double getDouble(Command command, List<ParsedParameter> parsedParameters) {
+        return ((Number) get(command, parsedParameters)).doubleValue();
+    }
+
 }
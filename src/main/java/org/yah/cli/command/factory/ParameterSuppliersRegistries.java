@@ -1,11 +1,17 @@
 package org.yah.cli.command.factory;
 
 import org.jline.terminal.Terminal;
+import org.yah.cli.ExecutionContext;
+import org.yah.cli.Pipeline;
 import org.yah.cli.command.Command;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 public final class ParameterSuppliersRegistries {
 
@@ -18,6 +24,18 @@ public final class ParameterSuppliersRegistries {
             if (Terminal.class.isAssignableFrom(parameterType)) {
                 supplier = (command, parameters) -> terminal;
             }
+            if (ExecutionContext.class == parameterType) {
+                supplier = (command, parameters) -> ExecutionContext.current();
+            }
+            if (Stream.class == parameterType) {
+                supplier = (command, parameters) -> Pipeline.inputStream();
+            }
+            if (Iterator.class == parameterType) {
+                supplier = (command, parameters) -> Pipeline.inputIterator();
+            }
+            if (Flow.Publisher.class == parameterType) {
+                supplier = (command, parameters) -> Pipeline.inputPublisher();
+            }
             return Optional.ofNullable(supplier);
         };
     }
@@ -27,14 +45,48 @@ public final class ParameterSuppliersRegistries {
     }
 
     public static ParameterSuppliersRegistry composite(Collection<ParameterSuppliersRegistry> registries) {
-        return parameterType -> registries.stream()
-                                          .map(r -> r.get(parameterType))
-                                          .filter(Optional::isPresent)
-                                          .map(Optional::get)
-                                          .findFirst();
+        final ParameterSuppliersRegistry[] delegates = registries.toArray(ParameterSuppliersRegistry[]::new);
+        return parameterType -> {
+            for (ParameterSuppliersRegistry delegate : delegates) {
+                final Optional<ParameterSupplier> supplier = delegate.get(parameterType);
+                if (supplier.isPresent())
+                    return supplier;
+            }
+            return Optional.empty();
+        };
+    }
+
+    /**
+     * @return a registry resolving the supplier of each parameter type once from registry, including missing
+     * suppliers. registry must always return the same result for a given type.
+     */
+    public static ParameterSuppliersRegistry cached(ParameterSuppliersRegistry registry) {
+        if (registry instanceof CachedSuppliersRegistry)
+            return registry;
+        return new CachedSuppliersRegistry(registry);
     }
 
     private ParameterSuppliersRegistries() {
     }
 
+    private static final class CachedSuppliersRegistry implements ParameterSuppliersRegistry {
+
+        private final ClassValue<Optional<ParameterSupplier>> suppliers;
+
+        private CachedSuppliersRegistry(ParameterSuppliersRegistry delegate) {
+            Objects.requireNonNull(delegate);
+            suppliers = new ClassValue<>() {
+                @Override
+                protected Optional<ParameterSupplier> computeValue(Class<?> parameterType) {
+                    return Objects.requireNonNull(delegate.get(parameterType));
+                }
+            };
+        }
+
+        @Override
+        public Optional<ParameterSupplier> get(Class<?> parameterType) {
+            return suppliers.get(parameterType);
+        }
+    }
+
 }
@@ -18,12 +18,23 @@ public class WithDefaultCommandLine implements CommandLine {
         return orDefault(delegate.peek());
     }
 
+    @Override
+    public CharSequence peekView() {
+        return orDefaultView(delegate.peekView());
+    }
+
     @Override
     public String flush() {
         fetched = true;
         return orDefault(delegate.flush());
     }
 
+    @Override
+    public CharSequence flushView() {
+        fetched = true;
+        return orDefaultView(delegate.flushView());
+    }
+
     @Override
     public boolean hasNext() {
         if (fetched)
@@ -38,6 +49,23 @@ public class WithDefaultCommandLine implements CommandLine {
         return res;
     }
 
+    @Override
+    public CharSequence nextView() {
+        final CharSequence res = orDefaultView(delegate.nextView());
+        fetched = true;
+        return res;
+    }
+
+    @Override
+    public int length() {
+        return delegate.length();
+    }
+
+    @Override
+    public int wordCount() {
+        return delegate.wordCount();
+    }
+
     private String orDefault(String s) {
         if (fetched) return s;
         if (StringUtils.trimToNull(s) == null)
@@ -45,4 +73,22 @@ public class WithDefaultCommandLine implements CommandLine {
         return s;
     }
 
+    private CharSequence orDefaultView(CharSequence s) {
+        if (fetched) return s;
+        if (s == null || isTrimmedEmpty(s))
+            return defaultValue;
+        return s;
+    }
+
+    /**
+     * @return true if {@link StringUtils#trimToNull(String)} would return null for this text
+     */
+    private static boolean isTrimmedEmpty(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > ' ')
+                return false;
+        }
+        return true;
+    }
+
 }
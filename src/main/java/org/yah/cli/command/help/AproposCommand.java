@@ -0,0 +1,81 @@
+package org.yah.cli.command.help;
+
+import org.apache.commons.lang3.StringUtils;
+import org.fusesource.jansi.Ansi;
+import org.jline.terminal.Terminal;
+import org.yah.cli.CommandLine;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsRegistry;
+
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.stream.Collectors;
+
+import static org.fusesource.jansi.Ansi.ansi;
+
+/**
+ * <code>apropos</code> command, searching the commands names, descriptions, help and parameters with a
+ * {@link CommandsIndex}.
+ */
+public class AproposCommand {
+
+    public static final String LINE_SEPARATOR = System.lineSeparator();
+
+    public static Command create(CommandsRegistry registry, Terminal terminal, ResourceBundle commandResources) {
+        AproposCommand ac = new AproposCommand(registry, terminal, commandResources);
+        return Command.cmd("apropos")
+                .withDescription("Search the commands.")
+                .withHelp("List the commands with all the given words, or words starting with them, in their names, " +
+                        "descriptions, help or parameters. Best matches first.")
+                .withAction(ac::search)
+                .build();
+    }
+
+    private final CommandsRegistry registry;
+    private final Terminal terminal;
+    private final CommandTexts texts;
+
+    // built on first search once the registry is frozen
+    private volatile CommandsIndex index;
+
+    public AproposCommand(CommandsRegistry registry, Terminal terminal, ResourceBundle commandResources) {
+        this.registry = registry;
+        this.terminal = terminal;
+        this.texts = new CommandTexts(commandResources);
+    }
+
+    private void search(CommandLine commandLine) {
+        final String query = commandLine.hasNext() ? commandLine.flush() : "";
+        if (StringUtils.isBlank(query)) {
+            terminal.writer().println("Usage: apropos <word>...");
+            return;
+        }
+        final List<Command> commands = index().search(query);
+        if (commands.isEmpty()) {
+            terminal.writer().println(query + ": nothing appropriate.");
+            return;
+        }
+
+        final List<String> names = commands.stream()
+                .map(c -> c.getPath().stream().map(Command::getName).collect(Collectors.joining(" ")))
+                .collect(Collectors.toList());
+        final int maxLength = names.stream().mapToInt(String::length).max().orElse(0);
+        final Ansi ansi = ansi();
+        for (int i = 0; i < commands.size(); i++) {
+            ansi.fgBrightDefault().a("  ").a(StringUtils.rightPad(names.get(i), maxLength + 1)).reset();
+            ansi.a(": ").a(texts.getDescription(commands.get(i), "No description."));
+            ansi.a(LINE_SEPARATOR);
+        }
+        terminal.writer().write(ansi.toString());
+    }
+
+    private CommandsIndex index() {
+        if (!registry.isFrozen())
+            return CommandsIndex.build(registry, texts);
+        CommandsIndex res = index;
+        if (res == null)
+            index = res = CommandsIndex.build(registry, texts);
+        return res;
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.yah.cli.command.help;
+
+import org.apache.commons.lang3.StringUtils;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.parameter.CommandParameter;
+
+import java.util.ResourceBundle;
+
+/**
+ * Texts of the commands: their own, or the <code>&lt;qualified name&gt;.description</code>,
+ * <code>&lt;qualified name&gt;.help</code> and <code>&lt;qualified name&gt;.&lt;parameter&gt;.description</code>
+ * resources.
+ */
+final class CommandTexts {
+
+    private final ResourceBundle commandResources;
+
+    CommandTexts(ResourceBundle commandResources) {
+        this.commandResources = commandResources;
+    }
+
+    String getHelp(Command command) {
+        String res = command.getHelp();
+        if (res == null)
+            res = getResource(command.getQualifiedName() + ".help");
+        return StringUtils.trimToNull(res);
+    }
+
+    String getDescription(Command command, String defaultValue) {
+        String res = command.getDescription();
+        if (res == null)
+            res = getResource(command.getQualifiedName() + ".description");
+        res = StringUtils.trimToNull(res);
+        return res == null ? defaultValue : res;
+    }
+
+    String getParameterDescription(Command command, CommandParameter parameter, String defaultValue) {
+        if (parameter.getDescription() != null)
+            return parameter.getDescription();
+
+        if (parameter.getName() != null) {
+            String res = getResource(command.getQualifiedName() + "." + parameter.getName() + ".description");
+            if (res != null)
+                return res;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return the resource, null if missing
+     */
+    private String getResource(String key) {
+        return commandResources.containsKey(key) ? commandResources.getString(key) : null;
+    }
+
+}
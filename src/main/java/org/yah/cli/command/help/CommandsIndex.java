@@ -0,0 +1,283 @@
+package org.yah.cli.command.help;
+
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.parameter.CommandParameter;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index of the commands texts, searched by the <code>apropos</code> command.<br/>
+ * Each word of the commands names, other names, descriptions, help and parameters maps to the commands containing it,
+ * with the weight of the most significant field where it appears (a name weighs more than a description). The words
+ * are sorted to also match the words starting with a searched word, the range of these words and their commands count
+ * being found by binary searches. A search scans the commands of its most selective word only, checking the other
+ * words in the sorted words of these commands: its cost depends on the matching commands, not on the size of the
+ * registry.<br/>
+ * Immutable once built.
+ */
+final class CommandsIndex {
+
+    private static final int NAME_WEIGHT = 8;
+    private static final int OTHER_NAME_WEIGHT = 6;
+    private static final int DESCRIPTION_WEIGHT = 4;
+    private static final int PARAMETER_NAME_WEIGHT = 2;
+    private static final int HELP_WEIGHT = 2;
+    private static final int PARAMETER_DESCRIPTION_WEIGHT = 1;
+
+    /**
+     * Index all the commands and sub commands of the registry.
+     */
+    static CommandsIndex build(CommandsRegistry registry, CommandTexts texts) {
+        final List<Command> commands = new ArrayList<>();
+        final Map<String, Postings> postings = new HashMap<>();
+        final Map<String, Integer> weights = new HashMap<>();
+        final List<String[]> commandsWords = new ArrayList<>();
+
+        // a command is mapped by each of its names
+        final Set<Command> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<CommandsRegistry> registries = new ArrayDeque<>();
+        registries.add(registry);
+        while (!registries.isEmpty()) {
+            for (Command command : registries.poll().commands()) {
+                if (!visited.add(command))
+                    continue;
+                final int id = commands.size();
+                commands.add(command);
+                weights.clear();
+                final Consumer<String> names = word -> weights.merge(word, OTHER_NAME_WEIGHT, Math::max);
+                command.getNames().forEach(name -> words(name, names));
+                words(command.getName(), word -> weights.merge(word, NAME_WEIGHT, Math::max));
+                words(texts.getDescription(command, null),
+                        word -> weights.merge(word, DESCRIPTION_WEIGHT, Math::max));
+                words(texts.getHelp(command), word -> weights.merge(word, HELP_WEIGHT, Math::max));
+                for (CommandParameter parameter : command.getParameters()) {
+                    words(parameter.getName(), word -> weights.merge(word, PARAMETER_NAME_WEIGHT, Math::max));
+                    words(texts.getParameterDescription(command, parameter, null),
+                            word -> weights.merge(word, PARAMETER_DESCRIPTION_WEIGHT, Math::max));
+                }
+                weights.forEach((word, weight) -> postings.computeIfAbsent(word, w -> new Postings())
+                        .add(id, weight));
+                commandsWords.add(weights.keySet().toArray(new String[0]));
+                registries.add(command.getSubCommands());
+            }
+        }
+        return new CommandsIndex(commands, postings, commandsWords);
+    }
+
+    /**
+     * Split a text in lower case words of letters and digits.
+     *
+     * @param text the text, null for none
+     */
+    static void words(String text, Consumer<String> consumer) {
+        if (text == null)
+            return;
+        final int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            final boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    private final Command[] commands;
+    // sorted words, and their postings
+    private final String[] words;
+    private final Postings[] postings;
+    // number of postings of the words before each word
+    private final long[] postingsOffsets;
+    // forward index: ascending ids of the words of each command, and their weights
+    private final int[][] commandsWordIds;
+    private final int[][] commandsWeights;
+
+    private CommandsIndex(List<Command> commands, Map<String, Postings> postings, List<String[]> commandsWords) {
+        this.commands = commands.toArray(new Command[0]);
+        this.words = postings.keySet().toArray(new String[0]);
+        Arrays.sort(this.words);
+        this.postings = new Postings[words.length];
+        this.postingsOffsets = new long[words.length + 1];
+        final Map<String, Integer> wordIds = new HashMap<>(words.length * 4 / 3 + 1);
+        for (int i = 0; i < words.length; i++) {
+            this.postings[i] = postings.get(words[i]);
+            postingsOffsets[i + 1] = postingsOffsets[i] + this.postings[i].size;
+            wordIds.put(words[i], i);
+        }
+
+        commandsWordIds = new int[this.commands.length][];
+        commandsWeights = new int[this.commands.length][];
+        for (int id = 0; id < this.commands.length; id++) {
+            final String[] commandWords = commandsWords.get(id);
+            final int[] ids = new int[commandWords.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = wordIds.get(commandWords[i]);
+            }
+            Arrays.sort(ids);
+            final int[] weights = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                weights[i] = this.postings[ids[i]].weight(id);
+            }
+            commandsWordIds[id] = ids;
+            commandsWeights[id] = weights;
+        }
+    }
+
+    /**
+     * @return the number of indexed commands
+     */
+    int size() {
+        return commands.length;
+    }
+
+    /**
+     * Search the commands containing all the words of the query, or words starting with them.<br/>
+     * The candidates are the commands matching the query word with the fewest commands, the other query words are
+     * then matched in the words of each candidate. A command scores the weight of the best field containing each
+     * searched word, doubled if the word is complete.
+     *
+     * @return the matching commands, best scores first, then shortest paths and qualified names order
+     */
+    List<Command> search(String query) {
+        final List<String> queryWords = new ArrayList<>();
+        words(query, queryWords::add);
+        if (queryWords.isEmpty())
+            return Collections.emptyList();
+
+        // range of the words starting with each query word
+        final int[] starts = new int[queryWords.size()];
+        final int[] ends = new int[starts.length];
+        int rarest = -1;
+        long rarestCount = Long.MAX_VALUE;
+        for (int i = 0; i < starts.length; i++) {
+            final String queryWord = queryWords.get(i);
+            final int start = insertionPoint(queryWord);
+            // words are letters and digits, sorted before the query word followed by the greatest character
+            final int end = insertionPoint(queryWord + Character.MAX_VALUE);
+            final long count = postingsOffsets[end] - postingsOffsets[start];
+            if (count == 0)
+                return Collections.emptyList();
+            starts[i] = start;
+            ends[i] = end;
+            if (count < rarestCount) {
+                rarest = i;
+                rarestCount = count;
+            }
+        }
+
+        final Map<Integer, Integer> scores = new HashMap<>();
+        final String rarestWord = queryWords.get(rarest);
+        for (int index = starts[rarest]; index < ends[rarest]; index++) {
+            final int factor = words[index].equals(rarestWord) ? 2 : 1;
+            final Postings wordPostings = postings[index];
+            for (int i = 0; i < wordPostings.size; i++) {
+                scores.merge(wordPostings.ids[i], wordPostings.weights[i] * factor, Math::max);
+            }
+        }
+
+        final List<Match> matches = new ArrayList<>(scores.size());
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            final int score = score(entry.getKey(), queryWords, starts, ends, rarest);
+            if (score >= 0)
+                matches.add(new Match(commands[entry.getKey()], entry.getValue() + score));
+        }
+        matches.sort(null);
+        final List<Command> res = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            res.add(match.command);
+        }
+        return res;
+    }
+
+    /**
+     * @return the index of word in the sorted words, or of the first word greater than word
+     */
+    private int insertionPoint(String word) {
+        final int index = Arrays.binarySearch(words, word);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * @return the score of a command for the query words other than skipped, -1 if a query word does not match
+     */
+    private int score(int id, List<String> queryWords, int[] starts, int[] ends, int skipped) {
+        int res = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (i == skipped)
+                continue;
+            final int score = score(id, queryWords.get(i), starts[i], ends[i]);
+            if (score == 0)
+                return -1;
+            res += score;
+        }
+        return res;
+    }
+
+    /**
+     * @return the best score of the words of a command in the words [start, end[ starting with queryWord, 0 if none
+     */
+    private int score(int id, String queryWord, int start, int end) {
+        final int[] wordIds = commandsWordIds[id];
+        int index = Arrays.binarySearch(wordIds, start);
+        if (index < 0)
+            index = -index - 1;
+        int res = 0;
+        for (; index < wordIds.length && wordIds[index] < end; index++) {
+            final int factor = words[wordIds[index]].equals(queryWord) ? 2 : 1;
+            res = Math.max(res, commandsWeights[id][index] * factor);
+        }
+        return res;
+    }
+
+    private static final class Match implements Comparable<Match> {
+        private final Command command;
+        private final int score;
+        private final int depth;
+
+        private Match(Command command, int score) {
+            this.command = command;
+            this.score = score;
+            this.depth = command.getPath().size();
+        }
+
+        @Override
+        public int compareTo(Match o) {
+            if (score != o.score)
+                return Integer.compare(o.score, score);
+            if (depth != o.depth)
+                return Integer.compare(depth, o.depth);
+            return command.getQualifiedName().compareTo(o.command.getQualifiedName());
+        }
+    }
+
+    /**
+     * Commands containing a word, in ascending ids order, with the word weight.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int[] weights = new int[2];
+        private int size;
+
+        /**
+         * @return the weight of the word in the command
+         */
+        private int weight(int id) {
+            return weights[Arrays.binarySearch(ids, 0, size, id)];
+        }
+
+        private void add(int id, int weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size++] = weight;
+        }
+    }
+
+}
@@ -3,17 +3,17 @@ package org.yah.cli.command.help;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.WordUtils;
 import org.fusesource.jansi.Ansi;
-import org.jline.builtins.Completers;
 import org.jline.terminal.Terminal;
 import org.yah.cli.CommandLine;
 import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandsCompleter;
 import org.yah.cli.command.CommandsRegistry;
 import org.yah.cli.command.parameter.CommandParameter;
 
 import java.util.List;
 import java.util.Map;
-import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.fusesource.jansi.Ansi.ansi;
 
@@ -22,136 +22,163 @@ public class HelpCommand {
     public static final String LINE_SEPARATOR = System.lineSeparator();
 
     public static Command create(CommandsRegistry registry, Terminal terminal, ResourceBundle commandResources) {
+        return create(registry, terminal, commandResources, new CommandsCompleter(registry));
+    }
+
+    /**
+     * @param completer the registry completer, completing the help command arguments as commands names
+     */
+    public static Command create(CommandsRegistry registry, Terminal terminal, ResourceBundle commandResources,
+                                 CommandsCompleter completer) {
         HelpCommand hc = new HelpCommand(registry, terminal, commandResources);
-        final List<Completers.TreeCompleter.Node> helperNodes = registry.createtNodes();
         return Command.cmd("help")
                 .withDescription("Print some help.")
                 .withHelp("Print some help for a given a command or list the available commands")
-                .withCompleterFactory(nodes -> nodes.addAll(helperNodes))
+                .withArgumentsCompleter(completer)
                 .withAction(hc::printHelp)
                 .build();
     }
 
     private final CommandsRegistry registry;
     private final Terminal terminal;
-    private final ResourceBundle commandResources;
+    private final CommandTexts texts;
+
+    // pages of the commands, and of the root commands, once the registry is frozen
+    private final Map<Command, HelpPage> pages = new ConcurrentHashMap<>();
+    private volatile HelpPage rootPage;
+    // terminal width of the rendered pages
+    private volatile int width = -1;
 
     public HelpCommand(CommandsRegistry registry, Terminal terminal, ResourceBundle commandResources) {
         this.registry = registry;
         this.terminal = terminal;
-        this.commandResources = commandResources;
+        this.texts = new CommandTexts(commandResources);
     }
 
     private void printHelp(CommandLine commandLine) {
         final Command command = registry.resolve(commandLine).orElse(null);
-        final Ansi ansi = ansi();
-
-        CommandsRegistry registry;
-        if (command != null) {
-            String description = getDescription(command, null);
-            String help = getHelp(command);
-
-            final List<Command> path = command.getPath();
-            path.subList(0, path.size() - 1).stream()
-                    .map(Command::getName)
-                    .forEach(n -> ansi.a(n).a(" > "));
-            String names = String.join(", ", command.getNames());
-            ansi.fgBrightDefault().a(names).reset().a(LINE_SEPARATOR).a(LINE_SEPARATOR);
-            if (description != null) {
-                ansi.a("  ").a(description.trim()).a(LINE_SEPARATOR).a(LINE_SEPARATOR);
-            }
-            if (help != null) {
-                help = help.replaceAll("\\n", "");
-                help = WordUtils.wrap(help, terminal.getWidth() - 2, LINE_SEPARATOR + "  ", false);
-                ansi.a("  ").a(help).a(LINE_SEPARATOR).a(LINE_SEPARATOR);
-            }
-            if (!command.getParameters().isEmpty())
-                printParameters(command, ansi);
-            registry = command.getSubCommands();
-        } else {
-            registry = this.registry;
+        final int terminalWidth = terminal.getWidth();
+        if (terminalWidth != width) {
+            // terminal resized, the rendered pages are dropped
+            width = terminalWidth;
+            pages.values().forEach(HelpPage::invalidate);
+            if (rootPage != null)
+                rootPage.invalidate();
         }
-        if (!registry.isEmpty())
-            printCommands(registry.commandsMap(), ansi);
-        terminal.writer().write(ansi.toString());
+        terminal.writer().write(page(command).render(terminalWidth));
     }
 
-    private void printParameters(Command command, Ansi ansi) {
-        final int maxLength = command.getParameters().stream()
-                .map(this::parameterName)
-                .mapToInt(String::length)
-                .max()
-                .orElse(0);
-        ansi.a("Parameters:").a(LINE_SEPARATOR);
-        for (CommandParameter parameter : command.getParameters()) {
-            String description = getParameterDescription(command, parameter);
+    /**
+     * @param command the command, null for the root commands
+     * @return the page of the command, created once if the registry is frozen
+     */
+    private HelpPage page(Command command) {
+        if (!registry.isFrozen())
+            return createPage(command);
+        if (command != null)
+            return pages.computeIfAbsent(command, this::createPage);
+        HelpPage page = rootPage;
+        if (page == null)
+            rootPage = page = createPage(null);
+        return page;
+    }
+
+    private HelpPage createPage(Command command) {
+        if (command == null)
+            return new HelpPage("", null, commandsSection(registry));
+
+        final Ansi head = ansi();
+        final List<Command> path = command.getPath();
+        path.subList(0, path.size() - 1).forEach(c -> head.a(c.getName()).a(" > "));
+        head.fgBrightDefault().a(String.join(", ", command.getNames())).reset().a(LINE_SEPARATOR).a(LINE_SEPARATOR);
+        final String description = texts.getDescription(command, null);
+        if (description != null)
+            head.a("  ").a(description).a(LINE_SEPARATOR).a(LINE_SEPARATOR);
+
+        String help = texts.getHelp(command);
+        if (help != null)
+            help = help.replace("\n", "");
+
+        String tail = "";
+        if (!command.getParameters().isEmpty())
+            tail += parametersSection(command);
+        tail += commandsSection(command.getSubCommands());
+        return new HelpPage(head.toString(), help, tail);
+    }
+
+    private String parametersSection(Command command) {
+        final List<CommandParameter> parameters = command.getParameters();
+        final String[] names = new String[parameters.size()];
+        int maxLength = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = parameterName(parameters.get(i));
+            maxLength = Math.max(maxLength, names[i].length());
+        }
+        final Ansi ansi = ansi().a("Parameters:").a(LINE_SEPARATOR);
+        for (int i = 0; i < names.length; i++) {
+            final String description = texts.getParameterDescription(command, parameters.get(i), "No description");
             ansi.a("    ").fgBrightDefault()
-                    .format("  %-" + (maxLength + 1) + "s", parameterName(parameter)).reset()
+                    .a("  ").a(StringUtils.rightPad(names[i], maxLength + 1)).reset()
                     .a(": ").a(description).a(LINE_SEPARATOR);
         }
+        return ansi.toString();
     }
 
     private String parameterName(CommandParameter parameter) {
         return parameter.getName() == null ? Integer.toString(parameter.getIndex()) : parameter.getName();
     }
 
-    private String getHelp(Command command) {
-        String res;
-        if (command.getHelp() != null) {
-            res = command.getHelp();
-        } else {
-            String key = command.getQualifiedName() + ".help";
-            try {
-                res = commandResources.getString(key);
-            } catch (MissingResourceException e) {
-                res = null;
-            }
+    private String commandsSection(CommandsRegistry commands) {
+        if (commands.isEmpty())
+            return "";
+        final Map<String, Command> commandsMap = commands.commandsMap();
+        int maxLength = 0;
+        for (String name : commandsMap.keySet()) {
+            maxLength = Math.max(maxLength, name.length());
         }
-        return StringUtils.trimToNull(res);
-    }
-
-    private String getDescription(Command command, String defaultValue) {
-        String res;
-        if (command.getDescription() != null)
-            res = command.getDescription();
-        else {
-            String key = command.getQualifiedName() + ".description";
-            try {
-                res = commandResources.getString(key);
-            } catch (MissingResourceException e) {
-                res = null;
-            }
+        final Ansi ansi = ansi().a("Commands:").a(LINE_SEPARATOR);
+        for (Map.Entry<String, Command> entry : commandsMap.entrySet()) {
+            ansi.fgBrightDefault().a("  ").a(StringUtils.rightPad(entry.getKey(), maxLength + 1)).reset();
+            ansi.a(": ").a(texts.getDescription(entry.getValue(), "No description."));
+            ansi.a(LINE_SEPARATOR);
         }
-        res = StringUtils.trimToNull(res);
-        return res == null ? defaultValue : res;
+        return ansi.toString();
     }
 
+    /**
+     * Help of a command: its rendered header and sections, the help text being wrapped to the terminal width when
+     * rendered. The last rendering is kept until the terminal width changes.
+     */
+    private static final class HelpPage {
+        private final String head;
+        private final String help;
+        private final String tail;
+
+        // guarded by this
+        private String rendered;
+        private int renderedWidth;
+
+        private HelpPage(String head, String help, String tail) {
+            this.head = head;
+            this.help = help;
+            this.tail = tail;
+        }
 
-    private String getParameterDescription(Command command, CommandParameter parameter) {
-        if (parameter.getDescription() != null)
-            return parameter.getDescription();
-
-        if (parameter.getName() != null) {
-            String key = command.getQualifiedName() + "." + parameter.getName() + ".description";
-            try {
-                return commandResources.getString(key);
-            } catch (MissingResourceException e) {
-                // ignore
+        synchronized String render(int width) {
+            if (rendered == null || renderedWidth != width) {
+                if (help == null) {
+                    rendered = head + tail;
+                } else {
+                    final String wrapped = WordUtils.wrap(help, width - 2, LINE_SEPARATOR + "  ", false);
+                    rendered = head + "  " + wrapped + LINE_SEPARATOR + LINE_SEPARATOR + tail;
+                }
+                renderedWidth = width;
             }
+            return rendered;
         }
-        return "No description";
-    }
 
-    private void printCommands(Map<String, Command> commands, Ansi ansi) {
-        ansi.a("Commands:").a(LINE_SEPARATOR);
-        final int maxLength = commands.keySet().stream()
-                .mapToInt(String::length)
-                .max()
-                .orElse(0);
-        for (Map.Entry<String, Command> entry : commands.entrySet()) {
-            ansi.fgBrightDefault().format("  %-" + (maxLength + 1) + "s", entry.getKey()).reset();
-            ansi.a(": ").a(getDescription(entry.getValue(), "No description."));
-            ansi.a(LINE_SEPARATOR);
+        synchronized void invalidate() {
+            rendered = null;
         }
     }
 
@@ -22,6 +22,10 @@ public final class CommandParameter {
     private final String description;
     private final Completer completer;
     private final ParameterParser parser;
+    // parser as a primitive parser, resolved once: interface type checks are not free on the parse path
+    private final IntParameterParser intParser;
+    private final LongParameterParser longParser;
+    private final DoubleParameterParser doubleParser;
 
     private CommandParameter(Builder builder) {
         this.index = builder.index;
@@ -29,6 +33,9 @@ public final class CommandParameter {
         this.description = builder.description;
         this.completer = builder.completer == null ? NullCompleter.INSTANCE : builder.completer;
         this.parser = builder.parser == null ? DEFAULT_PARSER : builder.parser;
+        this.intParser = parser instanceof IntParameterParser ? (IntParameterParser) parser : null;
+        this.longParser = parser instanceof LongParameterParser ? (LongParameterParser) parser : null;
+        this.doubleParser = parser instanceof DoubleParameterParser ? (DoubleParameterParser) parser : null;
     }
 
     public int getIndex() {
@@ -48,6 +55,13 @@ public final class CommandParameter {
     }
 
     public ParsedParameter parse(CommandLine commandLine) {
+        // primitive parsers values are not boxed
+        if (intParser != null)
+            return new ParsedParameter.IntParsedParameter(this, intParser.parseInt(this, commandLine));
+        if (longParser != null)
+            return new ParsedParameter.LongParsedParameter(this, longParser.parseLong(this, commandLine));
+        if (doubleParser != null)
+            return new ParsedParameter.DoubleParsedParameter(this, doubleParser.parseDouble(this, commandLine));
         final Object parsed = parser.parse(this, commandLine);
         return new ParsedParameter(this, parsed);
     }
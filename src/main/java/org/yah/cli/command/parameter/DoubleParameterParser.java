@@ -0,0 +1,19 @@
+package org.yah.cli.command.parameter;
+
+import org.yah.cli.CommandLine;
+
+/**
+ * A {@link ParameterParser} of double values, kept unboxed in the {@link ParsedParameter}
+ * (see {@link ParsedParameter#getDouble()}).
+ */
+@FunctionalInterface
+public interface DoubleParameterParser extends ParameterParser {
+
+    double parseDouble(CommandParameter parameter, CommandLine commandLine);
+
+    @Override
+    default Object parse(CommandParameter parameter, CommandLine commandLine) {
+        return parseDouble(parameter, commandLine);
+    }
+
+}
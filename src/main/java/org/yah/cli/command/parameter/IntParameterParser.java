@@ -0,0 +1,19 @@
+package org.yah.cli.command.parameter;
+
+import org.yah.cli.CommandLine;
+
+/**
+ * A {@link ParameterParser} of int values, kept unboxed in the {@link ParsedParameter}
+ * (see {@link ParsedParameter#getInt()}).
+ */
+@FunctionalInterface
+public interface IntParameterParser extends ParameterParser {
+
+    int parseInt(CommandParameter parameter, CommandLine commandLine);
+
+    @Override
+    default Object parse(CommandParameter parameter, CommandLine commandLine) {
+        return parseInt(parameter, commandLine);
+    }
+
+}
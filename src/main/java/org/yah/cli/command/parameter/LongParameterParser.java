@@ -0,0 +1,19 @@
+package org.yah.cli.command.parameter;
+
+import org.yah.cli.CommandLine;
+
+/**
+ * A {@link ParameterParser} of long values, kept unboxed in the {@link ParsedParameter}
+ * (see {@link ParsedParameter#getLong()}).
+ */
+@FunctionalInterface
+public interface LongParameterParser extends ParameterParser {
+
+    long parseLong(CommandParameter parameter, CommandLine commandLine);
+
+    @Override
+    default Object parse(CommandParameter parameter, CommandLine commandLine) {
+        return parseLong(parameter, commandLine);
+    }
+
+}
@@ -0,0 +1,22 @@
+package org.yah.cli.command.parameter;
+
+/**
+ * Thrown by {@link org.yah.cli.command.Command#parseParameters(org.yah.cli.CommandLine)} when a parameter can not
+ * be parsed, the cause being the parser exception.
+ */
+public class ParameterParseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient CommandParameter parameter;
+
+    public ParameterParseException(CommandParameter parameter, RuntimeException cause) {
+        super("Error parsing parameter " + parameter.getName() + ": " + cause.getMessage(), cause);
+        this.parameter = parameter;
+    }
+
+    public CommandParameter getParameter() {
+        return parameter;
+    }
+
+}
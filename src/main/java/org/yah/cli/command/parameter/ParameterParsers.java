@@ -4,6 +4,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.yah.cli.CommandLine;
 
 import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 public class ParameterParsers {
 
@@ -26,14 +32,210 @@ public class ParameterParsers {
         });
     }
 
+    /**
+     * @param type    the created objects type
+     * @param factory the type constructor taking a String
+     */
+    public static ParameterParser objectFromStringParser(Class<?> type, Function<String, Object> factory) {
+        return nullableParser((parameter, commandLine) -> {
+            final String next = commandLine.next();
+            try {
+                return factory.apply(next);
+            } catch (Exception e) {
+                throw new UnsupportedOperationException("Error creating " + type.getName() +
+                        " object from '" + next + "'", e);
+            }
+        });
+    }
+
+    /**
+     * @return a parser applying function to the next word, throwing {@link NoSuchElementException} if there is no
+     * next word
+     */
+    public static ParameterParser valueParser(Function<String, Object> function) {
+        return (param, commandLine) -> {
+            final String next = commandLine.next();
+            if (next == null)
+                throw new NoSuchElementException();
+            return function.apply(next);
+        };
+    }
+
+    /**
+     * @return a parser applying function to the next word, or returning null if the next word is empty or 'null'
+     */
+    public static ParameterParser nullableValueParser(Function<String, Object> function) {
+        return nullableParser((param, commandLine) -> function.apply(commandLine.next()));
+    }
+
+    /**
+     * @return a parser of int values from the next word characters, throwing {@link NoSuchElementException} if there
+     * is no next word
+     */
+    public static IntParameterParser intParser() {
+        return (param, commandLine) -> {
+            final CharSequence next = nextView(commandLine);
+            return Integer.parseInt(next, 0, next.length(), 10);
+        };
+    }
+
+    /**
+     * @return a parser of long values from the next word characters, throwing {@link NoSuchElementException} if
+     * there is no next word
+     */
+    public static LongParameterParser longParser() {
+        return (param, commandLine) -> {
+            final CharSequence next = nextView(commandLine);
+            return Long.parseLong(next, 0, next.length(), 10);
+        };
+    }
+
+    /**
+     * @return a parser of double values from the next word characters, throwing {@link NoSuchElementException} if
+     * there is no next word
+     */
+    public static DoubleParameterParser doubleParser() {
+        return (param, commandLine) -> parseDouble(nextView(commandLine));
+    }
+
+    private static CharSequence nextView(CommandLine commandLine) {
+        final CharSequence next = commandLine.nextView();
+        if (next == null)
+            throw new NoSuchElementException();
+        return next;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Same as {@link Double#parseDouble(String)} without copying the text when it is a plain decimal number
+     * (<code>[+-]digits[.digits][e[+-]digits]</code>) whose digits fit in a double mantissa and whose exponent is
+     * at most 22: such numbers are exactly computed with a single multiplication or division.
+     * Other texts are parsed by {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(CharSequence text) {
+        final int length = text.length();
+        int index = 0;
+        boolean negative = false;
+        if (index < length && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+            negative = text.charAt(index) == '-';
+            index++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean dot = false;
+        for (; index < length; index++) {
+            final char c = text.charAt(index);
+            if (c >= '0' && c <= '9') {
+                if (mantissa > ((1L << 53) - 9) / 10)
+                    return Double.parseDouble(text.toString());
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dot)
+                    exponent--;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0)
+            return Double.parseDouble(text.toString());
+        if (index < length && (text.charAt(index) == 'e' || text.charAt(index) == 'E')) {
+            index++;
+            boolean negativeExponent = false;
+            if (index < length && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+                negativeExponent = text.charAt(index) == '-';
+                index++;
+            }
+            int explicitExponent = 0;
+            final int start = index;
+            for (; index < length && explicitExponent < 1000; index++) {
+                final char c = text.charAt(index);
+                if (c < '0' || c > '9')
+                    break;
+                explicitExponent = explicitExponent * 10 + (c - '0');
+            }
+            if (index == start)
+                return Double.parseDouble(text.toString());
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (index < length || exponent < -22 || exponent > 22)
+            return Double.parseDouble(text.toString());
+        final double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a duration as a number followed by a unit: <code>ns, us, ms, s, m, h</code> or <code>d</code>
+     * (i.e. <code>500ms</code>, <code>1.5s</code>, <code>2m</code>), seconds if there is no unit, or in ISO-8601
+     * format (i.e. <code>PT5S</code>).
+     *
+     * @throws IllegalArgumentException if text is not a positive duration
+     */
+    public static Duration parseDuration(CharSequence text) {
+        final String s = text.toString().trim();
+        int unitStart = s.length();
+        while (unitStart > 0 && Character.isLetter(s.charAt(unitStart - 1)))
+            unitStart--;
+        final Duration duration;
+        if (s.startsWith("P") || s.startsWith("p")) {
+            duration = Duration.parse(s);
+        } else {
+            final BigDecimal unitNanos = BigDecimal.valueOf(durationUnit(s.substring(unitStart)).getDuration().toNanos());
+            try {
+                duration = Duration.ofNanos(new BigDecimal(s.substring(0, unitStart)).multiply(unitNanos)
+                        .setScale(0, RoundingMode.DOWN).longValueExact());
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("Invalid duration '" + s + "'");
+            }
+        }
+        if (duration.isNegative())
+            throw new IllegalArgumentException("Negative duration '" + s + "'");
+        return duration;
+    }
+
+    private static ChronoUnit durationUnit(String unit) {
+        switch (unit) {
+            case "ns":
+                return ChronoUnit.NANOS;
+            case "us":
+                return ChronoUnit.MICROS;
+            case "ms":
+                return ChronoUnit.MILLIS;
+            case "":
+            case "s":
+                return ChronoUnit.SECONDS;
+            case "m":
+                return ChronoUnit.MINUTES;
+            case "h":
+                return ChronoUnit.HOURS;
+            case "d":
+                return ChronoUnit.DAYS;
+            default:
+                throw new IllegalArgumentException("Invalid duration unit '" + unit + "'");
+        }
+    }
+
     public static ParameterParser passthrough() {
         return (parameter, commandLine) -> commandLine.next();
     }
 
+    /**
+     * @return a parser returning the next word as a {@link CharSequence} view, without copying it
+     */
+    public static ParameterParser passthroughView() {
+        return (parameter, commandLine) -> commandLine.nextView();
+    }
+
     public static ParameterParser nullableParser(ParameterParser delegate) {
         return (parameter, commandLine) -> {
-            String text = StringUtils.trimToNull(commandLine.peek());
-            if (text == null || text.equals("null")) {
+            if (isNull(commandLine.peekView())) {
                 commandLine.next();
                 return null;
             }
@@ -41,10 +243,36 @@ public class ParameterParsers {
         };
     }
 
+    /**
+     * Same as <code>StringUtils.trimToNull(text) == null || "null".equals(StringUtils.trimToNull(text))</code>,
+     * without copying the text.
+     */
+    private static boolean isNull(CharSequence text) {
+        if (text == null)
+            return true;
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ')
+            start++;
+        while (end > start && text.charAt(end - 1) <= ' ')
+            end--;
+        return start == end || StringUtils.equals(text.subSequence(start, end), "null");
+    }
+
     public static final class FlushCommandLine implements ParameterParser {
         @Override
         public Object parse(CommandParameter parameter, CommandLine commandLine) {
             return commandLine.flush();
         }
     }
+
+    /**
+     * Same as {@link FlushCommandLine}, for {@link CharSequence} parameters: the remaining line is not copied.
+     */
+    public static final class FlushCommandLineView implements ParameterParser {
+        @Override
+        public Object parse(CommandParameter parameter, CommandLine commandLine) {
+            return commandLine.flushView();
+        }
+    }
 }
@@ -1,21 +1,32 @@
 package org.yah.cli.command.parameter;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
 
 import static org.yah.cli.command.parameter.ParameterParsers.passthrough;
+import static org.yah.cli.command.parameter.ParameterParsers.passthroughView;
 
 public final class ParameterParsersRegistries {
 
+    // default registries are stateless, share their resolved parsers
+    private static final ParameterParsersRegistry DEFAULT_PARSERS = cached(composite(
+            new PrimitiveParsersRegistry(),
+            new JavaObjectsParsersRegistry(),
+            new StringFactoryParsersRegistry(),
+            new EnumParserRegistry()
+    ));
+
     public static ParameterParsersRegistry defaultParsers() {
-        return composite(new PrimitiveParsersRegistry(),
-                new JavaObjectsParsersRegistry(),
-                new StringConstructorParsersRegistry(),
-                new EnumParserRegistry()
-        );
+        return DEFAULT_PARSERS;
     }
 
     public static ParameterParsersRegistry composite(ParameterParsersRegistry... registries) {
@@ -23,26 +34,36 @@ public final class ParameterParsersRegistries {
     }
 
     public static ParameterParsersRegistry composite(Collection<ParameterParsersRegistry> registries) {
-        return type -> registries.stream().map(r -> r.get(type))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .findFirst();
+        final ParameterParsersRegistry[] delegates = registries.toArray(ParameterParsersRegistry[]::new);
+        return type -> {
+            for (ParameterParsersRegistry delegate : delegates) {
+                final Optional<ParameterParser> parser = delegate.get(type);
+                if (parser.isPresent())
+                    return parser;
+            }
+            return Optional.empty();
+        };
+    }
+
+    /**
+     * @return a registry resolving the parser of each type once from registry, including missing parsers. registry
+     * must always return the same result for a given type.
+     */
+    public static ParameterParsersRegistry cached(ParameterParsersRegistry registry) {
+        if (registry instanceof CachedParsersRegistry)
+            return registry;
+        return new CachedParsersRegistry(registry);
     }
 
     private ParameterParsersRegistries() {
     }
 
     private static ParameterParser parser(Function<String, Object> function) {
-        return (param, commandLine) -> {
-            final String next = commandLine.next();
-            if (next == null)
-                throw new NoSuchElementException();
-            return function.apply(next);
-        };
+        return ParameterParsers.valueParser(function);
     }
 
     private static ParameterParser nullableParser(Function<String, Object> function) {
-        return ParameterParsers.nullableParser((param, commandLine) -> function.apply(commandLine.next()));
+        return ParameterParsers.nullableValueParser(function);
     }
 
     private static class JavaObjectsParsersRegistry implements ParameterParsersRegistry {
@@ -51,6 +72,7 @@ public final class ParameterParsersRegistries {
 
         public JavaObjectsParsersRegistry() {
             parsersMap.put(String.class, passthrough());
+            parsersMap.put(CharSequence.class, passthroughView());
             parsersMap.put(File.class, nullableParser(File::new));
             parsersMap.put(Path.class, nullableParser(Path::of));
         }
@@ -73,19 +95,74 @@ public final class ParameterParsersRegistries {
         }
     }
 
-    private static class StringConstructorParsersRegistry implements ParameterParsersRegistry {
+    private static final class CachedParsersRegistry implements ParameterParsersRegistry {
+
+        private final ClassValue<Optional<ParameterParser>> parsers;
+
+        private CachedParsersRegistry(ParameterParsersRegistry delegate) {
+            Objects.requireNonNull(delegate);
+            parsers = new ClassValue<>() {
+                @Override
+                protected Optional<ParameterParser> computeValue(Class<?> type) {
+                    return Objects.requireNonNull(delegate.get(type));
+                }
+            };
+        }
+
+        @Override
+        public Optional<ParameterParser> get(Class<?> type) {
+            return parsers.get(type);
+        }
+    }
+
+    /**
+     * Parse objects using the first public factory of the type found among: constructor taking a String, static
+     * valueOf(String) and static parse(CharSequence) methods returning the type (i.e. {@link java.time.Duration}).
+     * The factory is bound once as a {@link MethodHandle}.
+     */
+    private static class StringFactoryParsersRegistry implements ParameterParsersRegistry {
         @Override
         public Optional<ParameterParser> get(Class<?> type) {
-            final Constructor<?> constructor = getConstructor(type);
-            if (constructor == null)
+            if (type.isPrimitive() || type.isArray() || type.isEnum())
+                return Optional.empty();
+            MethodHandle factory = findConstructor(type);
+            if (factory == null)
+                factory = findStaticFactory(type, "valueOf", String.class);
+            if (factory == null)
+                factory = findStaticFactory(type, "parse", CharSequence.class);
+            if (factory == null)
                 return Optional.empty();
-            return Optional.of(ParameterParsers.objectFromStringParser(constructor));
+            final MethodHandle handle = factory.asType(MethodType.methodType(Object.class, String.class));
+            return Optional.of(ParameterParsers.objectFromStringParser(type, next -> {
+                try {
+                    return (Object) handle.invokeExact(next);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UndeclaredThrowableException(e);
+                }
+            }));
+        }
+
+        private static MethodHandle findConstructor(Class<?> type) {
+            try {
+                final Constructor<?> constructor = type.getConstructor(String.class);
+                if (Modifier.isAbstract(type.getModifiers()))
+                    return null;
+                return MethodHandles.publicLookup().unreflectConstructor(constructor);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
         }
 
-        private static Constructor<?> getConstructor(Class<?> type) {
+        private static MethodHandle findStaticFactory(Class<?> type, String name, Class<?> parameterType) {
             try {
-                return type.getConstructor(String.class);
-            } catch (NoSuchMethodException e) {
+                final Method method = type.getMethod(name, parameterType);
+                if (!Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() != type
+                        || !type.isAssignableFrom(method.getReturnType()))
+                    return null;
+                return MethodHandles.publicLookup().unreflect(method);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
                 return null;
             }
         }
@@ -98,19 +175,19 @@ public final class ParameterParsersRegistries {
         public PrimitiveParsersRegistry() {
             parsersMap.put(Byte.TYPE, parser(Byte::parseByte));
             parsersMap.put(Short.TYPE, parser(Short::parseShort));
-            parsersMap.put(Integer.TYPE, parser(Integer::parseInt));
-            parsersMap.put(Long.TYPE, parser(Long::parseLong));
+            parsersMap.put(Integer.TYPE, ParameterParsers.intParser());
+            parsersMap.put(Long.TYPE, ParameterParsers.longParser());
             parsersMap.put(Float.TYPE, parser(Float::parseFloat));
-            parsersMap.put(Double.TYPE, parser(Double::parseDouble));
+            parsersMap.put(Double.TYPE, ParameterParsers.doubleParser());
             parsersMap.put(Boolean.TYPE, parser(Boolean::parseBoolean));
             parsersMap.put(Character.TYPE, parser(s -> s.charAt(0)));
 
             parsersMap.put(Byte.class, nullableParser(Byte::parseByte));
             parsersMap.put(Short.class, nullableParser(Short::parseShort));
-            parsersMap.put(Integer.class, nullableParser(Integer::parseInt));
-            parsersMap.put(Long.class, nullableParser(Long::parseLong));
+            parsersMap.put(Integer.class, ParameterParsers.nullableParser(ParameterParsers.intParser()));
+            parsersMap.put(Long.class, ParameterParsers.nullableParser(ParameterParsers.longParser()));
             parsersMap.put(Float.class, nullableParser(Float::parseFloat));
-            parsersMap.put(Double.class, nullableParser(Double::parseDouble));
+            parsersMap.put(Double.class, ParameterParsers.nullableParser(ParameterParsers.doubleParser()));
             parsersMap.put(Boolean.class, nullableParser(Boolean::parseBoolean));
             parsersMap.put(Character.class, nullableParser(s -> s.charAt(0)));
         }
@@ -17,11 +17,119 @@ public class ParsedParameter {
         return parsedValue;
     }
 
+    /**
+     * @return the parsed value as an int, not boxed if parsed by an {@link IntParameterParser}
+     */
+    public int getInt() {
+        return ((Number) getParsedValue()).intValue();
+    }
+
+    /**
+     * @return the parsed value as a long, not boxed if parsed by a {@link LongParameterParser}
+     */
+    public long getLong() {
+        return ((Number) getParsedValue()).longValue();
+    }
+
+    /**
+     * @return the parsed value as a double, not boxed if parsed by a {@link DoubleParameterParser}
+     */
+    public double getDouble() {
+        return ((Number) getParsedValue()).doubleValue();
+    }
+
     @Override
     public String toString() {
         return "ParsedParameter{" +
                 "parameter=" + parameter +
-                ", parsedValue=" + parsedValue +
+                ", parsedValue=" + getParsedValue() +
                 '}';
     }
+
+    static final class IntParsedParameter extends ParsedParameter {
+        private final int value;
+
+        IntParsedParameter(CommandParameter parameter, int value) {
+            super(parameter, null);
+            this.value = value;
+        }
+
+        @Override
+        public Object getParsedValue() {
+            return value;
+        }
+
+        @Override
+        public int getInt() {
+            return value;
+        }
+
+        @Override
+        public long getLong() {
+            return value;
+        }
+
+        @Override
+        public double getDouble() {
+            return value;
+        }
+    }
+
+    static final class LongParsedParameter extends ParsedParameter {
+        private final long value;
+
+        LongParsedParameter(CommandParameter parameter, long value) {
+            super(parameter, null);
+            this.value = value;
+        }
+
+        @Override
+        public Object getParsedValue() {
+            return value;
+        }
+
+        @Override
+        public int getInt() {
+            return (int) value;
+        }
+
+        @Override
+        public long getLong() {
+            return value;
+        }
+
+        @Override
+        public double getDouble() {
+            return value;
+        }
+    }
+
+    static final class DoubleParsedParameter extends ParsedParameter {
+        private final double value;
+
+        DoubleParsedParameter(CommandParameter parameter, double value) {
+            super(parameter, null);
+            this.value = value;
+        }
+
+        @Override
+        public Object getParsedValue() {
+            return value;
+        }
+
+        @Override
+        public int getInt() {
+            return (int) value;
+        }
+
+        @Override
+        public long getLong() {
+            return (long) value;
+        }
+
+        @Override
+        public double getDouble() {
+            return value;
+        }
+    }
 }
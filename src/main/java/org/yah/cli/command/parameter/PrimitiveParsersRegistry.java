@@ -14,19 +14,19 @@ public class PrimitiveParsersRegistry implements ParameterParsersRegistry {
     public PrimitiveParsersRegistry() {
         parsersMap.put(Byte.TYPE, parser(Byte::parseByte));
         parsersMap.put(Short.TYPE, parser(Short::parseShort));
-        parsersMap.put(Integer.TYPE, parser(Integer::parseInt));
-        parsersMap.put(Long.TYPE, parser(Long::parseLong));
+        parsersMap.put(Integer.TYPE, ParameterParsers.intParser());
+        parsersMap.put(Long.TYPE, ParameterParsers.longParser());
         parsersMap.put(Float.TYPE, parser(Float::parseFloat));
-        parsersMap.put(Double.TYPE, parser(Double::parseDouble));
+        parsersMap.put(Double.TYPE, ParameterParsers.doubleParser());
         parsersMap.put(Boolean.TYPE, parser(Boolean::parseBoolean));
         parsersMap.put(Character.TYPE, parser(s -> s.charAt(0)));
 
         parsersMap.put(Byte.class, parser(Byte::parseByte));
         parsersMap.put(Short.class, parser(Short::parseShort));
-        parsersMap.put(Integer.class, parser(Integer::parseInt));
-        parsersMap.put(Long.class, parser(Long::parseLong));
+        parsersMap.put(Integer.class, ParameterParsers.nullableParser(ParameterParsers.intParser()));
+        parsersMap.put(Long.class, ParameterParsers.nullableParser(ParameterParsers.longParser()));
         parsersMap.put(Float.class, parser(Float::parseFloat));
-        parsersMap.put(Double.class, parser(Double::parseDouble));
+        parsersMap.put(Double.class, ParameterParsers.nullableParser(ParameterParsers.doubleParser()));
         parsersMap.put(Boolean.class, parser(Boolean::parseBoolean));
         parsersMap.put(Character.class, parser(s -> s.charAt(0)));
 
@@ -0,0 +1,112 @@
+package org.yah.cli.history;
+
+import org.jline.reader.History;
+
+import java.time.Instant;
+
+/**
+ * A history entry, and its encoding in the history file: <code>epochMillis:line</code> if timestamped, with '\',
+ * '\n' and '\r' escaped, as written by the JLine <code>DefaultHistory</code>.
+ */
+final class HistoryEntry implements History.Entry {
+
+    private final int index;
+    private final Instant time;
+    private final String line;
+
+    HistoryEntry(int index, Instant time, String line) {
+        this.index = index;
+        this.time = time;
+        this.line = line;
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public Instant time() {
+        return time;
+    }
+
+    @Override
+    public String line() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d: %s", index, line);
+    }
+
+    static String encode(Instant time, String line, boolean timestamped) {
+        final StringBuilder sb = new StringBuilder(line.length() + 16);
+        if (timestamped)
+            sb.append(time.toEpochMilli()).append(':');
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            switch (c) {
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param timestamped true to read the time prefix, an entry without prefix gets the epoch time
+     */
+    static HistoryEntry decode(int index, String encoded, boolean timestamped) {
+        int start = 0;
+        Instant time = Instant.EPOCH;
+        if (timestamped) {
+            final int colon = timestampEnd(encoded);
+            if (colon > 0) {
+                time = Instant.ofEpochMilli(Long.parseLong(encoded, 0, colon, 10));
+                start = colon + 1;
+            }
+        }
+        if (encoded.indexOf('\\', start) < 0)
+            return new HistoryEntry(index, time, encoded.substring(start));
+        final StringBuilder sb = new StringBuilder(encoded.length() - start);
+        for (int i = start; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '\\' && i + 1 < encoded.length()) {
+                c = encoded.charAt(++i);
+                if (c == 'n')
+                    c = '\n';
+                else if (c == 'r')
+                    c = '\r';
+            }
+            sb.append(c);
+        }
+        return new HistoryEntry(index, time, sb.toString());
+    }
+
+    /**
+     * @return the index of the ':' ending the time prefix, -1 if none
+     */
+    private static int timestampEnd(String encoded) {
+        // epoch millis fit in 18 digits
+        final int max = Math.min(encoded.length(), 19);
+        for (int i = 0; i < max; i++) {
+            final char c = encoded.charAt(i);
+            if (c == ':')
+                return i;
+            if (c < '0' || c > '9')
+                return -1;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,20 @@
+package org.yah.cli.history;
+
+import org.jline.reader.History;
+import org.jline.reader.impl.DefaultExpander;
+
+/**
+ * {@link DefaultExpander} searching the <code>!prefix</code> and <code>!?term</code> events with the index of a
+ * {@link LogHistory}, instead of matching the entries one by one.<br/>
+ * Installed by the default {@link org.yah.cli.Cli#configure(org.jline.reader.LineReaderBuilder)}.
+ */
+public class HistoryExpander extends DefaultExpander {
+
+    @Override
+    protected int searchBackwards(History history, String term, int index, boolean startsWith) {
+        if (history instanceof LogHistory)
+            return ((LogHistory) history).searchBackwards(term, index, startsWith);
+        return super.searchBackwards(history, term, index, startsWith);
+    }
+
+}
@@ -0,0 +1,397 @@
+package org.yah.cli.history;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * N-gram index of the history entries, to search the history without decoding all its entries.<br/>
+ * Entries are indexed by blocks of {@link #BLOCK_SIZE} consecutive entries: each n-gram (1 to 3 characters) of the
+ * entries lines maps to the ascending list of the blocks containing it. The candidate blocks of a term are the blocks
+ * containing all its n-grams (its trigrams, or the term itself if shorter), a superset of the blocks of the entries
+ * containing the term: the entries of the candidate blocks are then matched by the caller. The lines are indexed
+ * with a {@link #LINE_START} prefix, matching the n-grams at the start of the lines for the prefix searches.<br/>
+ * Entries are indexed incrementally, in ascending index order. Not thread safe.
+ */
+final class HistoryIndex {
+
+    private static final int BLOCK_SHIFT = 4;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final int MAX_GRAM = 3;
+
+    private static final char LINE_START = '\0';
+
+    // open addressing map of the n-grams keys to their blocks lists, keys are never 0
+    private long[] keys = new long[1024];
+    private int[] ids = new int[1024];
+    private int gramsCount;
+
+    private int[][] blocks = new int[512][];
+    private int[] sizes = new int[512];
+
+    // indexed entries [start, end[
+    private final int start;
+    private int end;
+
+    /**
+     * @param start the index of the first entry
+     */
+    HistoryIndex(int start) {
+        this.start = start;
+        this.end = start;
+    }
+
+    /**
+     * @return the index following the last indexed entry
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * Index an entry, following the last indexed entry.
+     *
+     * @param index the entry index, entries between the last indexed entry and index being skipped
+     */
+    void add(int index, CharSequence line) {
+        if (index < end)
+            throw new IllegalArgumentException("Entry " + index + " is already indexed");
+        final int block = index >> BLOCK_SHIFT;
+        final int length = line.length() + 1;
+        for (int i = 0; i < length; i++) {
+            long key = 0;
+            for (int n = 0; n < MAX_GRAM && i + n < length; n++) {
+                key = key << Character.SIZE | charAt(line, i + n);
+                addBlock(gram(key, n + 1), block);
+            }
+        }
+        end = index + 1;
+    }
+
+    /**
+     * Snapshot the candidate blocks of a term: entries indexed later are candidates of the returned query.
+     *
+     * @param caseMatching the characters matched by each character of the term
+     * @param prefix       true to search the entries starting with the term
+     * @return the query, null if the term can not be searched in the index (all entries are candidates)
+     */
+    Query query(CharSequence term, CaseMatching caseMatching, boolean prefix) {
+        if (prefix)
+            term = LINE_START + term.toString();
+        final int length = term.length();
+        final char[][] alternatives = new char[length][];
+        for (int j = 0; j < length; j++) {
+            alternatives[j] = caseMatching.alternatives(term.charAt(j));
+            if (alternatives[j] == null)
+                return null;
+        }
+        final int n = Math.min(length, MAX_GRAM);
+        final int count = length == 0 ? 0 : length - n + 1;
+        final int[][][] groups = new int[count][][];
+        final int[][] groupsSizes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int variantsCount = 1;
+            for (int j = 0; j < n; j++) {
+                variantsCount *= alternatives[i + j].length;
+            }
+            final int[][] lists = new int[variantsCount][];
+            final int[] listsSizes = new int[variantsCount];
+            int variants = 0;
+            for (int variant = 0; variant < variantsCount; variant++) {
+                final int id = find(gram(variant(alternatives, i, n, variant), n));
+                if (id >= 0) {
+                    lists[variants] = blocks[id];
+                    listsSizes[variants++] = sizes[id];
+                }
+            }
+            if (variants == 0)
+                return new Query(start, end, null, null);
+            groups[i] = Arrays.copyOf(lists, variants);
+            groupsSizes[i] = Arrays.copyOf(listsSizes, variants);
+        }
+        return new Query(start, end, groups, groupsSizes);
+    }
+
+    /**
+     * @param variant the index of the variant, in the product of the alternatives of the n-gram characters
+     * @return the characters of the n-gram variant at offset
+     */
+    private static long variant(char[][] alternatives, int offset, int n, int variant) {
+        long key = 0;
+        for (int j = 0; j < n; j++) {
+            final char[] chars = alternatives[offset + j];
+            key = key << Character.SIZE | chars[variant % chars.length];
+            variant /= chars.length;
+        }
+        return key;
+    }
+
+    /**
+     * @return the character at index of the line prefixed by {@link #LINE_START}
+     */
+    private static char charAt(CharSequence line, int index) {
+        return index == 0 ? LINE_START : line.charAt(index - 1);
+    }
+
+    private void addBlock(long gram, int block) {
+        int id = find(gram);
+        if (id < 0)
+            id = insert(gram);
+        final int size = sizes[id];
+        int[] list = blocks[id];
+        if (size > 0 && list[size - 1] == block)
+            return;
+        if (size == list.length)
+            blocks[id] = list = Arrays.copyOf(list, size * 2);
+        list[size] = block;
+        sizes[id] = size + 1;
+    }
+
+    private int find(long gram) {
+        final int mask = keys.length - 1;
+        for (int slot = hash(gram) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == gram)
+                return ids[slot];
+        }
+        return -1;
+    }
+
+    private int insert(long gram) {
+        if (gramsCount * 2 >= keys.length)
+            rehash();
+        final int id = gramsCount++;
+        put(keys, ids, gram, id);
+        if (id == blocks.length) {
+            blocks = Arrays.copyOf(blocks, id * 2);
+            sizes = Arrays.copyOf(sizes, id * 2);
+        }
+        blocks[id] = new int[4];
+        return id;
+    }
+
+    private void rehash() {
+        final long[] newKeys = new long[keys.length * 2];
+        final int[] newIds = new int[newKeys.length];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0)
+                put(newKeys, newIds, keys[slot], ids[slot]);
+        }
+        keys = newKeys;
+        ids = newIds;
+    }
+
+    private static void put(long[] keys, int[] ids, long gram, int id) {
+        final int mask = keys.length - 1;
+        int slot = hash(gram) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = gram;
+        ids[slot] = id;
+    }
+
+    private static int hash(long gram) {
+        return (int) ((gram * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * @return the n-gram key: its length in the high bits, never 0
+     */
+    private static long gram(long chars, int length) {
+        return (long) length << (MAX_GRAM * Character.SIZE) | chars;
+    }
+
+    /**
+     * Characters matched by a character of a searched term, as the reader history searches patterns.
+     */
+    enum CaseMatching {
+        /**
+         * A character matches itself.
+         */
+        EXACT {
+            @Override
+            char[] alternatives(char c) {
+                return new char[]{c};
+            }
+        },
+        /**
+         * A lower case character also matches its upper case, as the reader incremental search.
+         */
+        SMART {
+            @Override
+            char[] alternatives(char c) {
+                final char upper = Character.toUpperCase(c);
+                if (!Character.isLowerCase(c) || upper == c)
+                    return new char[]{c};
+                return new char[]{c, upper};
+            }
+        },
+        /**
+         * A character matches the characters with the same case folding, as the reader incremental search with
+         * {@link org.jline.reader.LineReader.Option#CASE_INSENSITIVE_SEARCH} (a <code>CASE_INSENSITIVE</code> and
+         * <code>UNICODE_CASE</code> pattern). Surrogates can match other code points: they are not searched in the
+         * index.
+         */
+        IGNORE {
+            @Override
+            char[] alternatives(char c) {
+                if (Character.isSurrogate(c))
+                    return null;
+                final char[] folded = CaseFolding.CLASSES.get(CaseFolding.fold(c));
+                return folded == null ? new char[]{c} : folded;
+            }
+        };
+
+        /**
+         * @return the distinct characters matched by c, null if unknown
+         */
+        abstract char[] alternatives(char c);
+    }
+
+    /**
+     * Classes of the characters with the same case folding, the case insensitive equality of java.util.regex.
+     */
+    private static final class CaseFolding {
+
+        // by folded character, classes of more than one character only
+        private static final Map<Character, char[]> CLASSES = createClasses();
+
+        private static char fold(char c) {
+            return Character.toLowerCase(Character.toUpperCase(c));
+        }
+
+        private static Map<Character, char[]> createClasses() {
+            final Map<Character, StringBuilder> builders = new HashMap<>();
+            for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+                if (!Character.isSurrogate((char) c))
+                    builders.computeIfAbsent(fold((char) c), f -> new StringBuilder()).append((char) c);
+            }
+            final Map<Character, char[]> classes = new HashMap<>();
+            builders.forEach((folded, chars) -> {
+                // a pattern character also matches its folded character
+                if (chars.indexOf(String.valueOf(folded)) < 0)
+                    chars.append(folded.charValue());
+                if (chars.length() > 1)
+                    classes.put(folded, chars.toString().toCharArray());
+            });
+            return classes;
+        }
+    }
+
+    /**
+     * Candidate entries of a term, in the indexed entries [start, end[ when queried, the other entries being
+     * candidates.
+     */
+    static final class Query {
+        private final int start;
+        private final int end;
+        // for each n-gram of the term, the blocks lists of its variants, null if a n-gram is not indexed
+        private final int[][][] groups;
+        private final int[][] sizes;
+
+        private Query(int start, int end, int[][][] groups, int[][] sizes) {
+            this.start = start;
+            this.end = end;
+            this.groups = groups;
+            this.sizes = sizes;
+        }
+
+        /**
+         * @return the first candidate entry from index
+         */
+        int next(int index) {
+            if (index < start || index >= end)
+                return index;
+            final int block = groups == null ? -1 : nextBlock(index >> BLOCK_SHIFT);
+            if (block < 0)
+                return end;
+            return Math.max(index, block << BLOCK_SHIFT);
+        }
+
+        /**
+         * @return the last candidate entry up to index
+         */
+        int previous(int index) {
+            if (index < start || index >= end)
+                return index;
+            final int block = groups == null ? -1 : previousBlock(index >> BLOCK_SHIFT);
+            if (block < 0)
+                return start - 1;
+            return Math.min(index, (block << BLOCK_SHIFT) + BLOCK_SIZE - 1);
+        }
+
+        /**
+         * Leapfrog intersection of the n-grams blocks.
+         *
+         * @return the first block from block containing all the n-grams, -1 if none
+         */
+        private int nextBlock(int block) {
+            int candidate = block;
+            for (int i = 0, agreed = 0; agreed < groups.length; i = (i + 1) % groups.length) {
+                final int found = ceiling(groups[i], sizes[i], candidate);
+                if (found < 0)
+                    return -1;
+                if (found == candidate) {
+                    agreed++;
+                } else {
+                    candidate = found;
+                    agreed = 1;
+                }
+            }
+            return candidate;
+        }
+
+        /**
+         * @return the last block up to block containing all the n-grams, -1 if none
+         */
+        private int previousBlock(int block) {
+            int candidate = block;
+            for (int i = 0, agreed = 0; agreed < groups.length; i = (i + 1) % groups.length) {
+                final int found = floor(groups[i], sizes[i], candidate);
+                if (found < 0)
+                    return -1;
+                if (found == candidate) {
+                    agreed++;
+                } else {
+                    candidate = found;
+                    agreed = 1;
+                }
+            }
+            return candidate;
+        }
+
+        /**
+         * @return the first block from block in one of the lists, -1 if none
+         */
+        private static int ceiling(int[][] lists, int[] sizes, int block) {
+            int ceiling = -1;
+            for (int i = 0; i < lists.length; i++) {
+                final int position = Arrays.binarySearch(lists[i], 0, sizes[i], block);
+                if (position >= 0)
+                    return block;
+                final int insertion = -position - 1;
+                if (insertion < sizes[i] && (ceiling < 0 || lists[i][insertion] < ceiling))
+                    ceiling = lists[i][insertion];
+            }
+            return ceiling;
+        }
+
+        /**
+         * @return the last block up to block in one of the lists, -1 if none
+         */
+        private static int floor(int[][] lists, int[] sizes, int block) {
+            int floor = -1;
+            for (int i = 0; i < lists.length; i++) {
+                final int position = Arrays.binarySearch(lists[i], 0, sizes[i], block);
+                if (position >= 0)
+                    return block;
+                final int insertion = -position - 1;
+                if (insertion > 0)
+                    floor = Math.max(floor, lists[i][insertion - 1]);
+            }
+            return floor;
+        }
+    }
+
+}
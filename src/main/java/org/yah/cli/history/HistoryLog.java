@@ -0,0 +1,593 @@
+package org.yah.cli.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Append-only history file, one entry per line in the JLine <code>DefaultHistory</code> format
+ * (<code>epochMillis:line</code>, with '\', '\n' and '\r' escaped), so that existing history files are read as is.
+ * <br/>
+ * The file is memory mapped and indexed by the end offset of each line, kept in an index file
+ * (<code>&lt;file&gt;.idx</code>, one long per entry) appended with the entries: opening the log reads the index
+ * and only scans the lines appended after it (8 bytes at a time), no entry is decoded until read. An index not
+ * matching the file (i.e. a <code>DefaultHistory</code> file) is rebuilt by scanning the whole file.<br/>
+ * Entries are appended with positional writes, without rewriting the files; {@link #force()} syncs them to the
+ * storage and {@link #compact(int)} rewrites the files with their last entries only.<br/>
+ * Entry indices are absolute: an entry keeps its index when older entries are removed by {@link #compact(int)}, the
+ * first entry of the log being {@link #first()}.<br/>
+ * The file can be written concurrently by several sessions (processes), shared or not: it is locked to open,
+ * append, compact or clear it, the entries appended by the other sessions being added first. A shared log also adds
+ * them with {@link #tail()}, without locking, scanning the file from the last known offset. The files are compacted
+ * and cleared by renaming new files over them, never truncated, so that the other sessions can still read their
+ * mapping: they detect the replaced file by its {@link BasicFileAttributes#fileKey() key} and reopen it, the indices
+ * restarting at 0 and the {@link #generation()} being incremented.<br/>
+ * Not thread safe, see {@link LogHistory}.
+ */
+final class HistoryLog implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HistoryLog.class);
+
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final int INDEX_CHECKS = 16;
+
+    private static final byte NEWLINE = '\n';
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * Open (or create) the log file and its index. An incomplete last line, left by an interrupted write, is
+     * removed.
+     *
+     * @param shared true to read the entries appended by the other sessions with {@link #tail()}
+     */
+    static HistoryLog open(Path file, boolean shared) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        final HistoryLog log = new HistoryLog(file, shared);
+        try {
+            final FileLock lock = log.channel.lock();
+            try {
+                log.index(true);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    private final Path file;
+    private final Path indexFile;
+    private final boolean shared;
+    private FileChannel channel;
+    private FileChannel indexChannel;
+    // the opened file key, to detect a file replaced by another session
+    private Object fileKey;
+    // maps the file up to a complete entry, remapped when an entry past its end is read
+    private MappedByteBuffer mapped;
+
+    // end offsets (exclusive, after the newline) of the entries
+    private long[] ends = new long[1024];
+    private int count;
+    // number of entries removed by compactions, index of the first entry of the file
+    private int first;
+    private int generation;
+    private boolean dirty;
+
+    private HistoryLog(Path file, boolean shared) throws IOException {
+        this.file = file;
+        this.indexFile = file.resolveSibling(file.getFileName() + INDEX_EXTENSION);
+        this.shared = shared;
+        reopen();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * @return the number of times the file was reopened, replaced by another session
+     */
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * @return the index of the first entry
+     */
+    int first() {
+        return first;
+    }
+
+    /**
+     * @return the index following the last entry
+     */
+    int end() {
+        return first + count;
+    }
+
+    /**
+     * @return the number of entries in the file
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return the log size in bytes
+     */
+    long size() {
+        return count == 0 ? 0 : ends[count - 1];
+    }
+
+    /**
+     * Decode an entry.
+     *
+     * @param index       in [{@link #first()}, {@link #end()}[
+     * @param timestamped true to read the time prefix of the entries
+     */
+    HistoryEntry read(int index, boolean timestamped) throws IOException {
+        final int i = index - first;
+        if (i < 0 || i >= count)
+            throw new IndexOutOfBoundsException("Index " + index + " out of [" + first + ", " + end() + "[");
+        return read(mapped(ends[i]), ends, i, index, timestamped);
+    }
+
+    /**
+     * @return a read only view of the current entries, readable concurrently with this log
+     */
+    Snapshot snapshot() throws IOException {
+        return new Snapshot(mapped(size()), ends, first, count);
+    }
+
+    /**
+     * Append an entry at the end of the file, not synced to the storage until {@link #force()}. The entries appended
+     * by the other sessions are added first.
+     *
+     * @return the entry index
+     */
+    int append(Instant time, String line, boolean timestamped) throws IOException {
+        final byte[] bytes = (HistoryEntry.encode(time, line, timestamped) + '\n').getBytes(StandardCharsets.UTF_8);
+        final FileLock lock = lock();
+        try {
+            final long end = size() + bytes.length;
+            write(channel, ByteBuffer.wrap(bytes), size());
+            write(indexChannel, ByteBuffer.allocate(Long.BYTES).putLong(0, end), (long) count * Long.BYTES);
+            addEnd(end);
+            dirty = true;
+        } finally {
+            lock.release();
+        }
+        return end() - 1;
+    }
+
+    /**
+     * Add the complete entries appended by the other sessions since the last known offset, without locking the file.
+     * Reopen the file if replaced by another session.
+     */
+    void tail() throws IOException {
+        if (isReplaced())
+            reload();
+        else
+            scanTo(channel.size());
+    }
+
+    /**
+     * Sync the appended entries to the storage.
+     */
+    void force() throws IOException {
+        if (dirty) {
+            channel.force(false);
+            indexChannel.force(false);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Rewrite the files with their last keep entries, in temporary files replacing the log files. Removed entries
+     * indices are not reused.
+     */
+    void compact(int keep) throws IOException {
+        final FileLock lock = lock();
+        try {
+            if (count <= keep)
+                return;
+            final int removed = count - keep;
+            final long from = ends[removed - 1];
+            final long size = size();
+            final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            final Path indexTmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = from;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, out);
+                }
+                out.force(false);
+            }
+            final long[] keptEnds = new long[Math.max(1024, keep)];
+            for (int i = 0; i < keep; i++) {
+                keptEnds[i] = ends[i + removed] - from;
+            }
+            writeIndex(indexTmp, keptEnds, keep);
+
+            replace(tmp, indexTmp);
+            ends = keptEnds;
+            count = keep;
+            first += removed;
+        } finally {
+            lock.release();
+        }
+        close();
+        reopen();
+    }
+
+    /**
+     * Remove all the entries, indices restarting at 0.
+     */
+    void clear() throws IOException {
+        final FileLock lock = lock();
+        try {
+            final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            final Path indexTmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            Files.write(tmp, new byte[0]);
+            Files.write(indexTmp, new byte[0]);
+            try {
+                replace(tmp, indexTmp);
+            } catch (IOException e) {
+                if (shared)
+                    throw e;
+                channel.truncate(0);
+                indexChannel.truncate(0);
+            }
+            // the snapshots keep the previous ends
+            ends = new long[1024];
+            count = 0;
+            first = 0;
+            dirty = false;
+        } finally {
+            lock.release();
+        }
+        close();
+        reopen();
+    }
+
+    /**
+     * Close the log and delete its files.
+     */
+    void delete() throws IOException {
+        try {
+            close();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapped = null;
+        try {
+            force();
+        } finally {
+            try {
+                if (indexChannel != null)
+                    indexChannel.close();
+            } finally {
+                if (channel != null)
+                    channel.close();
+            }
+        }
+    }
+
+    /**
+     * Move the temporary files over the log files.
+     */
+    private void replace(Path tmp, Path indexTmp) throws IOException {
+        mapped = null;
+        try {
+            // an index not matching its file is rebuilt: the log is moved first, making the old index invalid
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(indexTmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // i.e. an opened file can not be replaced on Windows: keep the log as is
+            Files.deleteIfExists(tmp);
+            Files.deleteIfExists(indexTmp);
+            throw e;
+        }
+    }
+
+    private void reopen() throws IOException {
+        // the key of the opened file, unless replaced while opened
+        Object key = currentFileKey();
+        while (true) {
+            channel = openChannel(file);
+            final Object openedKey = currentFileKey();
+            if (Objects.equals(key, openedKey))
+                break;
+            channel.close();
+            key = openedKey;
+        }
+        fileKey = key;
+        indexChannel = openChannel(indexFile);
+    }
+
+    /**
+     * Lock the file, the entries appended by the other sessions being added, and the index entries they did
+     * not write. The file is reopened if replaced by another session.
+     */
+    private FileLock lock() throws IOException {
+        FileLock lock = channel.lock();
+        while (isReplaced()) {
+            lock.release();
+            reload();
+            lock = channel.lock();
+        }
+        try {
+            final long fileSize = channel.size();
+            final long size = scanTo(fileSize);
+            if (size < fileSize) {
+                LOGGER.warn("Removing incomplete last entry of history file {}", file);
+                channel.truncate(size);
+                mapped = null;
+            }
+            final int indexed = (int) Math.min(indexChannel.size() / Long.BYTES, count);
+            if (indexed < count)
+                writeIndex(indexed);
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            throw e;
+        }
+        return lock;
+    }
+
+    /**
+     * @return true if the file was compacted or cleared by another session
+     */
+    private boolean isReplaced() throws IOException {
+        return channel.size() < size() || !Objects.equals(fileKey, currentFileKey());
+    }
+
+    private void reload() throws IOException {
+        close();
+        reopen();
+        // the snapshots keep the previous ends
+        ends = new long[1024];
+        count = 0;
+        first = 0;
+        generation++;
+        index(false);
+    }
+
+    private Object currentFileKey() throws IOException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the index, check it against the file, then scan the lines appended after it.
+     *
+     * @param exclusive true if the files can be modified: not shared or locked
+     */
+    private void index(boolean exclusive) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE)
+            throw new IOException("History file " + file + " is too large: " + fileSize + " bytes");
+        if (fileSize > 0)
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        readIndex();
+        if (!isIndexValid(fileSize)) {
+            if (indexChannel.size() > 0)
+                LOGGER.info("Rebuilding history index {}", indexFile);
+            count = 0;
+            if (exclusive)
+                indexChannel.truncate(0);
+        }
+        final int indexed = count;
+        final long size = scanTo(fileSize);
+        if (!exclusive)
+            return;
+        if (count > indexed)
+            writeIndex(indexed);
+        if (size < fileSize) {
+            LOGGER.warn("Removing incomplete last entry of history file {}", file);
+            channel.truncate(size);
+            mapped = null;
+        }
+    }
+
+    private void readIndex() throws IOException {
+        final long indexSize = indexChannel.size();
+        // an incomplete last offset is ignored, and overwritten by the next append
+        final int indexed = (int) Math.min(indexSize / Long.BYTES, Integer.MAX_VALUE);
+        if (indexed == 0)
+            return;
+        final ByteBuffer buffer = ByteBuffer.allocate(indexed * Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (indexChannel.read(buffer, buffer.position()) < 0)
+                throw new IOException("Unexpected end of history index " + indexFile);
+        }
+        ends = new long[Math.max(1024, indexed + indexed / 2)];
+        buffer.flip().asLongBuffer().get(ends, 0, indexed);
+        count = indexed;
+    }
+
+    /**
+     * Write the end offsets of the entries from index to the index file.
+     */
+    private void writeIndex(int from) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((count - from) * Long.BYTES);
+        buffer.asLongBuffer().put(ends, from, count - from);
+        write(indexChannel, buffer, (long) from * Long.BYTES);
+        dirty = true;
+    }
+
+    /**
+     * @return true if the index offsets are increasing newline ends within the file, checking a sample of
+     * {@link #INDEX_CHECKS} of them
+     */
+    private boolean isIndexValid(long fileSize) {
+        if (count == 0)
+            return true;
+        if (ends[count - 1] > fileSize)
+            return false;
+        final int step = Math.max(1, count / INDEX_CHECKS);
+        for (int i = count - 1; i >= 0; i -= step) {
+            final long end = ends[i];
+            if (end <= (i == 0 ? 0 : ends[i - 1]) || mapped.get((int) end - 1) != NEWLINE)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add the complete lines from the log size up to fileSize.
+     *
+     * @return the end of the last complete line
+     */
+    private long scanTo(long fileSize) throws IOException {
+        if (fileSize > Integer.MAX_VALUE)
+            throw new IOException("History file " + file + " is too large: " + fileSize + " bytes");
+        final long size = size();
+        if (fileSize <= size)
+            return size;
+        return scan(mapped(fileSize), (int) size, (int) fileSize);
+    }
+
+    /**
+     * Add the ends of the lines in buffer[from, to[.
+     *
+     * @return the end of the last complete line
+     */
+    private long scan(ByteBuffer buffer, int from, int to) {
+        long end = from;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            // zero byte detection of word ^ NEWLINES: only look at the bytes of the words containing a newline
+            final long word = buffer.getLong(i) ^ NEWLINES;
+            if (((word - LOW_BITS) & ~word & HIGH_BITS) == 0)
+                continue;
+            for (int j = i; j < i + Long.BYTES; j++) {
+                if (buffer.get(j) == NEWLINE) {
+                    end = j + 1;
+                    addEnd(end);
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == NEWLINE) {
+                end = i + 1;
+                addEnd(end);
+            }
+        }
+        return end;
+    }
+
+    private void addEnd(long end) {
+        if (count == ends.length)
+            ends = Arrays.copyOf(ends, count * 2);
+        ends[count++] = end;
+    }
+
+    /**
+     * @return the file mapped up to end at least
+     */
+    private MappedByteBuffer mapped(long end) throws IOException {
+        if (mapped == null || mapped.capacity() < end) {
+            final long size = Math.max(end, size());
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("History file " + file + " is too large: " + size + " bytes");
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return mapped;
+    }
+
+    private static HistoryEntry read(ByteBuffer buffer, long[] ends, int i, int index, boolean timestamped) {
+        final long start = i == 0 ? 0 : ends[i - 1];
+        final byte[] bytes = new byte[(int) (ends[i] - 1 - start)];
+        buffer.duplicate().position((int) start).get(bytes);
+        return HistoryEntry.decode(index, new String(bytes, StandardCharsets.UTF_8), timestamped);
+    }
+
+    private static void writeIndex(Path indexFile, long[] ends, int count) throws IOException {
+        try (FileChannel out = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(count * Long.BYTES);
+            buffer.asLongBuffer().put(ends, 0, count);
+            write(out, buffer, 0);
+            out.force(false);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * The entries of the log when snapshot: the appended entries end offsets are stored after them, or in a copy of
+     * the array, and the mapping stays valid when the file is compacted.
+     */
+    static final class Snapshot {
+        private final ByteBuffer mapped;
+        private final long[] ends;
+        private final int first;
+        private final int count;
+
+        private Snapshot(ByteBuffer mapped, long[] ends, int first, int count) {
+            this.mapped = mapped;
+            this.ends = ends;
+            this.first = first;
+            this.count = count;
+        }
+
+        int first() {
+            return first;
+        }
+
+        int end() {
+            return first + count;
+        }
+
+        HistoryEntry read(int index, boolean timestamped) {
+            final int i = index - first;
+            if (i < 0 || i >= count)
+                throw new IndexOutOfBoundsException("Index " + index + " out of [" + first + ", " + end() + "[");
+            return HistoryLog.read(mapped, ends, i, index, timestamped);
+        }
+    }
+
+}
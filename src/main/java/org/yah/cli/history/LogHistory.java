@@ -0,0 +1,735 @@
+package org.yah.cli.history;
+
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.ReaderUtils;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link History} stored in an append-only, memory mapped {@link HistoryLog}, replacing the JLine
+ * {@link DefaultHistory} that loads all the entries at startup and rewrites its file on save.<br/>
+ * Opening the history only indexes the file lines, entries are decoded when read and the last decoded entries are
+ * kept in a bounded cache. Added lines are appended to the file right away, the file being synced to the storage
+ * in the background after {@link #getSyncDelay()}, by {@link #save()} and {@link #close()}. When the file has 50%
+ * more entries than {@link LineReader#HISTORY_FILE_SIZE}, it is compacted in the background.<br/>
+ * The file is the {@link LineReader#HISTORY_FILE} variable, in the <code>DefaultHistory</code> format, a temporary
+ * file deleted on close if not set. The other <code>DefaultHistory</code> variables and options are supported:
+ * {@link LineReader#HISTORY_SIZE} limits the number of entries browsed, {@link LineReader#HISTORY_IGNORE},
+ * {@link LineReader.Option#HISTORY_IGNORE_SPACE}, {@link LineReader.Option#HISTORY_IGNORE_DUPS},
+ * {@link LineReader.Option#HISTORY_REDUCE_BLANKS} filter the added lines, and
+ * {@link LineReader.Option#HISTORY_TIMESTAMPED} prefixes them with their time.<br/>
+ * The entries are indexed by a {@link HistoryIndex}, built in the background from a snapshot of the file when it is
+ * opened, then updated when a line is added. The incremental searches of the reader (<code>history-incremental-search-backward</code> and
+ * <code>-forward</code>) use it: while the reader {@link LineReader#getSearchTerm() search term} is set, the
+ * {@link #iterator(int)} only returns the entries that can contain it, the reader matching them. {@link #searchBackwards}
+ * uses it to expand the <code>!prefix</code> and <code>!?term</code> events, see {@link HistoryExpander}.<br/>
+ * Lines are appended with the file locked, after the lines appended by the other sessions (processes) using it, the
+ * file being reloaded when compacted or purged by another session. If the {@link #HISTORY_SHARED} variable is set,
+ * the lines appended by the others are also read from the last known offset when the reader starts reading a line,
+ * otherwise only when this session adds a line. Sharing a file between two histories of the same process is not
+ * supported.<br/>
+ * Installed by the default {@link org.yah.cli.Cli#configure(org.jline.reader.LineReaderBuilder)}.
+ */
+public final class LogHistory implements History, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogHistory.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    public static final Duration DEFAULT_SYNC_DELAY = Duration.ofSeconds(1);
+
+    /**
+     * Boolean line reader variable, true to share the history file with the other sessions.
+     */
+    public static final String HISTORY_SHARED = "history-shared";
+
+    private final int cacheSize;
+    private final Duration syncDelay;
+    private final Map<Integer, HistoryEntry> cache;
+
+    // guarded by this
+    private LineReader reader;
+    private HistoryLog log;
+    private boolean temporary;
+    // absolute index of the browsed entry, end() when not browsing
+    private int index;
+    private ScheduledFuture<?> syncTask;
+    // null while built
+    private HistoryIndex historyIndex;
+    private Future<?> indexTask;
+    // the index built by indexTask, checked without locking to stop a replaced build
+    private volatile HistoryIndex pendingIndex;
+
+    public LogHistory() {
+        this(DEFAULT_CACHE_SIZE, DEFAULT_SYNC_DELAY);
+    }
+
+    /**
+     * @param cacheSize the maximum number of decoded entries kept in memory
+     * @param syncDelay the maximum time an added entry is not synced to the storage
+     */
+    public LogHistory(int cacheSize, Duration syncDelay) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("Negative cache size " + cacheSize);
+        this.cacheSize = cacheSize;
+        this.syncDelay = Objects.requireNonNull(syncDelay);
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, HistoryEntry> eldest) {
+                return size() > LogHistory.this.cacheSize;
+            }
+        };
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public Duration getSyncDelay() {
+        return syncDelay;
+    }
+
+    /**
+     * Attach the history to a reader, loading the history file. Called by the reader each time it reads a line,
+     * reading the lines added by the other sessions to a shared file.
+     */
+    @Override
+    public synchronized void attach(LineReader reader) {
+        if (this.reader == reader) {
+            tail();
+            return;
+        }
+        this.reader = reader;
+        try {
+            load();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to load history", e);
+        }
+    }
+
+    /**
+     * (Re)open the history file.
+     */
+    @Override
+    public synchronized void load() throws IOException {
+        closeLog();
+        final Path file = historyFile();
+        if (file != null) {
+            log = HistoryLog.open(file, ReaderUtils.getBoolean(reader, HISTORY_SHARED, false));
+        } else {
+            log = HistoryLog.open(Files.createTempFile("history", ".log"), false);
+            temporary = true;
+        }
+        index = log.end();
+        startIndexing();
+    }
+
+    /**
+     * Sync the added entries to the storage: the entries are written to the file when added.
+     */
+    @Override
+    public synchronized void save() throws IOException {
+        if (log != null)
+            log.force();
+    }
+
+    /**
+     * Write the entries to a file, in the <code>DefaultHistory</code> format.
+     *
+     * @param incremental ignored, all the entries are written
+     */
+    @Override
+    public void write(Path file, boolean incremental) throws IOException {
+        export(file, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Append the entries to a file, in the <code>DefaultHistory</code> format.
+     *
+     * @param incremental ignored, all the entries are appended
+     */
+    @Override
+    public void append(Path file, boolean incremental) throws IOException {
+        export(file, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Add the entries of a <code>DefaultHistory</code> file.
+     *
+     * @param checkDuplicates true to skip the lines already in this history
+     */
+    @Override
+    public synchronized void read(Path file, boolean checkDuplicates) throws IOException {
+        open();
+        final boolean timestamped = isTimestamped();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final HistoryEntry entry = HistoryEntry.decode(0, line, timestamped);
+                if (checkDuplicates && contains(entry.line()))
+                    continue;
+                append(entry.time(), entry.line());
+            }
+        }
+        index = log.end();
+    }
+
+    /**
+     * Remove all the entries from memory and from the file.
+     */
+    @Override
+    public synchronized void purge() throws IOException {
+        open();
+        log.clear();
+        cache.clear();
+        index = 0;
+        startIndexing();
+    }
+
+    @Override
+    public synchronized int size() {
+        return log == null ? 0 : log.end() - first();
+    }
+
+    @Override
+    public synchronized int index() {
+        return index;
+    }
+
+    @Override
+    public synchronized int first() {
+        if (log == null)
+            return 0;
+        return Math.max(log.first(), log.end() - ReaderUtils.getInt(reader, LineReader.HISTORY_SIZE,
+                DefaultHistory.DEFAULT_HISTORY_SIZE));
+    }
+
+    @Override
+    public synchronized int last() {
+        return log == null ? -1 : log.end() - 1;
+    }
+
+    @Override
+    public synchronized String get(int index) {
+        if (index < first() || index > last())
+            throw new IndexOutOfBoundsException("Index: " + index);
+        return entry(index).line();
+    }
+
+    @Override
+    public synchronized void add(Instant time, String line) {
+        Objects.requireNonNull(time);
+        Objects.requireNonNull(line);
+        if (ReaderUtils.getBoolean(reader, LineReader.DISABLE_HISTORY, false))
+            return;
+        if (ReaderUtils.isSet(reader, LineReader.Option.HISTORY_IGNORE_SPACE) && line.startsWith(" "))
+            return;
+        if (ReaderUtils.isSet(reader, LineReader.Option.HISTORY_REDUCE_BLANKS))
+            line = line.trim();
+        if (ReaderUtils.isSet(reader, LineReader.Option.HISTORY_IGNORE_DUPS) && size() > 0
+                && line.equals(get(last())))
+            return;
+        if (matchPatterns(ReaderUtils.getString(reader, LineReader.HISTORY_IGNORE, ""), line))
+            return;
+        try {
+            open();
+            append(time, line);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error adding history entry", e);
+        }
+        index = log.end();
+    }
+
+    /**
+     * @return an iterator over the entries from index, or over the entries that can contain the search term while
+     * the reader is searching the history, matching the case as the reader search pattern
+     */
+    @Override
+    public synchronized ListIterator<Entry> iterator(int index) {
+        final String term = reader == null ? null : reader.getSearchTerm();
+        if (term == null || term.isEmpty() || historyIndex == null)
+            return new EntryIterator(index, null);
+        final boolean caseInsensitive = ReaderUtils.isSet(reader, LineReader.Option.CASE_INSENSITIVE_SEARCH);
+        final HistoryIndex.Query query = historyIndex.query(term,
+                caseInsensitive ? HistoryIndex.CaseMatching.IGNORE : HistoryIndex.CaseMatching.SMART, false);
+        return new EntryIterator(index, query);
+    }
+
+    /**
+     * Search the last entry before index containing, or starting with, a term.
+     *
+     * @param term   the searched term, case sensitive
+     * @param prefix true to match the entries starting with the term
+     * @return the index of the matching entry, -1 if none
+     */
+    public synchronized int searchBackwards(String term, int index, boolean prefix) {
+        final ListIterator<Entry> iterator = new EntryIterator(index,
+                historyIndex == null ? null : historyIndex.query(term, HistoryIndex.CaseMatching.EXACT, prefix));
+        while (iterator.hasPrevious()) {
+            final Entry entry = iterator.previous();
+            if (prefix ? entry.line().startsWith(term) : entry.line().contains(term))
+                return entry.index();
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized String current() {
+        if (index < first() || index > last())
+            return "";
+        return entry(index).line();
+    }
+
+    @Override
+    public synchronized boolean previous() {
+        if (index <= first())
+            return false;
+        index--;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean next() {
+        if (index > last())
+            return false;
+        index++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean moveToFirst() {
+        if (size() > 0 && index != first()) {
+            index = first();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean moveToLast() {
+        final int last = last();
+        if (last >= first() && index != last) {
+            index = last;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean moveTo(int index) {
+        if (index >= first() && index <= last()) {
+            this.index = index;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void moveToEnd() {
+        index = last() + 1;
+    }
+
+    @Override
+    public synchronized void resetIndex() {
+        index = Math.min(index, last() + 1);
+    }
+
+    /**
+     * Sync and close the history file, deleted if temporary.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+            syncTask = null;
+        }
+        if (indexTask != null) {
+            indexTask.cancel(false);
+            indexTask = null;
+        }
+        pendingIndex = null;
+        closeLog();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LogHistory{" +
+                "file=" + (log == null ? null : log.getFile()) +
+                ", first=" + first() +
+                ", last=" + last() +
+                ", index=" + index +
+                '}';
+    }
+
+    // guarded by this
+    private HistoryEntry entry(int index) {
+        HistoryEntry entry = cache.get(index);
+        if (entry == null) {
+            try {
+                entry = log.read(index, isTimestamped());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading history entry " + index, e);
+            }
+            if (cacheSize > 0)
+                cache.put(index, entry);
+        }
+        return entry;
+    }
+
+    // guarded by this
+    private void append(Instant time, String line) throws IOException {
+        final int generation = log.generation();
+        final int index = log.append(time, line, isTimestamped());
+        if (log.generation() != generation)
+            reloaded();
+        if (cacheSize > 0)
+            cache.put(index, new HistoryEntry(index, time, line));
+        indexAdded();
+        if (syncTask == null)
+            syncTask = Sync.SCHEDULER.schedule(this::sync, syncDelay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Background task: sync the appended entries, then compact the file if needed.
+     */
+    private synchronized void sync() {
+        syncTask = null;
+        if (log == null)
+            return;
+        try {
+            log.force();
+            final int fileSize = ReaderUtils.getInt(reader, LineReader.HISTORY_FILE_SIZE,
+                    DefaultHistory.DEFAULT_HISTORY_FILE_SIZE);
+            if (log.count() > fileSize + fileSize / 2) {
+                final int generation = log.generation();
+                final int first = log.first();
+                final int end = log.end();
+                log.compact(fileSize);
+                if (log.generation() != generation) {
+                    // compacted by another session
+                    reloaded();
+                    index = log.end();
+                } else if (log.first() != first) {
+                    if (index == end)
+                        index = log.end();
+                    cache.keySet().removeIf(i -> i < log.first());
+                    startIndexing();
+                    LOGGER.debug("Compacted history file {}: {} entries removed", log.getFile(), log.first() - first);
+                } else {
+                    tailed(end);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error syncing history file {}", log.getFile(), e);
+        }
+    }
+
+    /**
+     * Read the lines added by the other sessions to a shared file.
+     */
+    // guarded by this
+    private void tail() {
+        if (log == null || !log.isShared())
+            return;
+        final int generation = log.generation();
+        final int end = log.end();
+        try {
+            log.tail();
+        } catch (IOException e) {
+            LOGGER.warn("Error reading history file {}", log.getFile(), e);
+            return;
+        }
+        if (log.generation() != generation) {
+            reloaded();
+            index = log.end();
+        } else {
+            tailed(end);
+        }
+    }
+
+    /**
+     * Update the browsed entry and the index with the entries read after end.
+     */
+    // guarded by this
+    private void tailed(int end) {
+        if (index == end)
+            index = log.end();
+        indexAdded();
+    }
+
+    /**
+     * The shared file was replaced by another session, and reopened with new indices.
+     */
+    // guarded by this
+    private void reloaded() {
+        LOGGER.debug("Reloaded history file {}", log.getFile());
+        cache.clear();
+        startIndexing();
+    }
+
+    // guarded by this
+    private void indexAdded() {
+        if (historyIndex == null)
+            return;
+        for (int i = historyIndex.end(); i < log.end(); i++) {
+            historyIndex.add(i, entry(i).line());
+        }
+    }
+
+    /**
+     * Index the entries in the background, the reader searches matching all the entries until the index is built.
+     */
+    // guarded by this
+    private void startIndexing() {
+        if (indexTask != null)
+            indexTask.cancel(false);
+        historyIndex = null;
+        final HistoryIndex target = new HistoryIndex(first());
+        pendingIndex = target;
+        final HistoryLog.Snapshot snapshot;
+        try {
+            snapshot = log.snapshot();
+        } catch (IOException e) {
+            LOGGER.warn("Error indexing history file {}", log.getFile(), e);
+            return;
+        }
+        final boolean timestamped = isTimestamped();
+        indexTask = Sync.SCHEDULER.submit(() -> buildIndex(target, snapshot, timestamped));
+    }
+
+    /**
+     * Background task: index the snapshot entries without locking the history, then the entries added since.
+     */
+    private void buildIndex(HistoryIndex target, HistoryLog.Snapshot snapshot, boolean timestamped) {
+        for (int i = Math.max(target.end(), snapshot.first()); i < snapshot.end(); i++) {
+            if (pendingIndex != target)
+                return;
+            target.add(i, snapshot.read(i, timestamped).line());
+        }
+        synchronized (this) {
+            if (pendingIndex != target)
+                return;
+            try {
+                for (int i = Math.max(target.end(), log.first()); i < log.end(); i++) {
+                    target.add(i, entry(i).line());
+                }
+            } catch (UncheckedIOException e) {
+                LOGGER.warn("Error indexing history file {}", log.getFile(), e);
+                return;
+            } finally {
+                pendingIndex = null;
+                indexTask = null;
+            }
+            historyIndex = target;
+        }
+    }
+
+    // guarded by this
+    private void open() throws IOException {
+        if (log == null)
+            load();
+    }
+
+    // guarded by this
+    private void closeLog() throws IOException {
+        cache.clear();
+        historyIndex = null;
+        if (log == null)
+            return;
+        final HistoryLog closed = log;
+        log = null;
+        try {
+            if (temporary)
+                closed.delete();
+            else
+                closed.close();
+        } finally {
+            temporary = false;
+        }
+    }
+
+    private void export(Path file, StandardOpenOption option) throws IOException {
+        final boolean timestamped = isTimestamped();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, option)) {
+            final ListIterator<Entry> iterator = iterator(first());
+            while (iterator.hasNext()) {
+                final Entry entry = iterator.next();
+                if (isPersistable(entry)) {
+                    writer.append(HistoryEntry.encode(entry.time(), entry.line(), timestamped));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    // guarded by this
+    private boolean contains(String line) {
+        for (int i = first(); i <= last(); i++) {
+            if (entry(i).line().equals(line))
+                return true;
+        }
+        return false;
+    }
+
+    private Path historyFile() {
+        final Object file = reader == null ? null : reader.getVariable(LineReader.HISTORY_FILE);
+        if (file instanceof Path)
+            return (Path) file;
+        if (file instanceof File)
+            return ((File) file).toPath();
+        return file == null ? null : Path.of(file.toString());
+    }
+
+    private boolean isTimestamped() {
+        return ReaderUtils.isSet(reader, LineReader.Option.HISTORY_TIMESTAMPED);
+    }
+
+    /**
+     * @param patterns ':' separated regular expressions, '*' matching any characters and '\' escaping the next
+     *                 character, as <code>DefaultHistory</code>
+     */
+    private static boolean matchPatterns(String patterns, String line) {
+        if (patterns == null || patterns.isEmpty())
+            return false;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < patterns.length(); i++) {
+            final char c = patterns.charAt(i);
+            if (c == '\\' && i + 1 < patterns.length())
+                sb.append(patterns.charAt(++i));
+            else if (c == ':')
+                sb.append('|');
+            else if (c == '*')
+                sb.append(".*");
+            else
+                sb.append(c);
+        }
+        return line.matches(sb.toString());
+    }
+
+    /**
+     * Iterator over the browsable entries, starting at an absolute index, skipping the entries that are not
+     * candidates of a query.
+     */
+    private final class EntryIterator implements ListIterator<Entry> {
+        // null to iterate all the entries
+        private final HistoryIndex.Query query;
+        private int next;
+
+        private EntryIterator(int next, HistoryIndex.Query query) {
+            this.next = next;
+            this.query = query;
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (LogHistory.this) {
+                return next >= first() && nextCandidate() <= last();
+            }
+        }
+
+        @Override
+        public Entry next() {
+            synchronized (LogHistory.this) {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                final int candidate = nextCandidate();
+                next = candidate + 1;
+                return entry(candidate);
+            }
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            synchronized (LogHistory.this) {
+                return next <= last() + 1 && previousCandidate() >= first();
+            }
+        }
+
+        @Override
+        public Entry previous() {
+            synchronized (LogHistory.this) {
+                if (!hasPrevious())
+                    throw new NoSuchElementException();
+                next = previousCandidate();
+                return entry(next);
+            }
+        }
+
+        // guarded by LogHistory.this
+        private int nextCandidate() {
+            return query == null ? next : query.next(next);
+        }
+
+        // guarded by LogHistory.this
+        private int previousCandidate() {
+            return query == null ? next - 1 : query.previous(next - 1);
+        }
+
+        @Override
+        public int nextIndex() {
+            return next;
+        }
+
+        @Override
+        public int previousIndex() {
+            return next - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(Entry entry) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(Entry entry) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Lazily started history thread, syncing, compacting and indexing the histories
+     */
+    private static final class Sync {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+        private static ScheduledThreadPoolExecutor createScheduler() {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                final Thread thread = new Thread(r, "history-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+}
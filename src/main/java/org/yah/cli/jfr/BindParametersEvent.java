@@ -0,0 +1,11 @@
+package org.yah.cli.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.yah.cli.BindParameters")
+@Label("Bind Parameters")
+@Description("Parsing of the command parameters from the remaining words of the line")
+public final class BindParametersEvent extends CommandEvent {
+}
@@ -0,0 +1,60 @@
+package org.yah.cli.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import org.yah.cli.CommandLine;
+import org.yah.cli.command.Command;
+
+/**
+ * Base of the CLI JFR events: the command and the size of its line.<br/>
+ * Events follow the JFR pattern: create, {@link #begin()}, then set the fields only if {@link #shouldCommit()}, so
+ * that nothing is computed (and the event allocation is eliminated by the JIT) when no recording enables them.
+ */
+@Category("CLI")
+@StackTrace(false)
+public abstract class CommandEvent extends Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Line Length")
+    int lineLength;
+
+    @Label("Word Count")
+    int wordCount;
+
+    CommandEvent() {
+    }
+
+    /**
+     * End the event, and commit it if {@link #shouldCommit()}.
+     *
+     * @param command     the command, null if not resolved
+     * @param commandLine the command line
+     */
+    public void commit(Command command, CommandLine commandLine) {
+        end();
+        if (shouldCommit())
+            commit(command == null ? null : command.getQualifiedName(), commandLine.length(), commandLine.wordCount());
+    }
+
+    /**
+     * End the event, and commit it if {@link #shouldCommit()}.
+     *
+     * @param command    the command qualified name, or the first word of an unresolved line, null if none
+     * @param lineLength the line length, -1 if unknown
+     * @param wordCount  the line words count, -1 if unknown
+     */
+    public void commit(String command, int lineLength, int wordCount) {
+        end();
+        if (shouldCommit()) {
+            this.command = command;
+            this.lineLength = lineLength;
+            this.wordCount = wordCount;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.yah.cli.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.yah.cli.CommandLine;
+import org.yah.cli.command.Command;
+
+@Name("org.yah.cli.ExecuteCommand")
+@Label("Execute Command")
+@Description("Execution of a command action, including its parameters binding")
+public final class ExecuteCommandEvent extends CommandEvent {
+
+    @Label("Background")
+    boolean background;
+
+    public void commit(Command command, CommandLine commandLine, boolean background) {
+        end();
+        if (shouldCommit())
+            this.background = background;
+        commit(command, commandLine);
+    }
+
+}
@@ -0,0 +1,23 @@
+package org.yah.cli.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jline.reader.Parser.ParseContext;
+
+@Name("org.yah.cli.ParseLine")
+@Label("Parse Line")
+@Description("Split of a line into words by the CLI parser, for execution or completion")
+public final class ParseLineEvent extends CommandEvent {
+
+    @Label("Context")
+    String context;
+
+    public void commit(String command, int lineLength, int wordCount, ParseContext context) {
+        end();
+        if (shouldCommit())
+            this.context = context == null ? null : context.name();
+        commit(command, lineLength, wordCount);
+    }
+
+}
@@ -0,0 +1,11 @@
+package org.yah.cli.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.yah.cli.ResolveCommand")
+@Label("Resolve Command")
+@Description("Lookup of the command of a line in the commands registry")
+public final class ResolveCommandEvent extends CommandEvent {
+}
@@ -0,0 +1,32 @@
+package org.yah.cli.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.yah.cli.TerminalWrite")
+@Label("Terminal Write")
+@Description("Write of a command output to the terminal, or to its background job buffer")
+public final class TerminalWriteEvent extends CommandEvent {
+
+    @Label("Size")
+    @DataAmount
+    long size;
+
+    @Label("Background")
+    boolean background;
+
+    /**
+     * @param size the number of chars or bytes written
+     */
+    public void commit(String command, int lineLength, int wordCount, long size, boolean background) {
+        end();
+        if (shouldCommit()) {
+            this.size = size;
+            this.background = background;
+        }
+        commit(command, lineLength, wordCount);
+    }
+
+}
@@ -4,7 +4,9 @@ import org.jline.reader.CompletingParsedLine;
 import org.jline.reader.EOFError;
 import org.jline.reader.ParsedLine;
 import org.jline.reader.Parser;
+import org.yah.cli.jfr.ParseLineEvent;
 
+import java.nio.CharBuffer;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -13,18 +15,51 @@ import java.util.regex.Pattern;
 @SuppressWarnings("ALL")
 public class CliParser implements Parser {
 
+    // true for the classes overriding a scanning hook, parsed by calling the hooks for each character
+    private static final ClassValue<Boolean> SCANNING_HOOKS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (String hook : new String[]{"isQuoteChar", "isEscapeChar", "isEscaped", "isDelimiter"}) {
+                try {
+                    if (type.getMethod(hook, CharSequence.class, int.class).getDeclaringClass() != CliParser.class)
+                        return true;
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return false;
+        }
+    };
+
     private char[] quoteChars = {'\'', '"'};
     private char[] escapeChars = {'\\'};
     private boolean eofOnUnclosedQuote;
     private boolean eofOnEscapedNewLine;
     private char[] openingBrackets = null;
     private char[] closingBrackets = null;
-    private String regexVariable = "[a-zA-Z_]+[a-zA-Z0-9_-]*((.|\\['|\\[\"|\\[)[a-zA-Z0-9_-]*(|']|\"]|]))?";
-    private String regexCommand = "[:]?[a-zA-Z]+[a-zA-Z0-9_-]*";
+    private String regexVariable = DefaultGrammar.REGEX_VARIABLE;
+    private String regexCommand = DefaultGrammar.REGEX_COMMAND;
     private int commandGroup = 4;
 
+    // grammar patterns, compiled when regexVariable or regexCommand change
+    private Pattern commandPattern;
+    private Pattern variablePattern;
+    private Pattern commandLinePattern;
+    private Pattern variableLinePattern;
+
+    // last parsed line, reused by completion parsing of a line sharing a prefix with it
+    private volatile CliParser.ArgumentList lastParsed;
+
+    // false to track the escape state while scanning instead of calling the hooks
+    private final boolean scanningHooks;
+
+    public CliParser() {
+        compileGrammar();
+        scanningHooks = SCANNING_HOOKS.get(getClass());
+    }
+
     public CliParser quoteChars(final char[] chars) {
-        this.quoteChars = chars;
+        setQuoteChars(chars);
         return this;
     }
 
@@ -33,7 +68,7 @@ public class CliParser implements Parser {
     //
 
     public CliParser escapeChars(final char[] chars) {
-        this.escapeChars = chars;
+        setEscapeChars(chars);
         return this;
     }
 
@@ -53,12 +88,12 @@ public class CliParser implements Parser {
     }
 
     public CliParser regexVariable(String regexVariable) {
-        this.regexVariable = regexVariable;
+        setRegexVariable(regexVariable);
         return this;
     }
 
     public CliParser regexCommand(String regexCommand) {
-        this.regexCommand = regexCommand;
+        setRegexCommand(regexCommand);
         return this;
     }
 
@@ -77,6 +112,7 @@ public class CliParser implements Parser {
 
     public void setQuoteChars(final char[] chars) {
         this.quoteChars = chars;
+        lastParsed = null;
     }
 
     public char[] getEscapeChars() {
@@ -85,6 +121,7 @@ public class CliParser implements Parser {
 
     public void setEscapeChars(final char[] chars) {
         this.escapeChars = chars;
+        lastParsed = null;
     }
 
     public boolean isEofOnUnclosedQuote() {
@@ -138,10 +175,12 @@ public class CliParser implements Parser {
 
     public void setRegexVariable(String regexVariable) {
         this.regexVariable = regexVariable;
+        compileGrammar();
     }
 
     public void setRegexCommand(String regexCommand) {
         this.regexCommand = regexCommand;
+        compileGrammar();
     }
 
     public void setCommandGroup(int commandGroup) {
@@ -149,92 +188,107 @@ public class CliParser implements Parser {
     }
 
     public ParsedLine parse(final String line, final int cursor, ParseContext context) {
-        List<String> words = new LinkedList<>();
-        List<Integer> rawWordsLengths = new LinkedList<>();
-        StringBuilder current = new StringBuilder();
+        final ParseLineEvent event = new ParseLineEvent();
+        event.begin();
+        final CliParser.ArgumentList res = doParse(line, cursor, context);
+        event.end();
+        if (event.shouldCommit()) {
+            final CliParser.Words words = res.words;
+            event.commit(words.size() == 0 ? null : words.word(0), line == null ? 0 : line.length(), words.size(),
+                    context);
+        }
+        return res;
+    }
+
+    private CliParser.ArgumentList doParse(final String line, final int cursor, ParseContext context) {
+        final int length = line == null ? 0 : line.length();
+        // Completion does not check brackets, so its words can be resumed from the previous parsed line:
+        // keep the words fully before the cursor and the first edit, and tokenize from there.
+        final CliParser.ArgumentList previous = lastParsed;
+        final int resumedWords = context == ParseContext.COMPLETE && previous != null && line != null
+                ? previous.resumableWords(line, cursor) : 0;
+        final CliParser.Words words = resumedWords > 0 ? previous.words.copy(resumedWords, length)
+                : new CliParser.Words(length);
         int wordCursor = -1;
         int wordIndex = -1;
         int quoteStart = -1;
         int rawWordCursor = -1;
-        int rawWordLength = -1;
-        int rawWordStart = 0;
+        int rawWordStart = resumedWords > 0 ? previous.words.rawStart(resumedWords) : 0;
+        // start of the current word in the words text buffer
+        int wordStart = words.textLength();
         CliParser.BracketChecker bracketChecker = new CliParser.BracketChecker(cursor);
         boolean quotedWord = false;
+        // true if the current character is preceded by an escape character that is not itself escaped
+        boolean escaped = false;
+        final boolean hooks = scanningHooks;
 
-        for (int i = 0; (line != null) && (i < line.length()); i++) {
+        for (int i = rawWordStart; i < length; i++) {
             // once we reach the cursor, set the
             // position of the selected index
             if (i == cursor) {
                 wordIndex = words.size();
                 // the position in the current argument is just the
                 // length of the current argument
-                wordCursor = current.length();
+                wordCursor = words.textLength() - wordStart;
                 rawWordCursor = i - rawWordStart;
             }
 
-            if (quoteStart < 0 && isQuoteChar(line, i)) {
+            final char c = line.charAt(i);
+            final boolean escapeChar = hooks ? isEscapeChar(line, i) : !escaped && isEscapeChar(c);
+            final boolean emptyWord = words.textLength() == wordStart;
+            if (quoteStart < 0 && (hooks ? isQuoteChar(line, i) : !escaped && isRawQuoteChar(c))) {
                 // Start a quote block
                 quoteStart = i;
-                if (current.length() == 0) {
+                if (emptyWord) {
                     quotedWord = true;
                     if (context == ParseContext.SPLIT_LINE) {
-                        current.append(line.charAt(i));
+                        words.append(c);
                     }
                 } else {
                     quotedWord = false;
-                    current.append(line.charAt(i));
+                    words.append(c);
                 }
-            } else if (quoteStart >= 0 && line.charAt(quoteStart) == line.charAt(i) && !isEscaped(line, i)) {
+            } else if (quoteStart >= 0 && line.charAt(quoteStart) == c && !(hooks ? isEscaped(line, i) : escaped)) {
                 // End quote block
                 if (!quotedWord || context == ParseContext.SPLIT_LINE) {
-                    current.append(line.charAt(i));
-                } else if (rawWordLength < 0) {
-                    rawWordLength = i - rawWordStart + 1;
+                    words.append(c);
                 }
                 quoteStart = -1;
-            } else if (quoteStart < 0 && isDelimiter(line, i)) {
+            } else if (quoteStart < 0 && (hooks ? isDelimiter(line, i)
+                    : !escaped && !isQuoted(line, i) && isDelimiterChar(line, i))) {
                 // Delimiter
-                if (current.length() > 0 || quotedWord) {
-                    words.add(current.toString());
-                    current.setLength(0); // reset the arg
-                    if (rawWordLength < 0) {
-                        rawWordLength = i - rawWordStart;
-                    }
-                    rawWordsLengths.add(rawWordLength + 1);
-                    rawWordLength = -1;
+                if (!emptyWord || quotedWord) {
+                    words.add(wordStart, rawWordStart, i, true);
+                    wordStart = words.textLength();
                 }
                 quotedWord = false;
                 rawWordStart = i + 1;
             } else {
-                if (!isEscapeChar(line, i)) {
-                    current.append(line.charAt(i));
+                if (!escapeChar) {
+                    words.append(c);
                     if (quoteStart < 0) {
                         bracketChecker.check(line, i);
                     }
                 } else if (context == ParseContext.SPLIT_LINE) {
-                    current.append(line.charAt(i));
+                    words.append(c);
                 }
             }
+            escaped = escapeChar;
         }
 
-        if (line != null && (current.length() > 0 || cursor == line.length() || (quotedWord && quoteStart < 0))) {
-            words.add(current.toString());
+        if (line != null && (words.textLength() > wordStart || cursor == length || (quotedWord && quoteStart < 0))) {
+            words.add(wordStart, rawWordStart, length, false);
             quotedWord = false;
-            if (rawWordLength < 0) {
-                rawWordLength = line.length() - rawWordStart;
-            }
-            rawWordsLengths.add(rawWordLength);
         }
 
-        if (line != null && cursor == line.length()) {
+        if (line != null && cursor == length) {
             wordIndex = words.size() - 1;
-            wordCursor = words.get(words.size() - 1).length();
+            wordCursor = words.wordLength(wordIndex);
             rawWordCursor = cursor - rawWordStart;
-            rawWordLength = rawWordCursor;
         }
 
         if (context != ParseContext.COMPLETE) {
-            if (eofOnEscapedNewLine && isEscapeChar(line, line.length() - 1)) {
+            if (eofOnEscapedNewLine && (hooks ? isEscapeChar(line, length - 1) : escaped)) {
                 throw new EOFError(-1, -1, "Escaped new line", "newline");
             }
             if (eofOnUnclosedQuote && quoteStart >= 0) {
@@ -257,8 +311,12 @@ public class CliParser implements Parser {
         }
 
         String openingQuote = quotedWord ? line.substring(quoteStart, quoteStart + 1) : null;
-        int[] rawWordsLengthsArray = rawWordsLengths.stream().mapToInt(Integer::intValue).toArray();
-        return new CliParser.ArgumentList(line, words, rawWordsLengthsArray, wordIndex, wordCursor, cursor, openingQuote, rawWordCursor);
+        final CliParser.ArgumentList res = new CliParser.ArgumentList(line, words, wordIndex, wordCursor, cursor,
+                openingQuote, rawWordCursor);
+        if (line != null && context != ParseContext.SPLIT_LINE) {
+            lastParsed = res;
+        }
+        return res;
     }
 
     @Override
@@ -275,24 +333,32 @@ public class CliParser implements Parser {
 
     @Override
     public boolean validCommandName(String name) {
-        return name != null && name.matches(regexCommand);
+        if (name == null)
+            return false;
+        if (commandPattern == null)
+            return DefaultGrammar.isCommandName(name);
+        return commandPattern.matcher(name).matches();
     }
 
     @Override
     public boolean validVariableName(String name) {
-        return name != null && name.matches(regexVariable);
+        if (name == null)
+            return false;
+        if (variablePattern == null)
+            return DefaultGrammar.isVariableName(name);
+        return variablePattern.matcher(name).matches();
     }
 
     @Override
     public String getCommand(final String line) {
         String out;
-        Pattern patternCommand = Pattern.compile("^\\s*" + regexVariable + "=(" + regexCommand + ")(\\s+|$)");
-        Matcher matcher = patternCommand.matcher(line);
-        if (matcher.find()) {
+        // no assignment without '=', skip the assignment pattern
+        Matcher matcher = line.indexOf('=') < 0 ? null : commandLinePattern.matcher(line);
+        if (matcher != null && matcher.find()) {
             out = matcher.group(commandGroup);
         } else {
-            out = line.trim().split("\\s+")[0];
-            if (!out.matches(regexCommand)) {
+            out = firstWord(line.trim());
+            if (!validCommandName(out)) {
                 out = "";
             }
         }
@@ -302,14 +368,42 @@ public class CliParser implements Parser {
     @Override
     public String getVariable(final String line) {
         String out = null;
-        Pattern patternCommand = Pattern.compile("^\\s*(" + regexVariable + ")\\s*=[^=~].*");
-        Matcher matcher = patternCommand.matcher(line);
+        if (line.indexOf('=') < 0) {
+            return out;
+        }
+        Matcher matcher = variableLinePattern.matcher(line);
         if (matcher.find()) {
             out = matcher.group(1);
         }
         return out;
     }
 
+    private void compileGrammar() {
+        // default grammars use DefaultGrammar matchers
+        commandPattern = DefaultGrammar.REGEX_COMMAND.equals(regexCommand) ? null : Pattern.compile(regexCommand);
+        variablePattern = DefaultGrammar.REGEX_VARIABLE.equals(regexVariable) ? null : Pattern.compile(regexVariable);
+        commandLinePattern = Pattern.compile("^\\s*" + regexVariable + "=(" + regexCommand + ")(\\s+|$)");
+        variableLinePattern = Pattern.compile("^\\s*(" + regexVariable + ")\\s*=[^=~].*");
+    }
+
+    /**
+     * Same as <code>s.split("\\s+")[0]</code> without the regex.
+     */
+    private static String firstWord(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            switch (s.charAt(i)) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\u000B':
+                case '\f':
+                case '\r':
+                    return s.substring(0, i);
+            }
+        }
+        return s;
+    }
+
     /**
      * Returns true if the specified character is a whitespace parameter. Check to ensure that the character is not
      * escaped by any of {@link #getQuoteChars}, and is not escaped by any of the {@link #getEscapeChars}, and
@@ -366,10 +460,12 @@ public class CliParser implements Parser {
      * character and the character immediately preceding it is an escape character.
      */
     public boolean isEscaped(final CharSequence buffer, final int pos) {
-        if (pos <= 0) {
-            return false;
+        // escaped if preceded by an odd number of consecutive escape characters
+        int escapes = 0;
+        for (int i = pos - 1; i >= 0 && isEscapeChar(buffer.charAt(i)); i--) {
+            escapes++;
         }
-        return isEscapeChar(buffer, pos - 1);
+        return escapes % 2 == 1;
     }
 
     /**
@@ -487,6 +583,122 @@ public class CliParser implements Parser {
         }
     }
 
+    /**
+     * Words of a parsed line, stored as offsets in primitive arrays.
+     * <p>
+     * Words text (without quotes and escape characters) is appended to a single buffer. Each word is a [start, end[
+     * range in this buffer and a raw range in the parsed line. Strings are only created when requested.
+     */
+    private static final class Words {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final StringBuilder text;
+        private int[] starts = new int[INITIAL_CAPACITY];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        private int[] rawStarts = new int[INITIAL_CAPACITY];
+        private int[] rawLengths = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private Words(int capacity) {
+            text = new StringBuilder(capacity);
+        }
+
+        private Words(List<String> words, int[] rawWordsLengths) {
+            this(0);
+            int rawStart = 0;
+            for (int i = 0; i < words.size(); i++) {
+                final int start = text.length();
+                text.append(words.get(i));
+                final int rawLength = i < rawWordsLengths.length ? rawWordsLengths[i] : 0;
+                add(start, rawStart, rawLength);
+                rawStart += rawLength;
+            }
+        }
+
+        void append(char c) {
+            text.append(c);
+        }
+
+        int textLength() {
+            return text.length();
+        }
+
+        /**
+         * Add a word ending at the end of the text buffer.
+         *
+         * @param start     the word start in the text buffer
+         * @param rawStart  the word start in the line
+         * @param rawEnd    the word end in the line
+         * @param delimited true if the raw word is followed by a delimiter, included in the raw word length
+         */
+        void add(int start, int rawStart, int rawEnd, boolean delimited) {
+            add(start, rawStart, rawEnd - rawStart + (delimited ? 1 : 0));
+        }
+
+        private void add(int start, int rawStart, int rawLength) {
+            if (size == starts.length) {
+                final int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                rawStarts = Arrays.copyOf(rawStarts, capacity);
+                rawLengths = Arrays.copyOf(rawLengths, capacity);
+            }
+            starts[size] = start;
+            ends[size] = text.length();
+            rawStarts[size] = rawStart;
+            rawLengths[size] = rawLength;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @param count    the number of words to copy
+         * @param capacity the text capacity of the copy
+         * @return a copy of the first words
+         */
+        CliParser.Words copy(int count, int capacity) {
+            final CliParser.Words res = new CliParser.Words(capacity);
+            res.text.append(text, 0, ends[count - 1]);
+            final int arraysCapacity = Math.max(INITIAL_CAPACITY, starts.length);
+            res.starts = Arrays.copyOf(starts, arraysCapacity);
+            res.ends = Arrays.copyOf(ends, arraysCapacity);
+            res.rawStarts = Arrays.copyOf(rawStarts, arraysCapacity);
+            res.rawLengths = Arrays.copyOf(rawLengths, arraysCapacity);
+            res.size = count;
+            return res;
+        }
+
+        String word(int index) {
+            return text.substring(starts[index], ends[index]);
+        }
+
+        /**
+         * @return a view of the word text, valid as long as this text buffer is not modified (i.e. once parsed)
+         */
+        CharSequence wordView(int index) {
+            return CharBuffer.wrap(text, starts[index], ends[index]);
+        }
+
+        int wordLength(int index) {
+            return ends[index] - starts[index];
+        }
+
+        int rawStart(int index) {
+            return rawStarts[index];
+        }
+
+        int rawLength(int index) {
+            return rawLengths[index];
+        }
+
+        int[] rawLengths() {
+            return Arrays.copyOf(rawLengths, size);
+        }
+    }
+
     /**
      * The result of a delimited buffer.
      *
@@ -495,9 +707,7 @@ public class CliParser implements Parser {
     public class ArgumentList implements ParsedLine, CompletingParsedLine, MappedParsedLine {
         private final String line;
 
-        private final List<String> words;
-
-        private final int[] rawWordsLengths;
+        private final CliParser.Words words;
 
         private final int wordIndex;
 
@@ -511,6 +721,8 @@ public class CliParser implements Parser {
 
         private final int rawWordLength;
 
+        private List<String> wordsList;
+
         /**
          * @param line            the command line being edited
          * @param words           the list of words
@@ -525,15 +737,22 @@ public class CliParser implements Parser {
                             final int wordIndex, final int wordCursor,
                             final int cursor, final String openingQuote,
                             final int rawWordCursor) {
+            this(line, new CliParser.Words(Objects.requireNonNull(words), rawWordsLengths), wordIndex, wordCursor,
+                    cursor, openingQuote, rawWordCursor);
+        }
+
+        private ArgumentList(final String line, final CliParser.Words words,
+                             final int wordIndex, final int wordCursor,
+                             final int cursor, final String openingQuote,
+                             final int rawWordCursor) {
             this.line = line;
-            this.words = Collections.unmodifiableList(Objects.requireNonNull(words));
-            this.rawWordsLengths = rawWordsLengths;
+            this.words = words;
             this.wordIndex = wordIndex;
             this.wordCursor = wordCursor;
             this.cursor = cursor;
             this.openingQuote = openingQuote;
             this.rawWordCursor = rawWordCursor;
-            this.rawWordLength = wordIndex < rawWordsLengths.length ? rawWordsLengths[wordIndex] : -1;
+            this.rawWordLength = wordIndex >= 0 && wordIndex < words.size() ? words.rawLength(wordIndex) : -1;
         }
 
         public String word() {
@@ -541,7 +760,10 @@ public class CliParser implements Parser {
             if ((wordIndex < 0) || (wordIndex >= words.size())) {
                 return "";
             }
-            return words.get(wordIndex);
+            if (wordsList != null) {
+                return wordsList.get(wordIndex);
+            }
+            return words.word(wordIndex);
         }
 
         public int wordCursor() {
@@ -553,7 +775,14 @@ public class CliParser implements Parser {
         }
 
         public List<String> words() {
-            return this.words;
+            if (wordsList == null) {
+                final String[] res = new String[words.size()];
+                for (int i = 0; i < res.length; i++) {
+                    res[i] = words.word(i);
+                }
+                wordsList = List.of(res);
+            }
+            return wordsList;
         }
 
         public String line() {
@@ -630,7 +859,56 @@ public class CliParser implements Parser {
 
         @Override
         public int[] getRawWordsLengths() {
-            return Arrays.copyOf(rawWordsLengths, rawWordsLengths.length);
+            return words.rawLengths();
+        }
+
+        /**
+         * Words followed by a delimiter, unchanged in the new line and ending before its cursor, can be reused
+         * when parsing the new line: parsing resumes at the raw start of the next word.
+         *
+         * @param newLine   the line to parse
+         * @param newCursor the cursor in the line to parse
+         * @return the number of this line words that can be reused to parse the new line
+         */
+        int resumableWords(String newLine, int newCursor) {
+            final int limit = Math.min(Math.min(line.length(), newLine.length()), newCursor);
+            int prefix = 0;
+            while (prefix < limit && line.charAt(prefix) == newLine.charAt(prefix)) {
+                prefix++;
+            }
+            // the last word with a raw start in the prefix, all the words before it can be reused
+            int low = 1;
+            int high = words.size() - 1;
+            int res = 0;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (words.rawStart(mid) <= prefix) {
+                    res = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return res;
+        }
+
+        @Override
+        public Collection<MappedWord> mappedWords() {
+            return new AbstractList<>() {
+                @Override
+                public MappedWord get(int index) {
+                    Objects.checkIndex(index, size());
+                    final int rawStart = words.rawStart(index);
+                    final int rawEnd = Math.min(line.length(), rawStart + words.rawLength(index));
+                    final CharSequence word = wordsList != null ? wordsList.get(index) : words.wordView(index);
+                    return new MappedWord(word, CharBuffer.wrap(line, rawStart, rawEnd), rawStart);
+                }
+
+                @Override
+                public int size() {
+                    return words.size();
+                }
+            };
         }
     }
 
@@ -0,0 +1,99 @@
+package org.yah.cli.parser;
+
+/**
+ * Hand written matchers for the {@link CliParser} default command and variable grammars, avoiding regex evaluation
+ * in {@link CliParser#validCommandName(String)} and {@link CliParser#validVariableName(String)}.
+ */
+final class DefaultGrammar {
+
+    static final String REGEX_VARIABLE = "[a-zA-Z_]+[a-zA-Z0-9_-]*((.|\\['|\\[\"|\\[)[a-zA-Z0-9_-]*(|']|\"]|]))?";
+
+    static final String REGEX_COMMAND = "[:]?[a-zA-Z]+[a-zA-Z0-9_-]*";
+
+    private DefaultGrammar() {
+    }
+
+    /**
+     * @return true if name fully matches {@link #REGEX_COMMAND}
+     */
+    static boolean isCommandName(CharSequence name) {
+        int i = 0;
+        if (i < name.length() && name.charAt(i) == ':')
+            i++;
+        if (i == name.length() || !isLetter(name.charAt(i)))
+            return false;
+        return wordEnd(name, i + 1) == name.length();
+    }
+
+    /**
+     * @return true if name fully matches {@link #REGEX_VARIABLE}
+     */
+    static boolean isVariableName(CharSequence name) {
+        final int length = name.length();
+        if (length == 0 || !isIdentifierStart(name.charAt(0)))
+            return false;
+        // end of the longest identifier prefix
+        final int identifierEnd = wordEnd(name, 1);
+        if (identifierEnd == length)
+            return true;
+        // a shorter identifier followed by any character as separator, the remaining identifier characters
+        // being the accessor
+        if (identifierEnd > 1 && isAccessorEnd(name, identifierEnd))
+            return true;
+        // full identifier, followed by any character as separator
+        if (!isLineTerminator(name.charAt(identifierEnd)) && isAccessorEnd(name, wordEnd(name, identifierEnd + 1)))
+            return true;
+        // full identifier, followed by [' or ["
+        if (name.charAt(identifierEnd) == '[' && identifierEnd + 2 <= length) {
+            final char quote = name.charAt(identifierEnd + 1);
+            return (quote == '\'' || quote == '"') && isAccessorEnd(name, wordEnd(name, identifierEnd + 2));
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the name remaining characters from index match <code>(|']|"]|])</code>
+     */
+    private static boolean isAccessorEnd(CharSequence name, int index) {
+        final int remaining = name.length() - index;
+        if (remaining == 0)
+            return true;
+        if (remaining == 1)
+            return name.charAt(index) == ']';
+        if (remaining == 2) {
+            final char quote = name.charAt(index);
+            return (quote == '\'' || quote == '"') && name.charAt(index + 1) == ']';
+        }
+        return false;
+    }
+
+    /**
+     * @return the index of the first character from start that is not in <code>[a-zA-Z0-9_-]</code>
+     */
+    private static int wordEnd(CharSequence s, int start) {
+        int i = start;
+        while (i < s.length() && isWordChar(s.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * @return true if c is not matched by regex '.'
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return isLetter(c) || c == '_';
+    }
+
+    private static boolean isWordChar(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+}
@@ -2,6 +2,7 @@ package org.yah.cli.parser;
 
 import org.jline.reader.ParsedLine;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -19,28 +20,46 @@ public interface MappedParsedLine extends ParsedLine {
         List<MappedWord> res = new ArrayList<>();
         for (String word : words) {
             int rawWordLength = lengths[index];
-            res.add(new MappedWord(word, line.substring(rawWordStart, rawWordStart + rawWordLength),rawWordStart));
+            res.add(new MappedWord(word, CharBuffer.wrap(line, rawWordStart, rawWordStart + rawWordLength),
+                    rawWordStart));
             rawWordStart += rawWordLength;
             index++;
         }
         return res;
     }
 
+    /**
+     * A parsed word and its raw text in the line.<br/>
+     * Word and raw word can be views on the parsed line buffers, they are only copied to String when requested.
+     */
     final class MappedWord {
-        private final String word;
-        private final String rawWord;
+        private final CharSequence word;
+        private final CharSequence rawWord;
         private final int rawWordOffset;
+
         public MappedWord(String word, String rawWord, int rawWordOffset) {
+            this((CharSequence) word, rawWord, rawWordOffset);
+        }
+
+        public MappedWord(CharSequence word, CharSequence rawWord, int rawWordOffset) {
             this.word = word;
             this.rawWord = rawWord;
             this.rawWordOffset = rawWordOffset;
         }
 
         public String getWord() {
+            return word.toString();
+        }
+
+        public CharSequence getWordView() {
             return word;
         }
 
         public String getRawWord() {
+            return rawWord.toString();
+        }
+
+        public CharSequence getRawWordView() {
             return rawWord;
         }
 
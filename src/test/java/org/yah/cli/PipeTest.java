@@ -0,0 +1,205 @@
+package org.yah.cli;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipeTest {
+
+    private static final int COUNT = 200_000;
+
+    @Test(timeout = 60_000)
+    public void transfersAllElementsInOrder() throws Exception {
+        for (int capacity : new int[]{1, 2, 3, 64, 1024}) {
+            final Pipe pipe = new Pipe(capacity);
+            final FutureTask<Void> producer = start(() -> {
+                for (int i = 0; i < COUNT; i++) {
+                    pipe.put(i);
+                }
+                pipe.complete();
+                return null;
+            });
+            final Iterator<Object> iterator = pipe.iterator();
+            for (int i = 0; i < COUNT; i++) {
+                assertTrue(iterator.hasNext());
+                assertThat(iterator.next(), is(i));
+            }
+            assertFalse(iterator.hasNext());
+            producer.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void slowConsumerBlocksProducer() throws Exception {
+        final int capacity = 16;
+        final Pipe pipe = new Pipe(capacity);
+        final int[] produced = new int[1];
+        final FutureTask<Void> producer = start(() -> {
+            for (int i = 0; i < 2000; i++) {
+                pipe.put(i);
+                synchronized (produced) {
+                    produced[0] = i + 1;
+                }
+            }
+            pipe.complete();
+            return null;
+        });
+        final Iterator<Object> iterator = pipe.iterator();
+        for (int i = 0; i < 2000; i++) {
+            assertThat(iterator.next(), is(i));
+            synchronized (produced) {
+                // the elements of the consumer batch, of the pipe, and the element being put
+                assertThat(produced[0], lessThanOrEqualTo(i + 1 + 2 * capacity + 1));
+            }
+            if (i % 100 == 0)
+                Thread.sleep(1);
+        }
+        assertFalse(iterator.hasNext());
+        producer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout = 60_000)
+    public void slowProducerElementsAreNotDelayed() throws Exception {
+        final Pipe pipe = new Pipe(1024);
+        final FutureTask<Void> producer = start(() -> {
+            for (int i = 0; i < 50; i++) {
+                Thread.sleep(5);
+                pipe.put(System.nanoTime());
+            }
+            pipe.complete();
+            return null;
+        });
+        long maxDelay = 0;
+        for (Iterator<Object> iterator = pipe.iterator(); iterator.hasNext(); ) {
+            maxDelay = Math.max(maxDelay, System.nanoTime() - (long) iterator.next());
+        }
+        producer.get(10, TimeUnit.SECONDS);
+        // a single element is taken once it waited for LINGER_NANOS, not when the batch is full
+        assertThat(maxDelay, lessThan(TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    @Test(timeout = 60_000)
+    public void closeStopsProducer() throws Exception {
+        final Pipe pipe = new Pipe(8);
+        final FutureTask<Void> producer = start(() -> {
+            for (int i = 0; ; i++) {
+                pipe.put(i);
+            }
+        });
+        final Iterator<Object> iterator = pipe.iterator();
+        for (int i = 0; i < 100; i++) {
+            assertThat(iterator.next(), is(i));
+        }
+        // the producer is parked on the full pipe
+        Thread.sleep(50);
+        pipe.close();
+        assertThat(failure(producer), instanceOf(Pipe.ClosedException.class));
+    }
+
+    @Test(timeout = 60_000)
+    public void failureIsThrownAfterElements() throws Exception {
+        final Pipe pipe = new Pipe(64);
+        final IllegalStateException error = new IllegalStateException("boom");
+        final FutureTask<Void> producer = start(() -> {
+            for (int i = 0; i < 10; i++) {
+                pipe.put(i);
+            }
+            pipe.fail(error);
+            return null;
+        });
+        final Iterator<Object> iterator = pipe.iterator();
+        for (int i = 0; i < 10; i++) {
+            assertThat(iterator.next(), is(i));
+        }
+        try {
+            iterator.hasNext();
+            fail("UpstreamException expected");
+        } catch (Pipe.UpstreamException e) {
+            assertThat(e.getCause(), is(error));
+        }
+        producer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout = 60_000)
+    public void completeWakesParkedConsumer() throws Exception {
+        final Pipe pipe = new Pipe(64);
+        final FutureTask<Boolean> consumer = start(() -> pipe.iterator().hasNext());
+        Thread.sleep(50);
+        pipe.complete();
+        assertFalse(consumer.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 60_000)
+    public void interruptsParkedConsumer() throws Exception {
+        final Pipe pipe = new Pipe(64);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Thread consumer = new Thread(() -> {
+            try {
+                pipe.iterator().hasNext();
+            } catch (CancellationException e) {
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        consumer.start();
+        awaitParked(consumer);
+        consumer.interrupt();
+        consumer.join(10_000);
+        assertFalse(consumer.isAlive());
+        assertTrue(interrupted.get());
+    }
+
+    @Test(timeout = 60_000)
+    public void interruptsParkedProducer() throws Exception {
+        final Pipe pipe = new Pipe(4);
+        final FutureTask<Void> producer = new FutureTask<>(() -> {
+            for (int i = 0; ; i++) {
+                pipe.put(i);
+            }
+        });
+        final Thread thread = new Thread(producer);
+        thread.start();
+        awaitParked(thread);
+        thread.interrupt();
+        assertThat(failure(producer), instanceOf(InterruptedException.class));
+    }
+
+    private static <T> FutureTask<T> start(Callable<T> callable) {
+        final FutureTask<T> task = new FutureTask<>(callable);
+        final Thread thread = new Thread(task, "pipe-test");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    private static Throwable failure(FutureTask<?> task) throws Exception {
+        try {
+            task.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Failure expected");
+    }
+
+    private static void awaitParked(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING || LockSupport.getBlocker(thread) == null) {
+            Thread.sleep(1);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.yah.cli;
+
+import org.jline.reader.Parser.ParseContext;
+import org.junit.Test;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandAction;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelineTest {
+
+    private static final int COUNT = 100_000;
+
+    private final CommandsRegistry registry = new CommandsRegistry(true);
+
+    @Test(timeout = 60_000)
+    public void streamsThroughStages() throws Exception {
+        final AtomicLong sum = new AtomicLong();
+        command("produce", (c, l) -> Pipeline.output(IntStream.range(0, COUNT).boxed()));
+        command("double", (c, l) -> Pipeline.output(Pipeline.<Integer>inputStream().map(i -> i * 2)));
+        command("sum", (c, l) -> Pipeline.<Integer>inputStream().forEach(sum::addAndGet));
+
+        run("produce | double | sum", new ExecutionContext());
+        assertThat(sum.get(), is((long) COUNT * (COUNT - 1)));
+    }
+
+    @Test(timeout = 60_000)
+    public void preservesOrder() throws Exception {
+        final AtomicInteger next = new AtomicInteger();
+        command("produce", (c, l) -> Pipeline.output(IntStream.range(0, COUNT).boxed()));
+        command("check", (c, l) -> Pipeline.<Integer>inputIterator().forEachRemaining(
+                i -> assertThat(i, is(next.getAndIncrement()))));
+
+        run("produce | check", new ExecutionContext());
+        assertThat(next.get(), is(COUNT));
+    }
+
+    @Test(timeout = 60_000)
+    public void consumerEndingEarlyStopsProducer() throws Exception {
+        final AtomicInteger taken = new AtomicInteger();
+        command("numbers", (c, l) -> Pipeline.output(Stream.iterate(0, i -> i + 1)));
+        command("head", (c, l) -> {
+            final Iterator<Integer> iterator = Pipeline.inputIterator();
+            for (int i = 0; i < 10 && iterator.hasNext(); i++) {
+                iterator.next();
+                taken.incrementAndGet();
+            }
+        });
+
+        run("numbers | head", new ExecutionContext());
+        assertThat(taken.get(), is(10));
+    }
+
+    @Test(timeout = 60_000)
+    public void upstreamFailureIsReportedByFailingStage() throws Exception {
+        final IllegalStateException error = new IllegalStateException("boom");
+        final AtomicInteger received = new AtomicInteger();
+        final Command failing = command("failing", (c, l) -> Pipeline.output(
+                Stream.concat(Stream.of(1, 2, 3), Stream.<Integer>generate(() -> {
+                    throw error;
+                }))));
+        command("count", (c, l) -> Pipeline.inputIterator().forEachRemaining(e -> received.incrementAndGet()));
+
+        final Pipeline.StageException e = runFailing("failing | count", new ExecutionContext());
+        assertThat(e.getStage().getCommand(), sameInstance(failing));
+        assertThat(e.getCause(), sameInstance(error));
+        assertThat(received.get(), is(3));
+    }
+
+    @Test(timeout = 60_000)
+    public void consumerFailureStopsProducer() throws Exception {
+        final IllegalStateException error = new IllegalStateException("boom");
+        command("numbers", (c, l) -> Pipeline.output(Stream.iterate(0, i -> i + 1)));
+        final Command broken = command("broken", (c, l) -> {
+            Pipeline.inputIterator().next();
+            throw error;
+        });
+
+        final Pipeline.StageException e = runFailing("numbers | broken", new ExecutionContext());
+        assertThat(e.getStage().getCommand(), sameInstance(broken));
+        assertThat(e.getCause(), sameInstance(error));
+    }
+
+    @Test(timeout = 60_000)
+    public void cancelsProducerParkedOnFullPipe() throws Exception {
+        command("numbers", (c, l) -> Pipeline.output(Stream.iterate(0, i -> i + 1)));
+        command("stall", (c, l) -> Thread.sleep(Long.MAX_VALUE));
+
+        final ExecutionContext context = new ExecutionContext();
+        cancelLater(context);
+        runFailing("numbers | stall", context);
+        assertTrue(context.isCancelled());
+    }
+
+    @Test(timeout = 60_000)
+    public void cancelsConsumerParkedOnEmptyPipe() throws Exception {
+        command("silent", (c, l) -> Thread.sleep(Long.MAX_VALUE));
+        command("count", (c, l) -> Pipeline.inputIterator().forEachRemaining(e -> fail("no element expected")));
+
+        final ExecutionContext context = new ExecutionContext();
+        cancelLater(context);
+        final Pipeline.StageException e = runFailing("silent | count", context);
+        assertThat(e.getCause(), instanceOf(InterruptedException.class));
+        assertTrue(context.isCancelled());
+    }
+
+    private Command command(String name, CommandAction action) {
+        final Command command = Command.cmd(name).withAction(action).build();
+        registry.merge(command);
+        return command;
+    }
+
+    private void run(String line, ExecutionContext context) throws Pipeline.StageException {
+        final ParsedCommandLine commandLine = new ParsedCommandLine(
+                (MappedParsedLine) new CliParser().parse(line, line.length(), ParseContext.ACCEPT_LINE));
+        final Command command = registry.resolve(commandLine).orElseThrow();
+        final Pipeline pipeline = Pipeline.resolve(command, commandLine, registry, false);
+        assertTrue(context.bind());
+        try {
+            pipeline.run(context, null);
+        } finally {
+            context.unbind();
+        }
+    }
+
+    private Pipeline.StageException runFailing(String line, ExecutionContext context) {
+        try {
+            run(line, context);
+        } catch (Pipeline.StageException e) {
+            return e;
+        }
+        throw new AssertionError("StageException expected");
+    }
+
+    private static void cancelLater(ExecutionContext context) {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.schedule((Runnable) context::cancel, 100, TimeUnit.MILLISECONDS);
+        scheduler.shutdown();
+    }
+
+}
@@ -14,15 +14,33 @@ import org.yah.cli.command.parameter.ParameterParsersRegistry;
 import java.io.File;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @CliCommands(name = "test", description = "Some test commands", help = "Just some stupid test commands to play with cli API")
 public class TestSandbox implements AnnotatedCli {
 
     public static void main(String[] args) throws Exception {
-        CliApplication.start(TestSandbox::new);
+        if (args.length == 0) {
+            CliApplication.start(TestSandbox::new);
+        } else {
+            // batch mode: script path or '-' for stdin
+            final CliBatch.Result result = "-".equals(args[0])
+                    ? CliBatch.start(TestSandbox::new, System.in, CliBatch.ErrorPolicy.CONTINUE)
+                    : CliBatch.start(TestSandbox::new, Path.of(args[0]), CliBatch.ErrorPolicy.CONTINUE);
+            System.out.println(result);
+        }
     }
 
     private static final ParameterSupplier currentTimeSupplier = (command, parsedParameters) -> Instant.now();
@@ -58,6 +76,11 @@ public class TestSandbox implements AnnotatedCli {
         return "test";
     }
 
+    @Override
+    public boolean isAbbreviationAllowed() {
+        return true;
+    }
+
     @CliCommand
     private void noparam() {
         System.out.println("noparam");
@@ -83,6 +106,11 @@ public class TestSandbox implements AnnotatedCli {
         System.out.println("flushed '" + param + "'");
     }
 
+    @CliCommand
+    private void flushedView(@CliParameter(parser = ParameterParsers.FlushCommandLineView.class) CharSequence param) {
+        System.out.println("flushedView '" + param + "' (" + param.length() + " chars)");
+    }
+
     @CliCommand
     private void defaultParsers(String stringParam,
                                 int intParam,
@@ -117,6 +145,98 @@ public class TestSandbox implements AnnotatedCli {
         System.out.println("testEnum(" + testEnum + ")");
     }
 
+    @CliCommand(description = "Count to count, one per period ms, to try background jobs")
+    private void count(int count, long period) throws InterruptedException {
+        for (int i = 1; i <= count; i++) {
+            Thread.sleep(period);
+            System.out.println(i);
+        }
+    }
+
+    @CliCommand(description = "Output 0..count, to try pipelines: 'test range 1000000 | test multiples 3 | test sum'")
+    private Stream<Long> range(long count) {
+        return LongStream.range(0, count).boxed();
+    }
+
+    @CliCommand(description = "Output the multiples of divisor piped to this command")
+    private Stream<Long> multiples(Stream<Long> input, long divisor) {
+        return input.filter(l -> l % divisor == 0);
+    }
+
+    @CliCommand(description = "Print the sum of the numbers piped to this command")
+    private void sum(Iterator<Long> input) {
+        long sum = 0;
+        while (input.hasNext()) {
+            sum += input.next();
+        }
+        System.out.println(sum);
+    }
+
+    @CliCommand(description = "Output the first count elements piped to this command")
+    private Iterator<Object> head(Iterator<Object> input, int count) {
+        return new Iterator<>() {
+            private int remaining = count;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 && input.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                remaining--;
+                return input.next();
+            }
+        };
+    }
+
+    @CliCommand(description = "Publish count instants, one per period ms")
+    private Flow.Publisher<Instant> ticks(int count, long period) {
+        return subscriber -> {
+            final SubmissionPublisher<Instant> publisher = new SubmissionPublisher<>();
+            publisher.subscribe(subscriber);
+            new Thread(() -> {
+                try (publisher) {
+                    for (int i = 0; i < count && !publisher.getSubscribers().isEmpty(); i++) {
+                        Thread.sleep(period);
+                        publisher.submit(Instant.now());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "ticks").start();
+        };
+    }
+
+    @CliCommand(description = "Sum the square roots of 0..count in parallel, checking for cancellation",
+            timeout = "10s")
+    private void sqrtSum(ExecutionContext context, long count) throws Exception {
+        final int tasks = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            final List<Future<Double>> futures = new ArrayList<>();
+            for (int task = 0; task < tasks; task++) {
+                final long start = count * task / tasks, end = count * (task + 1) / tasks;
+                futures.add(context.track(executor.submit(() -> {
+                    double sum = 0;
+                    for (long i = start; i < end; i++) {
+                        if ((i & 0xFFFFF) == 0)
+                            context.checkCancelled();
+                        sum += Math.sqrt(i);
+                    }
+                    return sum;
+                })));
+            }
+            double sum = 0;
+            for (Future<Double> future : futures) {
+                sum += future.get();
+            }
+            System.out.println(sum);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @CliCommands("cliparams")
     public static class AnnotatedCommands {
         @CliCommand
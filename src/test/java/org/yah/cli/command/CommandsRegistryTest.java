@@ -0,0 +1,174 @@
+package org.yah.cli.command;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CommandsRegistryTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void firstAccessThrowsLoaderFailure() {
+        final IllegalArgumentException error = new IllegalArgumentException("boom");
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        registry.mergeLazily(r -> {
+            loads.incrementAndGet();
+            r.merge(Command.cmd("a").build());
+            throw error;
+        });
+        assertTrue(registry.isLazy());
+        assertThat(loads.get(), is(0));
+
+        try {
+            registry.get("a");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e, sameInstance(error));
+        }
+        for (int i = 0; i < 2; i++) {
+            try {
+                registry.names("");
+                fail("IllegalStateException expected");
+            } catch (IllegalStateException e) {
+                assertThat(e.getCause(), sameInstance(error));
+            }
+        }
+        assertThat(loads.get(), is(1));
+        assertTrue(registry.isLazy());
+    }
+
+    @Test
+    public void strictConflictIsLoaderFailure() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        registry.merge(Command.cmd("a").withAction(() -> {
+        }).build());
+        registry.mergeLazily(r -> {
+            loads.incrementAndGet();
+            r.merge(Command.cmd("a").withAction(() -> {
+            }).build());
+        });
+
+        try {
+            registry.getAbbreviated("a");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            registry.commands();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(notNullValue()));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void freezeIsDeferredUntilLoaded() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        registry.merge(Command.cmd("a").build());
+        registry.mergeLazily(r -> {
+            loads.incrementAndGet();
+            // merged while loading a frozen registry
+            r.merge(Command.cmd("b").withLazySubCommands(s -> s.merge(Command.cmd("c").build())).build());
+            r.mergeLazily(s -> s.merge(Command.cmd("d").build()));
+        });
+
+        registry.freeze();
+        assertTrue(registry.isFrozen());
+        assertTrue(registry.isLazy());
+        assertThat(loads.get(), is(0));
+        try {
+            registry.merge(Command.cmd("e").build());
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            registry.mergeLazily(r -> r.merge(Command.cmd("e").build()));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertThat(registry.names(""), contains("a", "b", "d"));
+        assertThat(loads.get(), is(1));
+        assertFalse(registry.isLazy());
+        assertTrue(registry.isFrozen());
+        try {
+            registry.commandsMap().clear();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            registry.merge(Command.cmd("e").build());
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // the loaded commands are frozen, and freeze their own lazy sub commands once loaded
+        final CommandsRegistry subCommands = registry.get("b").getSubCommands();
+        assertTrue(subCommands.isFrozen());
+        assertTrue(subCommands.isLazy());
+        assertThat(subCommands.get("c").getQualifiedName(), is("b.c"));
+        assertFalse(subCommands.isLazy());
+        assertTrue(subCommands.isFrozen());
+    }
+
+    @Test
+    public void lazyGroupMergesIntoExistingCommand() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        registry.merge(Command.cmd("grp").withSubCommands(Command.cmd("a").build()).build());
+        registry.merge(Command.cmd("grp")
+                .withLazySubCommands(r -> {
+                    loads.incrementAndGet();
+                    r.merge(Command.cmd("b").withSubCommands(Command.cmd("c").build()).build());
+                })
+                .build());
+        registry.freeze();
+        assertThat(loads.get(), is(0));
+
+        final Command group = registry.get("grp");
+        assertThat(group.getSubCommands().names(""), contains("a", "b"));
+        assertThat(loads.get(), is(1));
+        final Command b = group.getSubCommands().get("b");
+        assertThat(b.getPath(), contains(sameInstance(group), sameInstance(b)));
+        assertThat(b.getQualifiedName(), is("grp.b"));
+        assertThat(b.getSubCommands().get("c").getQualifiedName(), is("grp.b.c"));
+        assertThat(group.getSubCommands().get("a").getQualifiedName(), is("grp.a"));
+        assertTrue(group.getSubCommands().isFrozen());
+    }
+
+    @Test
+    public void putIfAbsentDoesNotLoad() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        registry.mergeLazily(r -> {
+            loads.incrementAndGet();
+            r.merge(Command.cmd("a").withSubCommands(Command.cmd("lazy").build()).build());
+        });
+        final Command a = Command.cmd("a").withSubCommands(Command.cmd("eager").build()).build();
+        assertThat(registry.putIfAbsent(a), sameInstance(a));
+        assertThat(loads.get(), is(0));
+
+        // the lazy command is merged with the previous one when loaded
+        assertThat(registry.get("a"), sameInstance(a));
+        assertThat(a.getSubCommands().names(""), contains("eager", "lazy"));
+        assertThat(a.getSubCommands().get("lazy").getQualifiedName(), is("a.lazy"));
+        assertThat(registry.get("missing"), nullValue());
+    }
+
+}
@@ -0,0 +1,190 @@
+package org.yah.cli.command;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compare the trie lookups with a scan of the sorted names.
+ */
+public class CommandsTrieTest {
+
+    // case variants, including a title case character
+    private static final String ALPHABET = "abAB-ǄǅǆsS";
+
+    private final CommandsTrie trie = new CommandsTrie();
+
+    @Test
+    public void splitsNodes() {
+        final Command status = put("status");
+        // splits status in st and atus
+        final Command stop = put("stop");
+        // named by the split node
+        final Command st = put("st");
+        // splits st
+        final Command s = put("s");
+
+        assertThat(trie.get("status"), sameInstance(status));
+        assertThat(trie.get("stop"), sameInstance(stop));
+        assertThat(trie.get("st"), sameInstance(st));
+        assertThat(trie.get("s"), sameInstance(s));
+        assertThat(trie.get("sta"), nullValue());
+        assertThat(trie.get("statu"), nullValue());
+        assertThat(trie.get("statuses"), nullValue());
+        assertThat(trie.get(""), nullValue());
+        assertThat(names(""), contains("s", "st", "status", "stop"));
+        assertThat(names("sta"), contains("status"));
+        assertThat(names("stx"), empty());
+
+        // a name is not replaced
+        assertThat(trie.putIfAbsent("stop", Command.cmd("other").build()), sameInstance(stop));
+        assertThat(trie.get("stop"), sameInstance(stop));
+    }
+
+    @Test
+    public void findsUniqueAbbreviations() {
+        final Command load = put("load");
+        final Command loader = put("loader");
+        final Command list = put("list");
+        trie.putIfAbsent("ls", list);
+
+        // ambiguous
+        assertThat(trie.findUnique("lo"), nullValue());
+        assertThat(trie.findUnique("loa"), nullValue());
+        assertThat(trie.findUnique("l"), nullValue());
+        assertThat(trie.findUnique(""), nullValue());
+        // a prefix of other names matching a whole name
+        assertThat(trie.findUnique("load"), sameInstance(load));
+        assertThat(trie.findUnique("loade"), sameInstance(loader));
+        assertThat(trie.findUnique("loader"), sameInstance(loader));
+        // several names of the same command
+        assertThat(trie.findUnique("li"), sameInstance(list));
+        assertThat(trie.findUnique("ls"), sameInstance(list));
+        assertThat(trie.findUnique("loaders"), nullValue());
+        assertThat(trie.findUnique("x"), nullValue());
+    }
+
+    @Test
+    public void walksIgnoringCase() {
+        put("show");
+        put("Show");
+        put("SHELL");
+        put("shutdown");
+        put("sort");
+        put("ǅx");
+
+        assertThat(namesIgnoreCase("SH"), contains("SHELL", "Show", "show", "shutdown"));
+        assertThat(namesIgnoreCase("sHo"), contains("Show", "show"));
+        assertThat(namesIgnoreCase("shows"), empty());
+        assertThat(namesIgnoreCase("ǆ"), contains("ǅx"));
+        assertThat(namesIgnoreCase("Ǆ"), contains("ǅx"));
+    }
+
+    @Test
+    public void lookupsMatchScan() {
+        final Random random = new Random(42);
+        final TreeMap<String, Command> names = new TreeMap<>();
+        for (int i = 0; i < 500; i++) {
+            final Command command = Command.cmd("c" + i).build();
+            // commands with several names
+            final int count = random.nextInt(5) == 0 ? 2 : 1;
+            for (int n = 0; n < count; n++) {
+                final String name = randomString(random, 1 + random.nextInt(6));
+                final Command previous = trie.putIfAbsent(name, command);
+                assertThat(previous, sameInstance(names.putIfAbsent(name, command)));
+            }
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            final String prefix = randomString(random, random.nextInt(4));
+            assertThat(prefix, trie.get(prefix), sameInstance(names.get(prefix)));
+            assertThat(prefix, trie.findUnique(prefix), sameInstance(findUnique(names, prefix)));
+
+            final List<String> expected = new ArrayList<>();
+            final List<String> expectedIgnoreCase = new ArrayList<>();
+            for (String name : names.keySet()) {
+                if (name.startsWith(prefix))
+                    expected.add(name);
+                if (startsWithIgnoreCase(name, prefix))
+                    expectedIgnoreCase.add(name);
+            }
+            assertThat(prefix, names(prefix), is(expected));
+            assertThat(prefix, namesIgnoreCase(prefix), is(expectedIgnoreCase));
+        }
+    }
+
+    private Command put(String name) {
+        final Command command = Command.cmd(name).build();
+        assertThat(trie.putIfAbsent(name, command), nullValue());
+        return command;
+    }
+
+    private List<String> names(String prefix) {
+        final List<String> res = new ArrayList<>();
+        trie.forEach(prefix, (name, command) -> {
+            assertThat(trie.get(name), sameInstance(command));
+            res.add(name);
+        });
+        return res;
+    }
+
+    private List<String> namesIgnoreCase(String prefix) {
+        final List<String> res = new ArrayList<>();
+        trie.forEachIgnoreCase(prefix, (name, command) -> {
+            assertThat(trie.get(name), sameInstance(command));
+            res.add(name);
+        });
+        return res;
+    }
+
+    private static Command findUnique(TreeMap<String, Command> names, String prefix) {
+        if (names.containsKey(prefix))
+            return names.get(prefix);
+        final Set<Command> commands = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<String, Command> entry : names.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix))
+                break;
+            commands.add(entry.getValue());
+        }
+        return commands.size() == 1 ? commands.iterator().next() : null;
+    }
+
+    /**
+     * @return true if each character of prefix is a case variant of the name character
+     */
+    private static boolean startsWithIgnoreCase(String name, String prefix) {
+        if (name.length() < prefix.length())
+            return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            final char c = prefix.charAt(i);
+            final char n = name.charAt(i);
+            if (n != c && n != Character.toLowerCase(c) && n != Character.toUpperCase(c)
+                    && n != Character.toTitleCase(c))
+                return false;
+        }
+        return true;
+    }
+
+    private static String randomString(Random random, int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+}
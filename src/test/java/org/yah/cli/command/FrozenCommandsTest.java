@@ -0,0 +1,109 @@
+package org.yah.cli.command;
+
+import org.jline.reader.Parser.ParseContext;
+import org.junit.Test;
+import org.yah.cli.ParsedCommandLine;
+import org.yah.cli.parser.CliParser;
+import org.yah.cli.parser.MappedParsedLine;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compare the frozen table lookups with the lookups of the map it is built from.
+ */
+public class FrozenCommandsTest {
+
+    private static final String ALPHABET = "abAB-é😀";
+
+    @Test
+    public void getMatchesMap() {
+        final Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 3, 5, 12, 13, 100, 1000}) {
+            final Map<String, Command> map = new LinkedHashMap<>();
+            final List<String> names = new ArrayList<>();
+            while (map.size() < size) {
+                final String name = randomString(random, random.nextInt(8));
+                map.computeIfAbsent(name, n -> Command.cmd("c" + names.size()).build());
+                names.add(name);
+            }
+            final FrozenCommands frozen = new FrozenCommands(map);
+
+            for (int i = 0; i < 2 * size + 20; i++) {
+                // mapped names, and random names
+                final String name = !names.isEmpty() && random.nextBoolean()
+                        ? names.get(random.nextInt(names.size()))
+                        : randomString(random, random.nextInt(8));
+                assertGet(frozen, map, name);
+            }
+        }
+    }
+
+    @Test
+    public void comparesNamesWithSameHash() {
+        // same String hash codes
+        final Map<String, Command> map = new LinkedHashMap<>();
+        map.put("Aa", Command.cmd("Aa").build());
+        map.put("AaAa", Command.cmd("AaAa").build());
+        map.put("BBBB", Command.cmd("BBBB").build());
+        final FrozenCommands frozen = new FrozenCommands(map);
+        for (String name : new String[]{"Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", ""}) {
+            assertGet(frozen, map, name);
+        }
+    }
+
+    @Test
+    public void getsCommandLineWordViews() {
+        final Map<String, Command> map = new LinkedHashMap<>();
+        for (String name : new String[]{"load", "load file", "a'b", "x"}) {
+            map.put(name, Command.cmd(name).build());
+        }
+        final FrozenCommands frozen = new FrozenCommands(map);
+        final CliParser parser = new CliParser();
+        int found = 0;
+        for (String line : new String[]{"load x", "  \"load\" x", "'load file' x", "load\\ file x", "a\\'b",
+                "\"a'b\" x", "loa x", "load\\x"}) {
+            final ParsedCommandLine commandLine = new ParsedCommandLine(
+                    (MappedParsedLine) parser.parse(line, line.length(), ParseContext.ACCEPT_LINE));
+            while (commandLine.hasNext()) {
+                final CharSequence view = commandLine.nextView();
+                final Command command = frozen.get(view);
+                assertThat(line, command, sameInstance(map.get(view.toString())));
+                if (command != null)
+                    found++;
+            }
+        }
+        // all words but loa and load\x, unquoted and unescaped by the views
+        assertThat(found, is(12));
+    }
+
+    private static void assertGet(FrozenCommands frozen, Map<String, Command> map, String name) {
+        final Command expected = map.get(name);
+        assertThat(name, frozen.get(name), sameInstance(expected));
+        assertThat(name, frozen.get(new StringBuilder(name)), sameInstance(expected));
+        // a view of a larger text
+        final String text = "<" + name + ">";
+        final CharBuffer view = CharBuffer.wrap(text, 1, text.length() - 1);
+        assertThat(view.toString(), is(name));
+        assertThat(name, frozen.get(view), sameInstance(expected));
+    }
+
+    private static String randomString(Random random, int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // code points outside the BMP are two chars
+            sb.appendCodePoint(ALPHABET.codePointAt(ALPHABET.offsetByCodePoints(0,
+                    random.nextInt(ALPHABET.codePointCount(0, ALPHABET.length())))));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,229 @@
+package org.yah.cli.command.help;
+
+import org.junit.Test;
+import org.yah.cli.command.Command;
+import org.yah.cli.command.CommandBuilder;
+import org.yah.cli.command.CommandsRegistry;
+import org.yah.cli.command.parameter.CommandParameter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compare the index searches with a scan of the texts of all the commands.
+ */
+public class CommandsIndexTest {
+
+    // words sharing prefixes, and frequent words to select the rarest query word
+    private static final String[] VOCABULARY = {
+            "list", "lister", "listing", "load", "loader", "log", "logs", "set", "setup", "settings", "show",
+            "shows", "stat", "status", "start", "stop", "a1", "a12", "the", "of", "file", "files", "x"
+    };
+
+    private static final CommandTexts TEXTS = new CommandTexts(new ListResourceBundle() {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[0][];
+        }
+    });
+
+    private int nextId;
+
+    @Test
+    public void searchMatchesScan() {
+        final Random random = new Random(42);
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        final List<Command> commands = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final Command command = randomCommand(random, 0);
+            registry.merge(command);
+            collect(command, commands);
+        }
+        final CommandsIndex index = CommandsIndex.build(registry, TEXTS);
+        assertThat(index.size(), is(commands.size()));
+
+        for (int i = 0; i < 1000; i++) {
+            final StringBuilder query = new StringBuilder();
+            final int words = 1 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+                // prefixes of the words, and words of no command
+                if (random.nextInt(3) == 0)
+                    word = word.substring(0, 1 + random.nextInt(word.length()));
+                else if (random.nextInt(20) == 0)
+                    word = "missing";
+                query.append(randomCase(random, word)).append(random.nextBoolean() ? " " : ", ");
+            }
+            final String line = query.toString();
+            assertThat(line, qualifiedNames(index.search(line)), is(qualifiedNames(scan(commands, line))));
+        }
+    }
+
+    @Test
+    public void searchesFromRarestWord() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        for (int i = 0; i < 20; i++) {
+            registry.merge(Command.cmd("common" + i).withDescription("the common description").build());
+        }
+        registry.merge(Command.cmd("rare").withDescription("the rare description").build());
+        registry.merge(Command.cmd("rarely").withDescription("another description").build());
+        final CommandsIndex index = CommandsIndex.build(registry, TEXTS);
+
+        // the rarest word is first, last, a prefix or complete
+        assertThat(names(index.search("rare the")), contains("rare"));
+        assertThat(names(index.search("the rare")), contains("rare"));
+        assertThat(names(index.search("description rar")), contains("rare", "rarely"));
+        assertThat(names(index.search("common rare")), empty());
+        assertThat(names(index.search("the desc missing")), empty());
+        assertThat(index.search(" ,- "), empty());
+    }
+
+    @Test
+    public void scoresCompleteWordsTwice() {
+        final CommandsRegistry registry = new CommandsRegistry(true);
+        // 8 * 2
+        registry.merge(Command.cmd("load").build());
+        // 8
+        registry.merge(Command.cmd("loader").build());
+        // 4 * 2
+        registry.merge(Command.cmd("zeta").withDescription("Load it").build());
+        // 4 * 2, and 2 * 2 for more, with a sub command of the same scores
+        registry.merge(Command.cmd("beta").withDescription("load").withHelp("more")
+                .withSubCommands(Command.cmd("alpha").withDescription("load").withHelp("more").build())
+                .build());
+        // 6 * 2, and 1 * 2
+        registry.merge(Command.cmd("other").withOtherNames("load-all")
+                .withParameter(p -> p.withName("file").withDescription("file to load"))
+                .build());
+        final CommandsIndex index = CommandsIndex.build(registry, TEXTS);
+
+        assertThat(qualifiedNames(index.search("load")),
+                contains("load", "other", "beta", "loader", "zeta", "beta.alpha"));
+        assertThat(qualifiedNames(index.search("lo")),
+                contains("load", "loader", "other", "beta", "zeta", "beta.alpha"));
+        assertThat(qualifiedNames(index.search("load more")), contains("beta", "beta.alpha"));
+        assertThat(qualifiedNames(index.search("LOAD fil")), contains("other"));
+    }
+
+    private Command randomCommand(Random random, int depth) {
+        final CommandBuilder builder = Command.cmd(randomText(random, 1, 2, "-") + "-n" + nextId++)
+                .withDescription(randomText(random, 0, 5, " "))
+                .withHelp(randomText(random, 0, 8, ". "));
+        if (random.nextInt(4) == 0)
+            builder.withOtherNames(randomText(random, 1, 2, "-") + "-n" + nextId++);
+        final int parameters = random.nextInt(3);
+        for (int i = 0; i < parameters; i++) {
+            final String name = randomText(random, 1, 1, "");
+            final String description = randomText(random, 0, 3, " ");
+            builder.withParameter(p -> p.withName(name).withDescription(description));
+        }
+        if (depth < 2 && random.nextInt(4) == 0) {
+            final int subCommands = 1 + random.nextInt(3);
+            for (int i = 0; i < subCommands; i++) {
+                builder.withSubCommands(randomCommand(random, depth + 1));
+            }
+        }
+        return builder.build();
+    }
+
+    private static String randomText(Random random, int min, int max, String separator) {
+        final int length = min + random.nextInt(max - min + 1);
+        final List<String> words = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            words.add(randomCase(random, VOCABULARY[random.nextInt(VOCABULARY.length)]));
+        }
+        return String.join(separator, words);
+    }
+
+    private static String randomCase(Random random, String word) {
+        return random.nextInt(4) == 0 ? word.toUpperCase(Locale.ROOT) : word;
+    }
+
+    private static void collect(Command command, List<Command> commands) {
+        commands.add(command);
+        // mapped by each of their names
+        command.getSubCommands().commands().stream().distinct().forEach(c -> collect(c, commands));
+    }
+
+    /**
+     * @return the commands containing each query word, sorted by score, depth and qualified name
+     */
+    private static List<Command> scan(List<Command> commands, String query) {
+        final List<String> queryWords = words(query);
+        if (queryWords.isEmpty())
+            return List.of();
+        final Map<Command, Integer> scores = new LinkedHashMap<>();
+        for (Command command : commands) {
+            final Map<String, Integer> fields = fields(command);
+            int score = 0;
+            for (String queryWord : queryWords) {
+                int wordScore = 0;
+                for (Map.Entry<String, Integer> field : fields.entrySet()) {
+                    for (String word : words(field.getKey())) {
+                        if (word.startsWith(queryWord))
+                            wordScore = Math.max(wordScore, field.getValue() * (word.equals(queryWord) ? 2 : 1));
+                    }
+                }
+                if (wordScore == 0) {
+                    score = -1;
+                    break;
+                }
+                score += wordScore;
+            }
+            if (score > 0)
+                scores.put(command, score);
+        }
+        return scores.keySet().stream()
+                .sorted(Comparator.<Command>comparingInt(c -> -scores.get(c))
+                        .thenComparingInt(c -> c.getPath().size())
+                        .thenComparing(Command::getQualifiedName))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the texts of a command, and their weight
+     */
+    private static Map<String, Integer> fields(Command command) {
+        final Map<String, Integer> res = new LinkedHashMap<>();
+        res.put(command.getName(), 8);
+        command.getNames().forEach(name -> res.merge(name, 6, Math::max));
+        res.merge(command.getDescription(), 4, Math::max);
+        res.merge(command.getHelp(), 2, Math::max);
+        for (CommandParameter parameter : command.getParameters()) {
+            res.merge(parameter.getName(), 2, Math::max);
+            if (parameter.getDescription() != null)
+                res.merge(parameter.getDescription(), 1, Math::max);
+        }
+        return res;
+    }
+
+    private static List<String> words(String text) {
+        final List<String> res = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (!word.isEmpty())
+                res.add(word);
+        }
+        return res;
+    }
+
+    private static List<String> names(List<Command> commands) {
+        return commands.stream().map(Command::getName).collect(Collectors.toList());
+    }
+
+    private static List<String> qualifiedNames(List<Command> commands) {
+        return commands.stream().map(Command::getQualifiedName).collect(Collectors.toList());
+    }
+
+}
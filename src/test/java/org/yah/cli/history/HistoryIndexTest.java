@@ -0,0 +1,221 @@
+package org.yah.cli.history;
+
+import org.junit.Test;
+import org.yah.cli.history.HistoryIndex.CaseMatching;
+import org.yah.cli.history.HistoryIndex.Query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compare the candidates of the index queries with a scan of the entries, matching the terms as the reader history
+ * searches: an entry containing a term must be a candidate.
+ */
+public class HistoryIndexTest {
+
+    // case variants, characters with several case foldings, and a character without case
+    private static final String ALPHABET = "abcABC  sSſkKKiIİıßẞσΣςéÉ-1";
+
+    private static final int START = 37;
+
+    @Test
+    public void candidatesContainMatchingEntries() {
+        final Random random = new Random(42);
+        final Map<Integer, String> entries = new LinkedHashMap<>();
+        final HistoryIndex index = new HistoryIndex(START);
+        int next = START;
+        for (int i = 0; i < 1000; i++) {
+            // skipped entries
+            if (random.nextInt(20) == 0)
+                next += random.nextInt(40);
+            final String line = randomString(random, random.nextInt(12));
+            index.add(next, line);
+            entries.put(next++, line);
+        }
+        final List<String> lines = new ArrayList<>(entries.values());
+
+        for (int i = 0; i < 500; i++) {
+            final String term;
+            if (random.nextBoolean()) {
+                final String line = lines.get(random.nextInt(lines.size()));
+                final int from = random.nextInt(line.length() + 1);
+                term = line.substring(from, Math.min(line.length(), from + random.nextInt(6)));
+            } else {
+                term = randomString(random, random.nextInt(6));
+            }
+            for (CaseMatching caseMatching : CaseMatching.values()) {
+                assertCandidates(index, entries, term, caseMatching, false);
+                assertCandidates(index, entries, term, caseMatching, true);
+            }
+        }
+    }
+
+    @Test
+    public void matchesShortTerms() {
+        final Map<Integer, String> entries = new LinkedHashMap<>();
+        final HistoryIndex index = new HistoryIndex(START);
+        for (int i = START; i < START + 100; i++) {
+            final String line = i % 10 == 0 ? "X" + i : "y" + i;
+            index.add(i, line);
+            entries.put(i, line);
+        }
+        for (String term : new String[]{"", "X", "x", "X5", "x5", "y", "Y1", "0", "z"}) {
+            for (CaseMatching caseMatching : CaseMatching.values()) {
+                assertCandidates(index, entries, term, caseMatching, false);
+                assertCandidates(index, entries, term, caseMatching, true);
+            }
+        }
+        // a single character term is searched by its unigram
+        final Query query = index.query("z", CaseMatching.EXACT, false);
+        assertThat(query.next(START), is(START + 100));
+        assertThat(query.previous(START + 99), is(START - 1));
+    }
+
+    @Test
+    public void intersectsGramsOfEachBlock() {
+        final HistoryIndex index = new HistoryIndex(0);
+        final int block = HistoryIndex.BLOCK_SIZE;
+        for (int i = 0; i < 4 * block; i++) {
+            final String line;
+            if (i == block - 1)
+                line = "abc";
+            else if (i == block)
+                line = "bcd";
+            else if (i == 3 * block - 1 || i == 3 * block)
+                line = "xabcdx";
+            else
+                line = "-";
+            index.add(i, line);
+        }
+        // the trigrams of abcd are in the first two blocks, but not in the same block: the entries of the third
+        // and fourth blocks are the candidates
+        final Query query = index.query("abcd", CaseMatching.EXACT, false);
+        assertThat(query.next(0), is(2 * block));
+        assertThat(query.next(2 * block + 5), is(2 * block + 5));
+        assertThat(query.next(3 * block), is(3 * block));
+        assertThat(query.next(4 * block - 1), is(4 * block - 1));
+        assertThat(query.previous(4 * block - 1), is(4 * block - 1));
+        assertThat(query.previous(2 * block), is(2 * block));
+        assertThat(query.previous(2 * block - 1), is(-1));
+
+        final Query prefix = index.query("bcd", CaseMatching.EXACT, true);
+        assertThat(prefix.next(0), is(block));
+        assertThat(prefix.next(2 * block), is(4 * block));
+        assertThat(prefix.previous(4 * block - 1), is(2 * block - 1));
+    }
+
+    @Test
+    public void entriesIndexedAfterQueryAreCandidates() {
+        final HistoryIndex index = new HistoryIndex(START);
+        for (int i = START; i < START + 50; i++) {
+            index.add(i, "line " + i);
+        }
+        final Query query = index.query("missing", CaseMatching.EXACT, false);
+        index.add(START + 50, "missing");
+        assertThat(query.next(START), is(START + 50));
+        assertThat(query.next(START + 50), is(START + 50));
+        assertThat(query.previous(START + 50), is(START + 50));
+        assertThat(query.previous(START + 49), is(START - 1));
+        // before the start of the index
+        assertThat(query.next(START - 5), is(START - 5));
+        assertThat(query.previous(START - 5), is(START - 5));
+    }
+
+    @Test
+    public void surrogatesAreNotSearchedIgnoringCase() {
+        final HistoryIndex index = new HistoryIndex(0);
+        index.add(0, "𐐀");
+        assertThat(index.query("𐐨", CaseMatching.IGNORE, false), nullValue());
+    }
+
+    @Test
+    public void rejectsIndexedEntries() {
+        final HistoryIndex index = new HistoryIndex(START);
+        index.add(START + 3, "a");
+        try {
+            index.add(START + 3, "b");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void assertCandidates(HistoryIndex index, Map<Integer, String> entries, String term,
+                                         CaseMatching caseMatching, boolean prefix) {
+        final Query query = index.query(term, caseMatching, prefix);
+        if (query == null)
+            return;
+        final int end = index.end();
+        final Set<Integer> forward = new HashSet<>();
+        for (int i = query.next(START); i < end; i = query.next(i + 1)) {
+            forward.add(i);
+        }
+        final Set<Integer> backward = new HashSet<>();
+        for (int i = query.previous(end - 1); i >= START; i = query.previous(i - 1)) {
+            backward.add(i);
+        }
+        final Pattern pattern = pattern(term, caseMatching);
+        for (Map.Entry<Integer, String> entry : entries.entrySet()) {
+            final boolean matches = prefix
+                    ? pattern.matcher(entry.getValue()).lookingAt()
+                    : pattern.matcher(entry.getValue()).find();
+            if (matches) {
+                final String message = caseMatching + (prefix ? " prefix " : " ") + "'" + term + "' in " + entry;
+                assertTrue("next missed " + message, forward.contains(entry.getKey()));
+                assertTrue("previous missed " + message, backward.contains(entry.getKey()));
+            }
+        }
+        for (int i = START; i < end; i += 7) {
+            assertThat(query.next(i), greaterThanOrEqualTo(i));
+            assertThat(query.previous(i), lessThanOrEqualTo(i));
+        }
+    }
+
+    /**
+     * @return the pattern of the reader history searches
+     */
+    private static Pattern pattern(String term, CaseMatching caseMatching) {
+        switch (caseMatching) {
+            case EXACT:
+                return Pattern.compile(Pattern.quote(term));
+            case SMART:
+                // LineReaderImpl search pattern: a lower case character also matches its upper case
+                final StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < term.length(); i++) {
+                    final char c = term.charAt(i);
+                    if (Character.isLowerCase(c))
+                        sb.append('[').append(c).append(Character.toUpperCase(c)).append(']');
+                    else
+                        sb.append(Pattern.quote(String.valueOf(c)));
+                }
+                return Pattern.compile(sb.toString());
+            case IGNORE:
+                return Pattern.compile(Pattern.quote(term), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            default:
+                throw new IllegalArgumentException(caseMatching.toString());
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+}
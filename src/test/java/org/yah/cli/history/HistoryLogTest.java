@@ -0,0 +1,403 @@
+package org.yah.cli.history;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.impl.history.DefaultHistory;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HistoryLogTest {
+
+    private static final List<String> LINES = Arrays.asList("first", "back\\slash", "multi\nline", "été €",
+            "carriage\rreturn", "12:not a time", "");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<HistoryLog> logs = new ArrayList<>();
+
+    private Path file;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("history");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (HistoryLog log : logs) {
+            log.close();
+        }
+    }
+
+    @Test
+    public void readsTimestampedDefaultHistoryFile() throws IOException {
+        writeDefaultHistory(true);
+        final HistoryLog log = open(false);
+        assertThat(log.count(), is(LINES.size()));
+        for (int i = 0; i < LINES.size(); i++) {
+            final HistoryEntry entry = log.read(i, true);
+            assertThat(entry.index(), is(i));
+            assertThat(entry.line(), is(LINES.get(i)));
+            assertThat(entry.time(), is(time(i)));
+        }
+    }
+
+    @Test
+    public void readsDefaultHistoryFile() throws IOException {
+        writeDefaultHistory(false);
+        final HistoryLog log = open(false);
+        assertThat(log.count(), is(LINES.size()));
+        for (int i = 0; i < LINES.size(); i++) {
+            final HistoryEntry entry = log.read(i, false);
+            assertThat(entry.line(), is(LINES.get(i)));
+            assertThat(entry.time(), is(Instant.EPOCH));
+        }
+    }
+
+    @Test
+    public void appendsInDefaultHistoryFormat() throws IOException {
+        final HistoryLog log = open(false);
+        for (int i = 0; i < LINES.size(); i++) {
+            assertThat(log.append(time(i), LINES.get(i), true), is(i));
+        }
+        log.force();
+
+        final List<HistoryEntry> entries = readDefaultHistory(true);
+        assertThat(entries.stream().map(HistoryEntry::line).collect(Collectors.toList()), is(LINES));
+        assertThat(entries.get(3).time(), is(time(3)));
+    }
+
+    @Test
+    public void reopensWithValidIndex() throws IOException {
+        HistoryLog log = open(false);
+        append(log, "a", "b", "c");
+        log.close();
+        assertThat(Files.size(indexFile()), is(3L * Long.BYTES));
+
+        // appended without updating the index, as DefaultHistory does
+        Files.write(file, "d\ne\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        log = open(false);
+        assertThat(lines(log), contains("a", "b", "c", "d", "e"));
+        assertThat(Files.size(indexFile()), is(5L * Long.BYTES));
+    }
+
+    @Test
+    public void rebuildsStaleIndex() throws IOException {
+        HistoryLog log = open(false);
+        append(log, "a", "bb", "ccc", "dddd");
+        log.close();
+
+        // same size, other line ends
+        Files.write(file, "abcde\nf\nghi\nj\n".getBytes(StandardCharsets.UTF_8));
+        log = open(false);
+        assertThat(lines(log), contains("abcde", "f", "ghi", "j"));
+        log.close();
+
+        // shorter than the indexed entries
+        Files.write(file, "xy\n".getBytes(StandardCharsets.UTF_8));
+        log = open(false);
+        assertThat(lines(log), contains("xy"));
+        assertThat(Files.size(indexFile()), is((long) Long.BYTES));
+    }
+
+    @Test
+    public void ignoresIncompleteIndexEntry() throws IOException {
+        HistoryLog log = open(false);
+        append(log, "a", "b");
+        log.close();
+        Files.write(indexFile(), new byte[3], StandardOpenOption.APPEND);
+
+        log = open(false);
+        assertThat(lines(log), contains("a", "b"));
+        append(log, "c");
+        log.close();
+        assertThat(Files.size(indexFile()), is(3L * Long.BYTES));
+        assertThat(lines(open(false)), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void truncatesTornLastLine() throws IOException {
+        Files.write(file, "1:a\n2:b\n3:interrup".getBytes(StandardCharsets.UTF_8));
+        final HistoryLog log = open(false);
+        assertThat(lines(log), contains("a", "b"));
+        assertThat(Files.size(file), is(8L));
+
+        append(log, "c");
+        assertThat(lines(log), contains("a", "b", "c"));
+        assertThat(Files.readAllLines(file), contains("1:a", "2:b", time(0).toEpochMilli() + ":c"));
+    }
+
+    @Test
+    public void compactKeepsIndices() throws IOException {
+        final HistoryLog log = open(false);
+        for (int i = 0; i < 10; i++) {
+            append(log, "line" + i);
+        }
+        log.compact(4);
+        assertThat(log.first(), is(6));
+        assertThat(log.end(), is(10));
+        assertThat(log.count(), is(4));
+        assertThat(log.read(6, true).line(), is("line6"));
+        assertThat(log.read(6, true).index(), is(6));
+        assertThat(log.append(time(10), "line10", true), is(10));
+        assertThat(log.read(10, true).line(), is("line10"));
+        assertThat(log.generation(), is(0));
+
+        // kept the same way by a snapshot taken after the compaction
+        final HistoryLog.Snapshot snapshot = log.snapshot();
+        assertThat(snapshot.first(), is(6));
+        assertThat(snapshot.read(9, true).line(), is("line9"));
+
+        // a smaller log is not compacted
+        log.compact(100);
+        assertThat(log.first(), is(6));
+
+        log.close();
+        assertThat(lines(open(false)), contains("line6", "line7", "line8", "line9", "line10"));
+        assertThat(Files.size(indexFile()), is(5L * Long.BYTES));
+    }
+
+    @Test
+    public void snapshotIsNotChangedByAppends() throws IOException {
+        final HistoryLog log = open(false);
+        append(log, "a", "b");
+        final HistoryLog.Snapshot snapshot = log.snapshot();
+        append(log, "c");
+        log.compact(1);
+        assertThat(snapshot.end(), is(2));
+        assertThat(snapshot.read(1, true).line(), is("b"));
+    }
+
+    @Test
+    public void clearRestartsIndices() throws IOException {
+        final HistoryLog log = open(false);
+        append(log, "a", "b", "c");
+        log.compact(2);
+        log.clear();
+        assertThat(log.first(), is(0));
+        assertThat(log.end(), is(0));
+        assertThat(Files.size(file), is(0L));
+        assertThat(Files.size(indexFile()), is(0L));
+
+        assertThat(log.append(time(0), "d", true), is(0));
+        log.close();
+        assertThat(lines(open(false)), contains("d"));
+    }
+
+    @Test
+    public void snapshotIsNotChangedByClear() throws IOException {
+        final HistoryLog log = open(false);
+        append(log, "a", "bb");
+        final HistoryLog.Snapshot snapshot = log.snapshot();
+        log.clear();
+        append(log, "c", "d");
+        assertThat(snapshot.read(0, true).line(), is("a"));
+        assertThat(snapshot.read(1, true).line(), is("bb"));
+    }
+
+    @Test
+    public void sessionsAppendWithoutOverwriting() throws IOException {
+        final HistoryLog s1 = open(false);
+        final HistoryLog s2 = open(false);
+        assertThat(s1.append(time(0), "session-one", true), is(0));
+        assertThat(s2.append(time(1), "two-longer-entry", true), is(1));
+        assertThat(s1.append(time(2), "x", true), is(2));
+
+        assertThat(readDefaultHistory(true).stream().map(HistoryEntry::line).collect(Collectors.toList()),
+                contains("session-one", "two-longer-entry", "x"));
+        assertThat(lines(s1), contains("session-one", "two-longer-entry", "x"));
+        assertThat(lines(s2), contains("session-one", "two-longer-entry"));
+
+        // compacted by s1: s2 appends to the new file
+        s1.compact(1);
+        assertThat(s2.append(time(3), "y", true), is(1));
+        assertThat(s2.generation(), is(1));
+        assertThat(lines(s2), contains("x", "y"));
+        assertThat(s1.append(time(4), "z", true), is(4));
+        assertThat(lines(s1), contains("x", "y", "z"));
+
+        s1.close();
+        s2.close();
+        assertThat(lines(open(false)), contains("x", "y", "z"));
+    }
+
+    @Test
+    public void tailAddsEntriesOfOtherWriter() throws IOException {
+        final HistoryLog log = open(true);
+        append(log, "a");
+        writeRaw("2:b\n3:c\n4:incompl");
+        log.tail();
+        assertThat(lines(log), contains("a", "b", "c"));
+
+        writeRaw("ete\n");
+        log.tail();
+        assertThat(lines(log), contains("a", "b", "c", "incomplete"));
+        assertThat(log.generation(), is(0));
+        // read without locking: the index is completed by the next append
+        assertThat(Files.size(indexFile()), is((long) Long.BYTES));
+        append(log, "e");
+        assertThat(Files.size(indexFile()), is(5L * Long.BYTES));
+    }
+
+    @Test
+    public void appendAddsEntriesOfOtherWriterFirst() throws IOException {
+        final HistoryLog log = open(true);
+        append(log, "a");
+        writeRaw("2:b\n3:torn");
+        // the other writer holds the lock while writing: an incomplete line is left by an interrupted write
+        assertThat(log.append(time(0), "c", true), is(2));
+        assertThat(lines(log), contains("a", "b", "c"));
+        assertThat(Files.readAllLines(file), contains(time(0).toEpochMilli() + ":a", "2:b",
+                time(0).toEpochMilli() + ":c"));
+        log.close();
+        assertThat(lines(open(true)), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void tailReloadsFileCompactedByOtherWriter() throws IOException {
+        final HistoryLog log = open(true);
+        append(log, "a", "b");
+        assertThat(log.read(1, true).line(), is("b"));
+
+        // larger than the compacted file: only detected by its key
+        replaceRaw("2:b\n3:c\n4:d\n5:e\n6:f\n");
+        log.tail();
+        assertThat(log.generation(), is(1));
+        assertThat(log.first(), is(0));
+        assertThat(lines(log), contains("b", "c", "d", "e", "f"));
+
+        writeRaw("7:g\n");
+        log.tail();
+        assertThat(log.generation(), is(1));
+        assertThat(lines(log), contains("b", "c", "d", "e", "f", "g"));
+    }
+
+    @Test
+    public void appendReloadsFileCompactedByOtherWriter() throws IOException {
+        final HistoryLog log = open(true);
+        append(log, "a", "b", "c");
+        replaceRaw("3:c\n4:d\n");
+        assertThat(log.append(time(0), "e", true), is(2));
+        assertThat(log.generation(), is(1));
+        assertThat(lines(log), contains("c", "d", "e"));
+        assertThat(Files.size(indexFile()), is(3L * Long.BYTES));
+    }
+
+    @Test
+    public void tailReloadsFileTruncatedByOtherWriter() throws IOException {
+        final HistoryLog log = open(true);
+        append(log, "a", "b", "c");
+        Files.write(file, "9:z\n".getBytes(StandardCharsets.UTF_8));
+        log.tail();
+        assertThat(log.generation(), is(1));
+        assertThat(lines(log), contains("z"));
+    }
+
+    @Test
+    public void snapshotSurvivesCompactionByOtherWriter() throws IOException {
+        final HistoryLog log = open(true);
+        append(log, "a", "b");
+        final HistoryLog.Snapshot snapshot = log.snapshot();
+        replaceRaw("3:c\n");
+        log.tail();
+        assertThat(snapshot.read(1, true).line(), is("b"));
+        assertThat(lines(log), contains("c"));
+    }
+
+    private HistoryLog open(boolean shared) throws IOException {
+        final HistoryLog log = HistoryLog.open(file, shared);
+        logs.add(log);
+        return log;
+    }
+
+    private Path indexFile() {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    /**
+     * Append to the file as another session, without updating the index.
+     */
+    private void writeRaw(String content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Compact the file as another session, renaming a new file and its index over them.
+     */
+    private void replaceRaw(String content) throws IOException {
+        final Path tmp = file.resolveSibling("history.other");
+        Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.write(tmp, new byte[0]);
+        Files.move(tmp, indexFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Instant time(int i) {
+        return Instant.ofEpochMilli(1_600_000_000_000L + i * 1000L);
+    }
+
+    private static void append(HistoryLog log, String... lines) throws IOException {
+        for (String line : lines) {
+            log.append(time(0), line, true);
+        }
+    }
+
+    private static List<String> lines(HistoryLog log) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (int i = log.first(); i < log.end(); i++) {
+            lines.add(log.read(i, true).line());
+        }
+        return lines;
+    }
+
+    private List<HistoryEntry> readDefaultHistory(boolean timestamped) throws IOException {
+        return Files.readAllLines(file).stream()
+                .map(line -> HistoryEntry.decode(0, line, timestamped))
+                .collect(Collectors.toList());
+    }
+
+    private void writeDefaultHistory(boolean timestamped) throws IOException {
+        try (Terminal terminal = new DumbTerminal("test", Terminal.TYPE_DUMB, InputStream.nullInputStream(),
+                OutputStream.nullOutputStream(), StandardCharsets.UTF_8)) {
+            final LineReader reader = LineReaderBuilder.builder()
+                    .terminal(terminal)
+                    .variable(LineReader.HISTORY_FILE, file)
+                    .option(LineReader.Option.HISTORY_TIMESTAMPED, timestamped)
+                    .build();
+            final DefaultHistory history = new DefaultHistory(reader);
+            for (int i = 0; i < LINES.size(); i++) {
+                history.add(time(i), LINES.get(i));
+            }
+            history.save();
+        }
+    }
+
+}
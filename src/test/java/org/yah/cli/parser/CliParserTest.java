@@ -0,0 +1,142 @@
+package org.yah.cli.parser;
+
+import org.jline.reader.CompletingParsedLine;
+import org.jline.reader.EOFError;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser.ParseContext;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Expected words are the words of the parser before the escape state was tracked while scanning.
+ */
+public class CliParserTest {
+
+    @Test(timeout = 2000)
+    public void parsesBackslashesInLinearTime() {
+        final String backslashes = "\\".repeat(100_000);
+        final ParsedLine even = parse(backslashes + " x");
+        assertThat(even.words(), contains("\\".repeat(50_000), "x"));
+
+        final ParsedLine odd = parse(backslashes + "\\ x");
+        assertThat(odd.words(), contains("\\".repeat(50_000) + " x"));
+    }
+
+    @Test
+    public void escapesDelimiters() {
+        assertThat(words("a\\ b"), contains("a b"));
+        assertThat(words("a\\\\ b"), contains("a\\", "b"));
+        assertThat(words("a\\\\\\ b"), contains("a\\ b"));
+        assertThat(words("\\\\\\\\\\"), contains("\\\\"));
+        assertThat(words("a\\"), contains("a"));
+    }
+
+    @Test
+    public void escapesQuotes() {
+        assertThat(words("a\\\"b"), contains("a\"b"));
+        assertThat(words("\"a \\\" b\""), contains("a \" b"));
+        assertThat(words("'a\\'b'"), contains("a'b"));
+        assertThat(words("\"a\\\\\" b"), contains("a\\", "b"));
+    }
+
+    @Test
+    public void parsesQuotes() {
+        assertThat(words("\"a b\" c"), contains("a b", "c"));
+        assertThat(words("'a \"b\" c'"), contains("a \"b\" c"));
+        assertThat(words("a\"b c\"d"), contains("a\"b c\"d"));
+        assertThat(words("x \"\" y"), contains("x", "", "y"));
+        assertThat(words("'' x"), contains("", "x"));
+        assertThat(words("a 'b c"), contains("a", "b c"));
+    }
+
+    @Test
+    public void splitLineKeepsQuotesAndEscapes() {
+        assertThat(words("a\\\\ b", ParseContext.SPLIT_LINE), contains("a\\\\", "b"));
+        assertThat(words("a\\\\\\ b", ParseContext.SPLIT_LINE), contains("a\\\\\\ b"));
+        assertThat(words("\"a \\\" b\"", ParseContext.SPLIT_LINE), contains("\"a \\\" b\""));
+        assertThat(words("'a\\'b'", ParseContext.SPLIT_LINE), contains("'a\\'b'"));
+    }
+
+    @Test
+    public void completesInEscapedWords() {
+        final CompletingParsedLine line = (CompletingParsedLine) new CliParser()
+                .parse("a\\\\\\ b", 3, ParseContext.COMPLETE);
+        assertThat(line.words(), contains("a\\ b"));
+        assertThat(line.wordIndex(), is(0));
+        assertThat(line.wordCursor(), is(2));
+        assertThat(line.rawWordCursor(), is(3));
+        assertThat(line.rawWordLength(), is(6));
+    }
+
+    @Test
+    public void throwsEofOnEscapedNewLine() {
+        final CliParser parser = new CliParser().eofOnEscapedNewLine(true);
+        assertEof(parser, "a\\", "newline");
+        assertEof(parser, "\\\\\\\\\\", "newline");
+        assertThat(parser.parse("a\\\\", 3, ParseContext.ACCEPT_LINE).words(), contains("a\\"));
+    }
+
+    @Test
+    public void throwsEofOnUnclosedQuote() {
+        final CliParser parser = new CliParser().eofOnUnclosedQuote(true);
+        assertEof(parser, "\"unclosed", "dquote");
+        assertEof(parser, "a 'b c", "quote");
+        assertThat(parser.parse("a \\'b", 5, ParseContext.ACCEPT_LINE).words(), contains("a", "'b"));
+    }
+
+    @Test
+    public void callsOverriddenHooks() {
+        final CliParser parser = new CliParser() {
+            @Override
+            public boolean isDelimiter(CharSequence buffer, int pos) {
+                return buffer.charAt(pos) == ',' || super.isDelimiter(buffer, pos);
+            }
+
+            @Override
+            public boolean isQuoteChar(CharSequence buffer, int pos) {
+                return buffer.charAt(pos) == '|' || super.isQuoteChar(buffer, pos);
+            }
+
+            @Override
+            public boolean isEscapeChar(CharSequence buffer, int pos) {
+                return buffer.charAt(pos) == '%' || super.isEscapeChar(buffer, pos);
+            }
+        };
+        assertThat(words(parser, "a,b c"), contains("a", "b", "c"));
+        assertThat(words(parser, "|a b| c"), contains("a b", "c"));
+        assertThat(words(parser, "\"x,y\" z"), contains("x,y", "z"));
+        assertThat(words(parser, "%|a b|"), contains("a b"));
+    }
+
+    private static ParsedLine parse(String line) {
+        return new CliParser().parse(line, line.length(), ParseContext.ACCEPT_LINE);
+    }
+
+    private static List<String> words(String line) {
+        return parse(line).words();
+    }
+
+    private static List<String> words(String line, ParseContext context) {
+        return new CliParser().parse(line, line.length(), context).words();
+    }
+
+    private static List<String> words(CliParser parser, String line) {
+        return parser.parse(line, line.length(), ParseContext.ACCEPT_LINE).words();
+    }
+
+    private static void assertEof(CliParser parser, String line, String missing) {
+        try {
+            parser.parse(line, line.length(), ParseContext.ACCEPT_LINE);
+            fail("EOFError expected for " + line);
+        } catch (EOFError e) {
+            assertThat(e.getMissing(), is(missing));
+        }
+    }
+
+}